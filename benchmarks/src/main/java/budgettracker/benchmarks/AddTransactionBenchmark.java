@@ -0,0 +1,77 @@
+package budgettracker.benchmarks;
+
+import budgettracker.ledger.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of adding transactions until they are durable, per durability mode. The single-threaded
+ * case shows the latency of one add; the concurrent case shows how group commit spreads one
+ * force over many writers.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AddTransactionBenchmark {
+    @Param({"SYNC", "GROUP_COMMIT"})
+    public DurabilityMode mode;
+
+    private Path dataFile;
+    private TransactionManager manager;
+    private List<Transaction> batch;
+
+    /**
+     * Per-thread generator so concurrent writers do not share a random stream.
+     */
+    @State(Scope.Thread)
+    public static class Generator {
+        SyntheticLedger ledger;
+
+        @Setup
+        public void setUp() {
+            ledger = new SyntheticLedger(Thread.currentThread().getId());
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataFile = Files.createTempDirectory("ledger-bench").resolve("transactions.dat");
+        manager = SyntheticLedger.open(dataFile, mode);
+        // Short wait so the single-threaded case measures the commit rather than the timer
+        manager.configureGroupCommit(2, PersistenceWriter.DEFAULT_GROUP_COMMIT_RECORDS);
+        batch = new SyntheticLedger(SyntheticLedger.SEED).next(1000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        manager.close();
+        SyntheticLedger.delete(dataFile.getParent());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void addOne(Generator generator) {
+        manager.addTransaction(generator.ledger.next()).join();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void addConcurrent(Generator generator) {
+        manager.addTransaction(generator.ledger.next()).join();
+    }
+
+    @Benchmark
+    @Threads(1)
+    @OperationsPerInvocation(1000)
+    public void addBatch() {
+        manager.addAll(batch).join();
+    }
+}
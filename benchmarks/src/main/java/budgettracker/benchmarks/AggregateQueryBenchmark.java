@@ -0,0 +1,86 @@
+package budgettracker.benchmarks;
+
+import budgettracker.ledger.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the summary queries behind the Monthly Summary and Category Breakdown tabs.
+ * Months are picked at random within the generated range so the index is not read from one
+ * hot cache line only.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class AggregateQueryBenchmark {
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    private Path dataFile;
+    private TransactionManager manager;
+    private final SplittableRandom random = new SplittableRandom(SyntheticLedger.SEED);
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataFile = SyntheticLedger.createDataFile(rows);
+        manager = SyntheticLedger.open(dataFile, DurabilityMode.ON_EXIT);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        manager.close();
+        SyntheticLedger.delete(dataFile.getParent());
+    }
+
+    private int month() {
+        return 1 + random.nextInt(12);
+    }
+
+    private int year() {
+        return SyntheticLedger.START.getYear() + random.nextInt(SyntheticLedger.YEARS);
+    }
+
+    @Benchmark
+    public double[] monthlySummary() {
+        return manager.getMonthlySummary(month(), year());
+    }
+
+    @Benchmark
+    public double[][] yearlySummary() {
+        return manager.getYearlySummary(year());
+    }
+
+    @Benchmark
+    public Map<String, Double> categoryBreakdownMonth() {
+        return manager.getCategoryBreakdown(month(), year());
+    }
+
+    @Benchmark
+    public double[] rangeSummary() {
+        LocalDate from = LocalDate.of(year(), month(), 1);
+        return manager.getRangeSummary(from, from.plusDays(90));
+    }
+
+    @Benchmark
+    public int transactionsInWeek() {
+        LocalDate from = LocalDate.of(year(), month(), 1);
+        List<Transaction> week = manager.getTransactions(from, from.plusDays(6));
+        return week.size();
+    }
+
+    @Benchmark
+    public Map<String, Double> categoryBreakdownAllTime() {
+        return manager.getCategoryBreakdown(CategoryRollup.ALL, CategoryRollup.ALL);
+    }
+}
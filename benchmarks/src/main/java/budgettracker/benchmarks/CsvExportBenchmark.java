@@ -0,0 +1,51 @@
+package budgettracker.benchmarks;
+
+import budgettracker.ledger.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to export a whole ledger to CSV, with and without a type filter.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class CsvExportBenchmark {
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    @Param({"All", "Expense"})
+    public String type;
+
+    private Path dataFile;
+    private Path csvFile;
+    private TransactionStore store;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataFile = SyntheticLedger.createDataFile(rows);
+        try (TransactionManager manager = SyntheticLedger.open(dataFile, DurabilityMode.ON_EXIT)) {
+            store = manager.getStore();
+        }
+        csvFile = dataFile.resolveSibling("export.csv");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        SyntheticLedger.delete(dataFile.getParent());
+    }
+
+    @Benchmark
+    public int export() throws IOException {
+        CsvExporter exporter = new CsvExporter(store);
+        exporter.setTypeFilter(type);
+        return exporter.export(csvFile, rowsDone -> { }, () -> false);
+    }
+}
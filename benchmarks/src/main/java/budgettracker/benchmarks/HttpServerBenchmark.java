@@ -0,0 +1,115 @@
+package budgettracker.benchmarks;
+
+import budgettracker.ledger.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of the read-only HTTP server: many clients query summaries, category breakdowns and
+ * transaction pages over loopback while one writer keeps adding transactions, as the Add
+ * Transaction tab would. The writer's score shows whether readers hold up adds; raise the
+ * client count with {@code -tg}, e.g. {@code -tg 200,200,200,1}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Group)
+public class HttpServerBenchmark {
+    @Param({"1000000"})
+    public int rows;
+
+    private Path dataFile;
+    private TransactionManager manager;
+    private LedgerHttpServer server;
+    private HttpClient client;
+    private String base;
+
+    /**
+     * Per-thread generators so clients and the writer do not share a random stream.
+     */
+    @State(Scope.Thread)
+    public static class Client {
+        SplittableRandom random;
+        SyntheticLedger ledger;
+
+        @Setup
+        public void setUp() {
+            random = new SplittableRandom(Thread.currentThread().getId());
+            ledger = new SyntheticLedger(Thread.currentThread().getId());
+        }
+
+        int month() {
+            return 1 + random.nextInt(12);
+        }
+
+        int year() {
+            return SyntheticLedger.START.getYear() + random.nextInt(SyntheticLedger.YEARS);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataFile = SyntheticLedger.createDataFile(rows);
+        manager = SyntheticLedger.open(dataFile, DurabilityMode.ON_EXIT);
+        server = new LedgerHttpServer(manager, 0);
+        server.start();
+        client = HttpClient.newHttpClient();
+        base = "http://localhost:" + server.getPort() + "/api/";
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        server.close();
+        manager.close();
+        SyntheticLedger.delete(dataFile.getParent());
+    }
+
+    private String get(String path) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(base + path)).build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    @Benchmark
+    @Group("readWhileAdding")
+    @GroupThreads(16)
+    public String summary(Client client) throws IOException, InterruptedException {
+        return get("summary?year=" + client.year());
+    }
+
+    @Benchmark
+    @Group("readWhileAdding")
+    @GroupThreads(16)
+    public String categories(Client client) throws IOException, InterruptedException {
+        return get("categories?year=" + client.year() + "&month=" + client.month());
+    }
+
+    @Benchmark
+    @Group("readWhileAdding")
+    @GroupThreads(16)
+    public String transactionPage(Client client) throws IOException, InterruptedException {
+        return get("transactions?type=Expense&from=" + client.year() + "-0" + (1 + client.random.nextInt(9))
+                + "-01&offset=" + client.random.nextInt(1000) + "&limit=" + LedgerHttpServer.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    @Group("readWhileAdding")
+    @GroupThreads(1)
+    public void add(Client client) {
+        manager.addTransaction(client.ledger.next());
+    }
+}
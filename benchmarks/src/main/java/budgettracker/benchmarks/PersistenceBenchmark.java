@@ -0,0 +1,77 @@
+package budgettracker.benchmarks;
+
+import budgettracker.ledger.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.time.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup load and snapshot save times. Loading opens a {@link TransactionManager} on a ledger
+ * written during setup, which reads the year partitions and the snapshot and rebuilds the
+ * aggregates; saving writes a full snapshot of an in-memory store, as journal compaction does
+ * before any year is closed, and saving the current period compacts a ledger whose earlier
+ * years are already partitioned, so only the last year is rewritten.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class PersistenceBenchmark {
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    private Path dataFile;
+    private TransactionStore store;
+    private TransactionJournal saveJournal;
+    private TransactionJournal periodJournal;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataFile = SyntheticLedger.createDataFile(rows);
+        try (TransactionManager manager = SyntheticLedger.open(dataFile, DurabilityMode.ON_EXIT)) {
+            store = manager.getStore();
+        }
+        // A clock at the start of the ledger keeps every year open, so saves write one full snapshot
+        saveJournal = new TransactionJournal(dataFile.resolveSibling("save.dat").toString(),
+                clockAt(SyntheticLedger.START));
+        saveJournal.open(new TransactionStore());
+        periodJournal = new TransactionJournal(dataFile.resolveSibling("period.dat").toString(),
+                clockAt(SyntheticLedger.START.plusYears(SyntheticLedger.YEARS - 1)));
+        periodJournal.open(new TransactionStore());
+        periodJournal.compact(store, store.size());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        saveJournal.close();
+        periodJournal.close();
+        SyntheticLedger.delete(dataFile.getParent());
+    }
+
+    @Benchmark
+    public int load() throws IOException {
+        try (TransactionManager manager = SyntheticLedger.open(dataFile, DurabilityMode.ON_EXIT)) {
+            return manager.getStore().size();
+        }
+    }
+
+    @Benchmark
+    public void save() throws IOException {
+        saveJournal.compact(store, store.size());
+    }
+
+    @Benchmark
+    public void saveCurrentPeriod() throws IOException {
+        periodJournal.compact(store, store.size());
+    }
+
+    private static Clock clockAt(LocalDate date) {
+        return Clock.fixed(date.atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,146 @@
+package budgettracker.benchmarks;
+
+import budgettracker.ledger.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * Generates reproducible synthetic ledgers for the benchmarks.
+ * The same seed and row count always produce the same transactions: dates spread evenly over
+ * ten years, about one income per ten expenses, a fixed set of categories and a bounded
+ * vocabulary of descriptions, so dictionary sizes stay realistic at any row count.
+ */
+public final class SyntheticLedger {
+    /** Seed used by all benchmarks unless they need several independent streams. */
+    public static final long SEED = 0x5EEDL;
+
+    /** First day of the generated ledgers. */
+    public static final LocalDate START = LocalDate.of(2015, 1, 1);
+
+    /** Number of years the generated ledgers cover. */
+    public static final int YEARS = 10;
+
+    private static final String[] EXPENSE_CATEGORIES = {
+            "Food", "Transport", "Rent", "Utilities", "Books", "Entertainment",
+            "Clothing", "Health", "Phone", "Travel", "Gifts", "Other"
+    };
+    private static final String[] INCOME_CATEGORIES = {"Allowance", "Part-time Job", "Scholarship"};
+    private static final int DESCRIPTIONS_PER_CATEGORY = 400;
+    private static final int BATCH_SIZE = 100_000;
+
+    private final SplittableRandom random;
+    private final int firstDay = (int) START.toEpochDay();
+    private final int days = (int) (START.plusYears(YEARS).toEpochDay() - START.toEpochDay());
+
+    /**
+     * Creates a generator.
+     *
+     * @param seed the seed; equal seeds generate equal ledgers
+     */
+    public SyntheticLedger(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Generates the next transaction.
+     *
+     * @return a new transaction
+     */
+    public Transaction next() {
+        int day = firstDay + random.nextInt(days);
+        if (random.nextInt(10) == 0) {
+            String category = INCOME_CATEGORIES[random.nextInt(INCOME_CATEGORIES.length)];
+            long cents = 5_000 + random.nextInt(150_000);
+            return new Transaction(day, category + " payment", cents, category, true);
+        }
+        String category = EXPENSE_CATEGORIES[random.nextInt(EXPENSE_CATEGORIES.length)];
+        long cents = 100 + random.nextInt(20_000);
+        String description = category + " purchase " + random.nextInt(DESCRIPTIONS_PER_CATEGORY);
+        return new Transaction(day, description, cents, category, false);
+    }
+
+    /**
+     * Generates a batch of transactions.
+     *
+     * @param rows the number of transactions
+     * @return the transactions in generation order
+     */
+    public List<Transaction> next(int rows) {
+        List<Transaction> batch = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            batch.add(next());
+        }
+        return batch;
+    }
+
+    /**
+     * Adds generated transactions to a manager in large batches.
+     *
+     * @param manager the manager to fill
+     * @param rows    the number of transactions to add
+     * @param seed    the generator seed
+     * @return a future completing when all transactions are persisted; in
+     *         {@link DurabilityMode#ON_EXIT} mode that is when the manager is closed
+     */
+    public static CompletableFuture<Void> populate(TransactionManager manager, int rows, long seed) {
+        SyntheticLedger ledger = new SyntheticLedger(seed);
+        CompletableFuture<Void> last = CompletableFuture.completedFuture(null);
+        for (int added = 0; added < rows; added += BATCH_SIZE) {
+            last = manager.addAll(ledger.next(Math.min(BATCH_SIZE, rows - added)));
+        }
+        // Batches commit in order, so the last one completing means all have
+        return last;
+    }
+
+    /**
+     * Opens a manager on a data file, failing loudly on persistence errors instead of printing them.
+     *
+     * @param dataFile the data file
+     * @param mode     the durability mode
+     * @return the opened manager
+     */
+    public static TransactionManager open(Path dataFile, DurabilityMode mode) {
+        return new TransactionManager(dataFile.toString(), mode, (message, error) -> {
+            throw new UncheckedIOException(message, error);
+        });
+    }
+
+    /**
+     * Writes a generated ledger to a new temporary directory.
+     *
+     * @param rows the number of transactions
+     * @return the data file of the ledger; pass its parent to {@link #delete(Path)} when done
+     * @throws IOException if the ledger cannot be written
+     */
+    public static Path createDataFile(int rows) throws IOException {
+        Path dataFile = Files.createTempDirectory("ledger-bench").resolve("transactions.dat");
+        CompletableFuture<Void> persisted;
+        try (TransactionManager manager = open(dataFile, DurabilityMode.ON_EXIT)) {
+            persisted = populate(manager, rows, SEED);
+        }
+        persisted.join();
+        return dataFile;
+    }
+
+    /**
+     * Deletes a file or directory tree.
+     *
+     * @param path the path to delete
+     * @throws IOException if a file cannot be deleted
+     */
+    public static void delete(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            for (Path p : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(p);
+            }
+        }
+    }
+}
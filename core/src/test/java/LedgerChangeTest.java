@@ -0,0 +1,67 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link LedgerChange}.
+ */
+class LedgerChangeTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void negativeYearsArePublished() throws IOException {
+        TransactionManager manager = new TransactionManager(dir.resolve("transactions.dat").toString(),
+                DurabilityMode.SYNC, (message, error) -> fail(message));
+        List<LedgerChange> changes = new CopyOnWriteArrayList<>();
+        manager.addChangeListener(changes::add);
+        try {
+            manager.addTransaction(new Transaction(LocalDate.of(-1, 6, 1), "Old", 5, "Food", false)).join();
+            manager.addAll(List.of(new Transaction(LocalDate.of(-1, 6, 3), "Old", 5, "Food", false),
+                    new Transaction(LocalDate.of(0, 1, 1), "Zero", 5, "Fun", false),
+                    new Transaction(LocalDate.of(-2, 12, 31), "Older", 5, "Food", true))).join();
+        } finally {
+            manager.close();
+        }
+
+        assertEquals(2, changes.size());
+        LedgerChange first = changes.get(0);
+        assertTrue(first.affectsMonth(6, -1));
+        assertTrue(first.affectsYear(-1));
+        assertFalse(first.affectsYear(0));
+        assertEquals(new TreeSet<>(List.of(YearMonth.of(-1, 6))), first.getMonths());
+
+        LedgerChange merged = first.merge(changes.get(1));
+        assertEquals(new TreeSet<>(List.of(YearMonth.of(-2, 12), YearMonth.of(-1, 6), YearMonth.of(0, 1))),
+                merged.getMonths());
+        assertTrue(merged.affectsMonth(12, -2));
+        assertTrue(merged.affectsMonth(1, 0));
+        assertFalse(merged.affectsMonth(7, -1));
+        assertFalse(merged.affectsYear(1));
+        assertFalse(merged.affectsYear(Integer.MAX_VALUE));
+        assertFalse(merged.affectsMonth(12, Integer.MIN_VALUE));
+    }
+
+    @Test
+    void monthsAreSortedAndDistinct() {
+        TransactionStore store = new TransactionStore();
+        for (String date : new String[]{"2024-03-02", "2024-03-01", "2023-11-30", "9999-12-31", "2024-03-02"}) {
+            store.add(new Transaction(date, "Row", 1, "Food", false));
+        }
+        LedgerChange change = LedgerChange.of(store, 0, store.size());
+
+        assertEquals(new TreeSet<>(List.of(YearMonth.of(2023, 11), YearMonth.of(2024, 3), YearMonth.of(9999, 12))),
+                change.getMonths());
+        assertTrue(change.affectsYear(9999));
+        assertFalse(change.affectsYear(2025));
+        assertEquals(Set.of("Food"), change.getCategories());
+    }
+}
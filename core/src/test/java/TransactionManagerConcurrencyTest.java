@@ -0,0 +1,218 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stress test of {@link TransactionManager} with several writers adding transactions while
+ * readers take snapshots, checking that every snapshot is internally consistent and that the
+ * final ledger survives a reload, and that adds racing {@link TransactionManager#close()} never
+ * leave a future pending.
+ */
+class TransactionManagerConcurrencyTest {
+    private static final int WRITERS = 4;
+    private static final int READERS = 3;
+    private static final int PER_WRITER = 3000;
+    private static final int BATCH = 10;
+    private static final String[] CATEGORIES = {"Food", "Rent", "Transport", "Books", "Fun"};
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void snapshotsStayConsistentWhileWritersAdd() throws Exception {
+        String dataFile = dir.resolve("transactions.dat").toString();
+        List<String> errors = new CopyOnWriteArrayList<>();
+        PersistenceListener listener = (message, error) -> errors.add(message + ": " + error);
+
+        TransactionManager manager = new TransactionManager(dataFile, DurabilityMode.GROUP_COMMIT, listener);
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS + READERS);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<List<CompletableFuture<Void>>>> writers = new ArrayList<>();
+        List<Future<Integer>> readers = new ArrayList<>();
+        try {
+            for (int w = 0; w < WRITERS; w++) {
+                int writer = w;
+                writers.add(pool.submit(() -> write(manager, writer)));
+            }
+            for (int r = 0; r < READERS; r++) {
+                readers.add(pool.submit(() -> read(manager, writing)));
+            }
+            for (Future<List<CompletableFuture<Void>>> writer : writers) {
+                for (CompletableFuture<Void> persisted : writer.get(2, TimeUnit.MINUTES)) {
+                    persisted.get(1, TimeUnit.MINUTES);
+                }
+            }
+            writing.set(false);
+            for (Future<Integer> reader : readers) {
+                assertTrue(reader.get(2, TimeUnit.MINUTES) > 0, "Reader took no snapshots");
+            }
+        } finally {
+            writing.set(false);
+            pool.shutdownNow();
+        }
+
+        Ledger expected = new Ledger();
+        for (int w = 0; w < WRITERS; w++) {
+            for (int i = 0; i < PER_WRITER; i++) {
+                expected.add(transaction(w, i));
+            }
+        }
+        assertEquals(WRITERS * PER_WRITER, manager.getStore().size());
+        assertTotals(expected, manager.snapshot());
+        manager.close();
+
+        TransactionManager reloaded = new TransactionManager(dataFile, DurabilityMode.GROUP_COMMIT, listener);
+        try {
+            assertEquals(WRITERS * PER_WRITER, reloaded.getStore().size());
+            assertTotals(expected, reloaded.snapshot());
+            assertEquals(expected, Ledger.of(reloaded.snapshot().getTransactions()));
+        } finally {
+            reloaded.close();
+        }
+        assertEquals(Collections.emptyList(), errors);
+    }
+
+    @Test
+    void addsRacingCloseAlwaysComplete() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            TransactionManager manager = new TransactionManager(dir.resolve("race" + round + ".dat").toString(),
+                    DurabilityMode.GROUP_COMMIT, (message, error) -> { });
+            ExecutorService pool = Executors.newFixedThreadPool(WRITERS);
+            List<Future<List<CompletableFuture<Void>>>> writers = new ArrayList<>();
+            try {
+                for (int w = 0; w < WRITERS; w++) {
+                    int writer = w;
+                    writers.add(pool.submit(() -> write(manager, writer)));
+                }
+                Thread.sleep(round % 5);
+                manager.close();
+                for (Future<List<CompletableFuture<Void>>> writer : writers) {
+                    for (CompletableFuture<Void> persisted : writer.get(2, TimeUnit.MINUTES)) {
+                        try {
+                            persisted.get(1, TimeUnit.MINUTES);
+                        } catch (ExecutionException e) {
+                            assertInstanceOf(IOException.class, e.getCause());
+                        }
+                    }
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Adds one writer's transactions, alternating single adds and batches.
+     */
+    private static List<CompletableFuture<Void>> write(TransactionManager manager, int writer) {
+        List<CompletableFuture<Void>> persisted = new ArrayList<>();
+        for (int i = 0; i < PER_WRITER; i += BATCH) {
+            if ((i / BATCH) % 2 == 0) {
+                for (int j = i; j < i + BATCH; j++) {
+                    persisted.add(manager.addTransaction(transaction(writer, j)));
+                }
+            } else {
+                List<Transaction> batch = new ArrayList<>();
+                for (int j = i; j < i + BATCH; j++) {
+                    batch.add(transaction(writer, j));
+                }
+                persisted.add(manager.addAll(batch));
+            }
+        }
+        return persisted;
+    }
+
+    /**
+     * Takes snapshots until the writers finish, checking each against its own rows.
+     *
+     * @return the number of snapshots checked
+     */
+    private static int read(TransactionManager manager, AtomicBoolean writing) {
+        int snapshots = 0;
+        long lastVersion = -1;
+        int lastSize = 0;
+        do {
+            LedgerSnapshot snapshot = manager.snapshot();
+            assertTrue(snapshot.getVersion() >= lastVersion, "Snapshot version went backwards");
+            assertTrue(snapshot.size() >= lastSize, "Snapshot lost rows");
+            assertEquals(snapshot.size(), snapshot.getTransactions().size());
+            assertTotals(Ledger.of(snapshot.getTransactions()), snapshot);
+            lastVersion = snapshot.getVersion();
+            lastSize = snapshot.size();
+            snapshots++;
+        } while (writing.get());
+        return snapshots;
+    }
+
+    private static Transaction transaction(int writer, int i) {
+        return new Transaction(START.plusDays((writer * 37L + i) % 366), "Writer " + writer + " #" + i,
+                (writer * 1000 + i % 1000 + 1) / 100.0, CATEGORIES[(writer + i) % CATEGORIES.length], i % 7 == 0);
+    }
+
+    /**
+     * Asserts that the summaries of a snapshot match totals computed from the given rows.
+     */
+    private static void assertTotals(Ledger expected, LedgerSnapshot snapshot) {
+        for (int month = 1; month <= 12; month++) {
+            double[] summary = snapshot.getMonthlySummary(month, START.getYear());
+            assertEquals(expected.income[month], Transaction.toCents(summary[0]), "Income of month " + month);
+            assertEquals(expected.expenses[month], Transaction.toCents(summary[1]), "Expenses of month " + month);
+        }
+        Map<String, Long> breakdown = new TreeMap<>();
+        snapshot.getCategoryBreakdown(CategoryRollup.ALL, START.getYear())
+                .forEach((category, total) -> breakdown.put(category, Transaction.toCents(total)));
+        assertEquals(expected.categories, breakdown);
+    }
+
+    /**
+     * Totals in cents computed directly from a list of transactions.
+     */
+    private static final class Ledger {
+        final long[] income = new long[13];
+        final long[] expenses = new long[13];
+        final Map<String, Long> categories = new TreeMap<>();
+        final Map<String, Integer> rows = new HashMap<>();
+
+        static Ledger of(List<Transaction> transactions) {
+            Ledger ledger = new Ledger();
+            transactions.forEach(ledger::add);
+            return ledger;
+        }
+
+        void add(Transaction t) {
+            int month = t.getLocalDate().getMonthValue();
+            if (t.getLocalDate().getYear() != START.getYear()) {
+                month = 0;
+            }
+            if (t.isIncome()) {
+                income[month] += t.getAmountCents();
+            } else {
+                expenses[month] += t.getAmountCents();
+                if (month != 0) {
+                    categories.merge(t.getCategory(), t.getAmountCents(), Long::sum);
+                }
+            }
+            rows.merge(t.getEpochDay() + "|" + t.getAmountCents() + "|" + t.getCategory() + "|"
+                    + t.getDescription() + "|" + t.isIncome(), 1, Integer::sum);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Ledger && rows.equals(((Ledger) other).rows);
+        }
+
+        @Override
+        public int hashCode() {
+            return rows.hashCode();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that a ledger or budgets file that cannot be read is left untouched.
+ */
+class TransactionManagerFailedLoadTest {
+    private static final int ROWS = 1500;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void corruptSnapshotIsNeverOverwritten() throws IOException {
+        String dataFile = dir.resolve("transactions.dat").toString();
+        TransactionManager manager = new TransactionManager(dataFile, DurabilityMode.SYNC, (message, error) -> fail(message));
+        List<Transaction> batch = new ArrayList<>();
+        LocalDate date = LocalDate.now().withDayOfMonth(1);
+        for (int i = 0; i < ROWS; i++) {
+            batch.add(new Transaction(date, "Expense " + i, 1 + i, "Food", false));
+        }
+        manager.addAll(batch).join();
+        manager.close();
+
+        TransactionJournal journal = new TransactionJournal(dataFile);
+        TransactionStore store = new TransactionStore();
+        journal.open(store);
+        journal.compact(store, store.size());
+        journal.close();
+
+        Path snapshot = dir.resolve("transactions.snapshot");
+        byte[] corrupt = Files.readAllBytes(snapshot);
+        corrupt[corrupt.length / 2] ^= 1;
+        Files.write(snapshot, corrupt);
+
+        List<String> errors = new CopyOnWriteArrayList<>();
+        TransactionManager reopened = new TransactionManager(dataFile, DurabilityMode.SYNC,
+                (message, error) -> errors.add(message));
+        assertTrue(reopened.isReadOnly());
+        assertEquals(List.of("Error loading transactions"), errors);
+        for (int i = 0; i < 3; i++) {
+            assertThrows(IllegalStateException.class,
+                    () -> reopened.addTransaction(new Transaction(date, "Lunch", 5, "Food", false)));
+        }
+        assertThrows(IllegalStateException.class,
+                () -> reopened.addAll(List.of(new Transaction(date, "Lunch", 5, "Food", false))));
+        reopened.close();
+
+        assertArrayEquals(corrupt, Files.readAllBytes(snapshot));
+    }
+
+    @Test
+    void corruptBudgetsAreNeverOverwritten() throws IOException {
+        String dataFile = dir.resolve("transactions.dat").toString();
+        TransactionManager manager = new TransactionManager(dataFile, DurabilityMode.SYNC, (message, error) -> fail(message));
+        manager.setBudgetLimit("Food", 200);
+        manager.setBudgetLimit("Rent", 650);
+        assertFalse(manager.areBudgetsReadOnly());
+        manager.close();
+
+        Path budgetFile = new TransactionJournal(dataFile).getBudgetFile();
+        byte[] corrupt = Files.readAllBytes(budgetFile);
+        corrupt[corrupt.length / 2] ^= 1;
+        Files.write(budgetFile, corrupt);
+
+        List<String> errors = new CopyOnWriteArrayList<>();
+        TransactionManager reopened = new TransactionManager(dataFile, DurabilityMode.SYNC,
+                (message, error) -> errors.add(message));
+        assertEquals(List.of("Error loading budgets"), errors);
+        assertFalse(reopened.isReadOnly());
+        assertTrue(reopened.areBudgetsReadOnly());
+        assertThrows(IllegalStateException.class, () -> reopened.setBudgetLimit("Fun", 50));
+        reopened.close();
+
+        assertArrayEquals(corrupt, Files.readAllBytes(budgetFile));
+    }
+
+    @Test
+    void budgetLimitsMustBeFinite() throws IOException {
+        TransactionManager manager = new TransactionManager(dir.resolve("transactions.dat").toString(),
+                DurabilityMode.SYNC, (message, error) -> fail(message));
+        manager.setBudgetLimit("Food", 200);
+        for (double amount : new double[]{Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, -1}) {
+            assertThrows(IllegalArgumentException.class, () -> manager.setBudgetLimit("Food", amount));
+        }
+        assertEquals(20000, manager.getBudgets().getLimitCents("Food"));
+        manager.close();
+
+        CategoryBudgets budgets = CategoryBudgets.NONE;
+        long eightyPercent = Long.MAX_VALUE / 100 * 80 + 6;
+        assertEquals(0, budgets.crossedThreshold(Long.MAX_VALUE, 0, eightyPercent - 1));
+        assertEquals(80, budgets.crossedThreshold(Long.MAX_VALUE, 0, eightyPercent));
+        assertEquals(100, budgets.crossedThreshold(Long.MAX_VALUE, Long.MAX_VALUE - 1, Long.MAX_VALUE));
+    }
+
+    @Test
+    void journalRefusesWritesUnlessOpened() throws IOException {
+        TransactionJournal journal = new TransactionJournal(dir.resolve("transactions.dat").toString());
+        Transaction t = new Transaction(LocalDate.now(), "Lunch", 5, "Food", false);
+
+        assertThrows(IOException.class, () -> journal.appendAll(List.of(t), 0));
+        assertThrows(IOException.class, () -> journal.compact(new TransactionStore(), 0));
+        journal.close();
+    }
+}
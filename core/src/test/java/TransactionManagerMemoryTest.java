@@ -0,0 +1,75 @@
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Measures the heap retained by a loaded {@link TransactionManager} of ten million rows: the store
+ * together with every index built over it. Takes a few minutes and several gigabytes of heap,
+ * so it is tagged {@code memory} and only runs with {@code mvn test -Pmemory-tests}.
+ */
+@Tag("memory")
+class TransactionManagerMemoryTest {
+    private static final int ROWS = 10_000_000;
+    private static final int BATCH = 100_000;
+    private static final String[] CATEGORIES = {"Food", "Rent", "Transport", "Books", "Fun", "Health", "Gifts", "Other"};
+    private static final LocalDate START = LocalDate.of(2015, 1, 1);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void loadedManagerStaysWithinTheMemoryTarget() throws IOException {
+        String dataFile = dir.resolve("transactions.dat").toString();
+        PersistenceListener listener = (message, error) -> fail(message, error);
+        TransactionManager manager = new TransactionManager(dataFile, DurabilityMode.GROUP_COMMIT, listener);
+        CompletableFuture<Void> persisted = null;
+        for (int from = 0; from < ROWS; from += BATCH) {
+            List<Transaction> batch = new ArrayList<>(BATCH);
+            for (int row = from; row < from + BATCH; row++) {
+                batch.add(new Transaction(START.plusDays(row % 3650), "Description " + row % 1000,
+                        1 + row % 10_000 / 100.0, CATEGORIES[row % CATEGORIES.length], row % 5 == 0));
+            }
+            persisted = manager.addAll(batch);
+        }
+        persisted.join();
+        manager.close();
+        manager = null;
+
+        long before = usedHeap();
+        TransactionManager loaded = new TransactionManager(dataFile, DurabilityMode.GROUP_COMMIT, listener);
+        long after = usedHeap();
+        try {
+            assertEquals(ROWS, loaded.getStore().size());
+            long bytesPerRow = (after - before) / ROWS;
+            assertTrue(bytesPerRow <= TransactionManager.TARGET_BYTES_PER_ROW,
+                    "Expected at most " + TransactionManager.TARGET_BYTES_PER_ROW + " bytes per row, got " + bytesPerRow);
+        } finally {
+            loaded.close();
+        }
+    }
+
+    /**
+     * Returns the heap in use after collecting garbage until it stops shrinking.
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            long now = runtime.totalMemory() - runtime.freeMemory();
+            if (now >= used) {
+                break;
+            }
+            used = now;
+        }
+        return used;
+    }
+}
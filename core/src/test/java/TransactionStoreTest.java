@@ -0,0 +1,22 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link TransactionStore}.
+ */
+class TransactionStoreTest {
+    @Test
+    void rowsReadBackAsAdded() {
+        TransactionStore store = new TransactionStore();
+        int row = store.add(new Transaction("2024-03-15", "Rent", 650.25, "Housing", false));
+
+        assertEquals(1, store.size());
+        Transaction t = store.get(row);
+        assertEquals("2024-03-15", t.getLocalDate().toString());
+        assertEquals(65025, t.getAmountCents());
+        assertEquals("Housing", t.getCategory());
+        assertEquals("Rent", t.getDescription());
+        assertFalse(t.isIncome());
+    }
+}
@@ -0,0 +1,121 @@
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Computes multi-year trend reports from a {@link TransactionStore} in a single parallel pass.
+ * The rows present when a report starts are cut into fixed-size chunks that are scanned on the
+ * common fork-join pool; each task accumulates into its own arrays (income and expenses per
+ * month, expenses per category and month), and the partial accumulators are merged at the end,
+ * so the scan needs no locking or shared counters.
+ *
+ * <p>The store may keep growing while a report runs; rows added after it started are not
+ * included.</p>
+ */
+public class AnalyticsEngine {
+    private static final int CHUNK_ROWS = 1 << 16;
+
+    private final TransactionStore store;
+
+    /**
+     * Creates an engine reading from a store.
+     *
+     * @param store the store holding the ledger
+     */
+    public AnalyticsEngine(TransactionStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Computes the trend report for an inclusive range of calendar years.
+     *
+     * @param fromYear the first year
+     * @param toYear   the last year
+     * @return the monthly series of the period
+     * @throws IllegalArgumentException if {@code fromYear} is after {@code toYear}
+     */
+    public TrendReport computeTrends(int fromYear, int toYear) {
+        if (fromYear > toYear) {
+            throw new IllegalArgumentException("First year " + fromYear + " is after last year " + toYear);
+        }
+        // Read the row count before the dictionary so every category id in range is known
+        int rows = store.size();
+        int categoryCount = store.getCategories().size();
+        int months = 12 * (toYear - fromYear + 1);
+
+        // Month of every day in the period, so rows need no date arithmetic
+        int firstDay = (int) LocalDate.of(fromYear, 1, 1).toEpochDay();
+        int endDay = (int) LocalDate.of(toYear + 1, 1, 1).toEpochDay();
+        int[] monthOfDay = new int[endDay - firstDay];
+        LocalDate monthStart = LocalDate.of(fromYear, 1, 1);
+        for (int month = 0; month < months; month++) {
+            LocalDate next = monthStart.plusMonths(1);
+            Arrays.fill(monthOfDay, (int) monthStart.toEpochDay() - firstDay, (int) next.toEpochDay() - firstDay, month);
+            monthStart = next;
+        }
+
+        int chunks = (rows + CHUNK_ROWS - 1) / CHUNK_ROWS;
+        Accumulator total = IntStream.range(0, chunks).parallel().collect(
+                () -> new Accumulator(categoryCount, months),
+                (accumulator, chunk) -> accumulator.scan(store, chunk * CHUNK_ROWS,
+                        Math.min(rows, (chunk + 1) * CHUNK_ROWS), firstDay, monthOfDay),
+                Accumulator::merge);
+
+        // Keep only categories with expenses in the period, in order of first appearance
+        List<String> categories = new ArrayList<>();
+        List<long[]> series = new ArrayList<>();
+        for (int category = 0; category < categoryCount; category++) {
+            long[] trend = Arrays.copyOfRange(total.categoryExpenses, category * months, (category + 1) * months);
+            if (Arrays.stream(trend).anyMatch(cents -> cents != 0)) {
+                categories.add(store.getCategories().valueOf(category));
+                series.add(trend);
+            }
+        }
+        return new TrendReport(fromYear, toYear, categories, series.toArray(new long[0][]),
+                total.income, total.expenses);
+    }
+
+    /**
+     * Totals of one scanning task; merged pairwise once all chunks are scanned.
+     */
+    private static class Accumulator {
+        final int months;
+        final long[] income;
+        final long[] expenses;
+        final long[] categoryExpenses;
+
+        Accumulator(int categories, int months) {
+            this.months = months;
+            this.income = new long[months];
+            this.expenses = new long[months];
+            this.categoryExpenses = new long[categories * months];
+        }
+
+        void scan(TransactionStore store, int fromRow, int toRow, int firstDay, int[] monthOfDay) {
+            for (int row = fromRow; row < toRow; row++) {
+                int day = store.getEpochDay(row) - firstDay;
+                if (day < 0 || day >= monthOfDay.length) {
+                    continue;
+                }
+                int month = monthOfDay[day];
+                long cents = store.getAmountCents(row);
+                if (store.isIncome(row)) {
+                    income[month] += cents;
+                } else {
+                    expenses[month] += cents;
+                    categoryExpenses[store.getCategoryId(row) * months + month] += cents;
+                }
+            }
+        }
+
+        void merge(Accumulator other) {
+            for (int i = 0; i < months; i++) {
+                income[i] += other.income[i];
+                expenses[i] += other.expenses[i];
+            }
+            for (int i = 0; i < categoryExpenses.length; i++) {
+                categoryExpenses[i] += other.categoryExpenses[i];
+            }
+        }
+    }
+}
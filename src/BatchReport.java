@@ -0,0 +1,421 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Headless batch reports over a saved ledger, for scheduled jobs and servers without a display.
+ * The report prints monthly summaries and a category breakdown of an inclusive date range and
+ * can write the transactions of the range to a CSV extract; it ends with the rows scanned and
+ * the throughput reached.
+ *
+ * <p>The ledger is never loaded into a {@link TransactionStore}: the partitions and the columnar
+ * snapshot are memory-mapped and scanned column by column, and the journal after it is read one record at a
+ * time, so the heap needed depends on the number of months and categories in the range and not
+ * on the number of transactions. Descriptions are copied from the mapped file into the extract
+ * without being decoded. No file of the ledger is modified, so a report may run while the
+ * application has the ledger open.</p>
+ *
+ * <pre>
+ * java -cp student-budget-tracker.jar BatchReport [--data FILE] [--from DATE] [--to DATE]
+ *                                                 [--csv FILE] [--type All|Income|Expense]
+ * </pre>
+ *
+ * Dates are {@code YYYY-MM-DD} or {@code YYYY-MM} for a whole month.
+ */
+public class BatchReport {
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final byte[] INCOME = CsvExporter.quote("Income");
+    private static final byte[] EXPENSE = CsvExporter.quote("Expense");
+    private static final List<String> OPTIONS = Arrays.asList("--data", "--from", "--to", "--csv", "--type");
+    private static final String USAGE = "Usage: BatchReport [--data FILE] [--from DATE] [--to DATE]"
+            + " [--csv FILE] [--type All|Income|Expense]%n"
+            + "  --data   the ledger data file (default transactions.dat)%n"
+            + "  --from   the first day of the report, YYYY-MM-DD or YYYY-MM%n"
+            + "  --to     the last day of the report, YYYY-MM-DD or YYYY-MM%n"
+            + "  --csv    also write the transactions of the range to this CSV file%n"
+            + "  --type   the transactions to write to the CSV file (default All)%n";
+
+    private final String dataFile;
+    private final TransactionJournal journal;
+    private int fromEpochDay = Integer.MIN_VALUE;
+    private int toEpochDay = Integer.MAX_VALUE;
+    private Path csvFile;
+    private String csvType = "All";
+
+    /**
+     * Creates a report over the ledger stored beside a data file.
+     *
+     * @param dataFile the legacy data file name, as passed to {@link TransactionManager}
+     */
+    public BatchReport(String dataFile) {
+        this.dataFile = dataFile;
+        this.journal = new TransactionJournal(dataFile);
+    }
+
+    /**
+     * Restricts the report to an inclusive range of dates.
+     *
+     * @param fromEpochDay the first day to include, or {@code Integer.MIN_VALUE} for no lower bound
+     * @param toEpochDay   the last day to include, or {@code Integer.MAX_VALUE} for no upper bound
+     */
+    public void setDateRange(int fromEpochDay, int toEpochDay) {
+        this.fromEpochDay = fromEpochDay;
+        this.toEpochDay = toEpochDay;
+    }
+
+    /**
+     * Writes the transactions of the date range to a CSV file in the layout of {@link CsvExporter}.
+     *
+     * @param file the destination file, or null for no extract
+     * @param type the type of transactions to write ("All", "Income", or "Expense")
+     */
+    public void setCsvExtract(Path file, String type) {
+        this.csvFile = file;
+        this.csvType = type;
+    }
+
+    /**
+     * Scans the ledger and prints the report. If the scan fails the partial extract is deleted.
+     *
+     * @param out receives the report
+     * @throws IOException if the ledger cannot be read or the extract cannot be written
+     */
+    public void run(PrintStream out) throws IOException {
+        long start = System.nanoTime();
+        Scan scan = new Scan();
+        try {
+            if (csvFile != null) {
+                scan.openExtract(csvFile);
+            }
+            int snapshotRows = 0;
+            for (ColumnarLedgerFile snapshot : journal.openSnapshots()) {
+                scan.addSnapshot(snapshot);
+                snapshotRows += snapshot.getRowCount();
+            }
+            journal.readJournal(snapshotRows, transaction -> {
+                String description = transaction.getDescription() == null ? "" : transaction.getDescription();
+                scan.add(transaction.getEpochDay(), transaction.getAmountCents(),
+                        scan.categories.idOf(transaction.getCategory()), transaction.isIncome(),
+                        ByteBuffer.wrap(description.getBytes(StandardCharsets.UTF_8)));
+            });
+            scan.closeExtract();
+        } catch (IOException | RuntimeException e) {
+            scan.abortExtract();
+            throw e;
+        }
+        long elapsed = System.nanoTime() - start;
+        print(out, scan, elapsed);
+    }
+
+    /**
+     * Prints the totals of a finished scan.
+     */
+    private void print(PrintStream out, Scan scan, long elapsedNanos) {
+        out.printf("Ledger report for %s, %s to %s%n%n", dataFile,
+                fromEpochDay == Integer.MIN_VALUE ? "the beginning" : LocalDate.ofEpochDay(fromEpochDay),
+                toEpochDay == Integer.MAX_VALUE ? "the end" : LocalDate.ofEpochDay(toEpochDay));
+
+        if (scan.rowsInRange == 0) {
+            out.printf("No transactions in range.%n");
+        } else {
+            // Every month from the first to the last transaction in range
+            int first = MonthlyAggregateIndex.monthOrdinal(Math.max(fromEpochDay, scan.firstDay));
+            int last = MonthlyAggregateIndex.monthOrdinal(Math.min(toEpochDay, scan.lastDay));
+            out.printf("%-8s %15s %15s %15s %8s%n", "Month", "Income", "Expenses", "Net", "Count");
+            double totalIncome = 0;
+            double totalExpenses = 0;
+            for (int ordinal = first; ordinal <= last; ordinal++) {
+                int year = ordinal / 12;
+                int month = ordinal % 12 + 1;
+                double[] summary = scan.months.getSummary(month, year);
+                int[] counts = scan.months.getCounts(month, year);
+                out.printf("%-8s %,15.2f %,15.2f %,15.2f %8d%n", YearMonth.of(year, month),
+                        summary[0], summary[1], summary[0] - summary[1], counts[0] + counts[1]);
+                totalIncome += summary[0];
+                totalExpenses += summary[1];
+            }
+            out.printf("%-8s %,15.2f %,15.2f %,15.2f %8d%n%n", "Total",
+                    totalIncome, totalExpenses, totalIncome - totalExpenses, scan.rowsInRange);
+
+            out.printf("%-20s %15s %7s %8s%n", "Category", "Expenses", "Share", "Count");
+            for (int category = 0; category < scan.categories.size(); category++) {
+                if (category < scan.categoryCounts.length && scan.categoryCounts[category] > 0) {
+                    double expenses = scan.categoryExpenses[category] / 100.0;
+                    out.printf("%-20s %,15.2f %6.1f%% %8d%n", scan.categories.valueOf(category), expenses,
+                            totalExpenses == 0 ? 0 : 100 * expenses / totalExpenses, scan.categoryCounts[category]);
+                }
+            }
+            out.println();
+        }
+
+        double seconds = elapsedNanos / 1e9;
+        long bytes = journal.getDiskBytes();
+        out.printf("Scanned %,d rows (%.1f MB) in %.0f ms: %,.0f rows/s, %.1f MB/s%n",
+                scan.rowsScanned, bytes / 1e6, elapsedNanos / 1e6,
+                scan.rowsScanned / Math.max(seconds, 1e-9), bytes / 1e6 / Math.max(seconds, 1e-9));
+        if (csvFile != null) {
+            out.printf("Wrote %,d of %,d rows in range to %s%n", scan.rowsWritten, scan.rowsInRange, csvFile);
+        }
+        Runtime runtime = Runtime.getRuntime();
+        out.printf("Heap in use: %.1f MB of %.1f MB maximum%n",
+                (runtime.totalMemory() - runtime.freeMemory()) / 1e6, runtime.maxMemory() / 1e6);
+    }
+
+    /**
+     * The command line entry point; see the class description for the options. Exits with
+     * status 2 for invalid arguments and 1 if the report fails.
+     *
+     * @param args the command line options
+     */
+    public static void main(String[] args) {
+        String dataFile = "transactions.dat";
+        LocalDate from = null;
+        LocalDate to = null;
+        Path csv = null;
+        String type = "All";
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String option = args[i];
+                if (option.equals("--help") || option.equals("-h")) {
+                    System.out.printf(USAGE);
+                    return;
+                }
+                if (!OPTIONS.contains(option)) {
+                    throw new IllegalArgumentException("Unknown option: " + option);
+                }
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + option);
+                }
+                String value = args[++i];
+                switch (option) {
+                    case "--data":
+                        dataFile = value;
+                        break;
+                    case "--from":
+                        from = parseDate(value, false);
+                        break;
+                    case "--to":
+                        to = parseDate(value, true);
+                        break;
+                    case "--csv":
+                        csv = Paths.get(value);
+                        break;
+                    case "--type":
+                        if (!value.equals("All") && !value.equals("Income") && !value.equals("Expense")) {
+                            throw new IllegalArgumentException("Unknown transaction type: " + value);
+                        }
+                        type = value;
+                        break;
+                    default:
+                        break;
+                }
+            }
+            if (from != null && to != null && from.isAfter(to)) {
+                throw new IllegalArgumentException("The first day " + from + " is after the last day " + to);
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.printf(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        BatchReport report = new BatchReport(dataFile);
+        report.setDateRange(from == null ? Integer.MIN_VALUE : (int) from.toEpochDay(),
+                to == null ? Integer.MAX_VALUE : (int) to.toEpochDay());
+        report.setCsvExtract(csv, type);
+        try {
+            report.run(System.out);
+        } catch (IOException e) {
+            System.err.println("Report failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Parses YYYY-MM-DD, or YYYY-MM as the first or last day of the month.
+     */
+    private static LocalDate parseDate(String value, boolean endOfMonth) {
+        try {
+            if (value.length() == 7) {
+                YearMonth month = YearMonth.parse(value);
+                return endOfMonth ? month.atEndOfMonth() : month.atDay(1);
+            }
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date: " + value);
+        }
+    }
+
+    /**
+     * Running totals of one report and the extract being written.
+     */
+    private class Scan {
+        final MonthlyAggregateIndex months = new MonthlyAggregateIndex();
+        final StringDictionary categories = new StringDictionary();
+        long[] categoryExpenses = new long[16];
+        int[] categoryCounts = new int[16];
+        byte[][] quotedCategories = new byte[16][];
+        int firstDay = Integer.MAX_VALUE;
+        int lastDay = Integer.MIN_VALUE;
+        long rowsScanned;
+        long rowsInRange;
+        long rowsWritten;
+
+        private FileChannel channel;
+        private ByteBuffer buffer;
+        private final byte[] newline = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+        private final boolean extractAll = csvType.equals("All");
+        private final boolean extractIncome = csvType.equals("Income");
+
+        /**
+         * Adds every row of a mapped snapshot, reading its columns directly.
+         */
+        void addSnapshot(ColumnarLedgerFile snapshot) throws IOException {
+            String[] names = snapshot.getCategories();
+            int[] categoryMap = new int[names.length];
+            for (int i = 0; i < names.length; i++) {
+                categoryMap[i] = categories.idOf(names[i]);
+            }
+            for (int row = 0, rows = snapshot.getRowCount(); row < rows; row++) {
+                int day = snapshot.getEpochDay(row);
+                if (day < fromEpochDay || day > toEpochDay) {
+                    rowsScanned++;
+                    continue;
+                }
+                boolean income = snapshot.isIncome(row);
+                int category = categoryMap[snapshot.getCategoryId(row)];
+                long cents = snapshot.getAmountCents(row);
+                if (count(day, cents, category, income)) {
+                    writeRow(day, snapshot.getDescriptionBytes(snapshot.getDescriptionId(row)), cents, category, income);
+                }
+            }
+        }
+
+        /**
+         * Adds one transaction read from the journal.
+         */
+        void add(int day, long cents, int category, boolean income, ByteBuffer description) throws IOException {
+            if (day < fromEpochDay || day > toEpochDay) {
+                rowsScanned++;
+                return;
+            }
+            if (count(day, cents, category, income)) {
+                writeRow(day, description, cents, category, income);
+            }
+        }
+
+        /**
+         * Adds a transaction of the range to the totals and tells whether it goes to the extract.
+         */
+        private boolean count(int day, long cents, int category, boolean income) {
+            rowsScanned++;
+            rowsInRange++;
+            firstDay = Math.min(firstDay, day);
+            lastDay = Math.max(lastDay, day);
+            months.add(day, cents, income);
+            if (!income) {
+                if (category >= categoryCounts.length) {
+                    int capacity = Math.max(categoryCounts.length * 2, category + 1);
+                    categoryExpenses = Arrays.copyOf(categoryExpenses, capacity);
+                    categoryCounts = Arrays.copyOf(categoryCounts, capacity);
+                }
+                categoryExpenses[category] += cents;
+                categoryCounts[category]++;
+            }
+            return channel != null && (extractAll || income == extractIncome);
+        }
+
+        void openExtract(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.put((CsvExporter.HEADER + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Appends a row to the extract, quoting the raw UTF-8 description on the fly and writing
+         * its line breaks as spaces.
+         */
+        private void writeRow(int day, ByteBuffer description, long cents, int category, boolean income)
+                throws IOException {
+            if (category >= quotedCategories.length) {
+                quotedCategories = Arrays.copyOf(quotedCategories, Math.max(quotedCategories.length * 2, category + 1));
+            }
+            if (quotedCategories[category] == null) {
+                quotedCategories[category] = CsvExporter.quote(categories.valueOf(category));
+            }
+            byte[] type = income ? INCOME : EXPENSE;
+
+            // Worst case doubles every description byte; see CsvExporter for the fixed part
+            int needed = 12 + 1 + 2 + 2 * description.remaining() + 1 + 22 + 1
+                    + quotedCategories[category].length + 1 + type.length + newline.length;
+            if (buffer.remaining() < needed) {
+                drain();
+                if (buffer.remaining() < needed) {
+                    buffer = ByteBuffer.allocateDirect(needed);
+                }
+            }
+
+            buffer.put((byte) '"');
+            CsvExporter.putDate(buffer, day);
+            buffer.put((byte) '"').put((byte) ',');
+            buffer.put((byte) '"');
+            // Line breaks become spaces, a CRLF pair one space, as in CsvExporter.quote; neither
+            // byte occurs inside a multi-byte UTF-8 sequence
+            while (description.hasRemaining()) {
+                byte b = description.get();
+                if (b == '"') {
+                    buffer.put(b);
+                } else if (b == '\r') {
+                    if (description.hasRemaining() && description.get(description.position()) == '\n') {
+                        description.get();
+                    }
+                    b = ' ';
+                } else if (b == '\n') {
+                    b = ' ';
+                }
+                buffer.put(b);
+            }
+            buffer.put((byte) '"').put((byte) ',');
+            CsvExporter.putCents(buffer, cents);
+            buffer.put((byte) ',');
+            buffer.put(quotedCategories[category]).put((byte) ',');
+            buffer.put(type);
+            buffer.put(newline);
+            rowsWritten++;
+        }
+
+        void closeExtract() throws IOException {
+            if (channel != null) {
+                drain();
+                channel.close();
+            }
+        }
+
+        void abortExtract() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                    Files.deleteIfExists(csvFile);
+                } catch (IOException e) {
+                    // Already failing; the original error is reported
+                }
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+import java.util.*;
+
+/**
+ * Compressed bitmap indexes over the rows of a {@link TransactionStore}: one {@link RowBitmap}
+ * per category, per month and for income rows. A filter is resolved by OR-ing the bitmaps of
+ * the selected categories and of the months in its date range into uncompressed word arrays and
+ * AND-ing those with the income bitmap or its complement, 64 rows per operation, instead of
+ * testing every row. Only the two months at the ends of a date range are checked row by row.
+ *
+ * <p>Rows must be added in row id order. Like the other aggregates the index is not thread-safe
+ * on its own; {@link TransactionManager} guards it.</p>
+ */
+public class BitmapIndex {
+    private final List<RowBitmap> byCategory = new ArrayList<>();
+    private final NavigableMap<Integer, RowBitmap> byMonth = new TreeMap<>();
+    private RowBitmap income = new RowBitmap();
+    private int rows;
+
+    /**
+     * Returns the number of indexed rows.
+     *
+     * @return the number of rows added to the index
+     */
+    public int size() {
+        return rows;
+    }
+
+    /**
+     * Adds newly appended store rows.
+     *
+     * @param store   the store holding the rows
+     * @param fromRow the first new row; must equal {@link #size()}
+     * @param toRow   the row after the last new row
+     */
+    public void addRows(TransactionStore store, int fromRow, int toRow) {
+        int lastDay = Integer.MIN_VALUE;
+        RowBitmap month = null;
+        for (int row = fromRow; row < toRow; row++) {
+            int day = store.getEpochDay(row);
+            if (day != lastDay) {
+                month = byMonth.computeIfAbsent(MonthlyAggregateIndex.monthOrdinal(day), key -> new RowBitmap());
+                lastDay = day;
+            }
+            month.add(row);
+            int category = store.getCategoryId(row);
+            while (byCategory.size() <= category) {
+                byCategory.add(new RowBitmap());
+            }
+            byCategory.get(category).add(row);
+            if (store.isIncome(row)) {
+                income.add(row);
+            }
+        }
+        rows = Math.max(rows, toRow);
+    }
+
+    /**
+     * Discards the index and rebuilds it from the first {@code rows} rows of a store.
+     *
+     * @param store the store
+     * @param rows  the number of rows to index
+     */
+    public void rebuild(TransactionStore store, int rows) {
+        byCategory.clear();
+        byMonth.clear();
+        income = new RowBitmap();
+        this.rows = 0;
+        addRows(store, 0, rows);
+    }
+
+    /**
+     * Resolves the type, category and date criteria of a filter over the indexed rows.
+     *
+     * @param filter the filter; its search words are not evaluated here
+     * @param store  the store, for category names and the days of rows in boundary months
+     * @param rows   the number of leading rows to consider, at most {@link #size()}
+     * @return the matching rows as a word array of {@code ceil(rows / 64)} words, or null if the
+     *         filter does not restrict these criteria
+     */
+    public long[] select(TransactionFilter filter, TransactionStore store, int rows) {
+        int wordCount = (rows + 63) >>> 6;
+        long[] result = null;
+
+        if (!filter.getCategories().isEmpty()) {
+            result = new long[wordCount];
+            for (String category : filter.getCategories()) {
+                int id = store.getCategories().find(category);
+                if (id >= 0 && id < byCategory.size()) {
+                    byCategory.get(id).orInto(result);
+                }
+            }
+        }
+
+        if (filter.getFrom() != null || filter.getTo() != null) {
+            long[] dates = new long[wordCount];
+            long fromDay = filter.getFrom() == null ? Long.MIN_VALUE : filter.getFrom().toEpochDay();
+            long toDay = filter.getTo() == null ? Long.MAX_VALUE : filter.getTo().toEpochDay();
+            int firstMonth = filter.getFrom() == null ? Integer.MIN_VALUE
+                    : MonthlyAggregateIndex.monthOrdinal((int) fromDay);
+            int lastMonth = filter.getTo() == null ? Integer.MAX_VALUE
+                    : MonthlyAggregateIndex.monthOrdinal((int) toDay);
+            if (firstMonth <= lastMonth) {
+                for (Map.Entry<Integer, RowBitmap> month : byMonth.subMap(firstMonth, true, lastMonth, true).entrySet()) {
+                    if (month.getKey() == firstMonth || month.getKey() == lastMonth) {
+                        // The range may start or end inside this month
+                        month.getValue().forEach(row -> {
+                            int day = store.getEpochDay(row);
+                            if (row < rows && day >= fromDay && day <= toDay) {
+                                dates[row >>> 6] |= 1L << row;
+                            }
+                        });
+                    } else {
+                        month.getValue().orInto(dates);
+                    }
+                }
+            }
+            result = and(result, dates);
+        }
+
+        if (!filter.getType().equals("All")) {
+            long[] incomeWords = new long[wordCount];
+            income.orInto(incomeWords);
+            if (filter.getType().equals("Expense")) {
+                for (int w = 0; w < wordCount; w++) {
+                    incomeWords[w] = ~incomeWords[w];
+                }
+            }
+            result = and(result, incomeWords);
+        }
+
+        if (result != null && (rows & 63) != 0) {
+            // Clear the bits past the last row, set by complementing the income words
+            result[wordCount - 1] &= (1L << rows) - 1;
+        }
+        return result;
+    }
+
+    /**
+     * Estimates the heap used by the bitmaps.
+     *
+     * @return an approximate size in bytes
+     */
+    public long estimateMemoryBytes() {
+        long bytes = income.estimateMemoryBytes();
+        for (RowBitmap bitmap : byCategory) {
+            bytes += bitmap.estimateMemoryBytes();
+        }
+        for (RowBitmap bitmap : byMonth.values()) {
+            bytes += 48 + bitmap.estimateMemoryBytes();
+        }
+        return bytes;
+    }
+
+    private static long[] and(long[] result, long[] words) {
+        if (result == null) {
+            return words;
+        }
+        for (int w = 0; w < result.length; w++) {
+            result[w] &= words[w];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,51 @@
+import java.time.YearMonth;
+
+/**
+ * Reports that an expense took a category's spending in a month past an alert threshold of its
+ * budget. Alerts are immutable.
+ */
+public final class BudgetAlert {
+    private final String category;
+    private final YearMonth month;
+    private final int thresholdPercent;
+    private final long spentCents;
+    private final long limitCents;
+
+    /**
+     * Creates an alert.
+     *
+     * @param category         the category whose budget was reached
+     * @param month            the month of the expense
+     * @param thresholdPercent the percentage of the limit that was crossed
+     * @param spentCents       the month's spending in the category including the expense
+     * @param limitCents       the category's monthly limit
+     */
+    public BudgetAlert(String category, YearMonth month, int thresholdPercent, long spentCents, long limitCents) {
+        this.category = category;
+        this.month = month;
+        this.thresholdPercent = thresholdPercent;
+        this.spentCents = spentCents;
+        this.limitCents = limitCents;
+    }
+
+    public String getCategory() { return category; }
+    public YearMonth getMonth() { return month; }
+    public int getThresholdPercent() { return thresholdPercent; }
+    public long getSpentCents() { return spentCents; }
+    public long getLimitCents() { return limitCents; }
+
+    /**
+     * Tells whether the limit itself has been reached.
+     *
+     * @return true if the spending is at or over the limit
+     */
+    public boolean isOverBudget() {
+        return spentCents >= limitCents;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s reached %d%% of its %s budget: $%,.2f of $%,.2f",
+                category, thresholdPercent, month, spentCents / 100.0, limitCents / 100.0);
+    }
+}
@@ -0,0 +1,18 @@
+import java.util.List;
+
+/**
+ * Receives budget alerts from a {@link TransactionManager}.
+ * Listeners are called on the thread that added the transactions, after its locks are released,
+ * so user interface code must hand the alerts over to its own thread.
+ */
+@FunctionalInterface
+public interface BudgetListener {
+    /**
+     * Called when added expenses crossed alert thresholds of their category budgets. Each
+     * threshold is reported by the expense that crossed it, so spending that only grows raises it
+     * once per category and month.
+     *
+     * @param alerts the alerts raised by one add, in row order
+     */
+    void budgetThresholdsCrossed(List<BudgetAlert> alerts);
+}
@@ -3,24 +3,229 @@ import java.awt.*;
 import java.awt.event.*;
 import java.util.*;
 import java.io.*;
+import java.time.LocalDate;
+import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableModel;
 
 /**
  * A GUI application for tracking student budgets, allowing users to add transactions,
  * view transaction history, analyze monthly summaries, and view category breakdowns.
  */
 public class BudgetTrackerGUI {
+    private static final String ALL_CATEGORIES = "All Categories";
+
+    /** Categories offered when adding a transaction and listed in the budgets tab. */
+    private static final String[] CATEGORIES = {
+            "Food", "Transport", "Entertainment", "Rent", "Utilities", "Books", "Other"
+    };
+
+    /** Most budget alerts listed in one message; the rest are counted. */
+    private static final int MAX_SHOWN_ALERTS = 5;
+
+    /** Marks an unparsable date in a filter field. */
+    private static final LocalDate INVALID_DATE = LocalDate.MIN;
+
+    /** Slice colors of the category pie, in order of decreasing amount. */
+    private static final Color[] CHART_COLORS = {
+            new Color(220, 20, 60), new Color(30, 144, 255), new Color(255, 165, 0), new Color(50, 205, 50),
+            new Color(148, 0, 211), new Color(0, 206, 209), new Color(255, 105, 180), new Color(139, 69, 19),
+            new Color(128, 128, 0), new Color(70, 130, 180), new Color(240, 230, 140), new Color(128, 128, 128)
+    };
+
     private JFrame mainFrame;
     private JTabbedPane tabbedPane;
     private TransactionManager transactionManager;
-    private DefaultTableModel transactionsTableModel;
+    private TransactionTableModel transactionsTableModel;
+    private LedgerHttpServer httpServer;
+
+    // Startup state: controls that need the full ledger stay disabled until it is loaded
+    private JLabel statusLabel;
+    private JButton addButton;
+    private JMenuItem importItem;
+    private JTextField searchField;
+    private final java.util.List<Runnable> summaryViews = new ArrayList<>();
+    private final java.util.List<LedgerChangeListener> changeViews = new ArrayList<>();
+    private int loadedSummaryRows;
+    private int loadingTotalRows;
+    private long firstPaintMillis = -1;
+    private long loadedMillis = -1;
+    private String startupTimes;
+    private String httpUrl;
+    private boolean savingBudget;
 
     /**
      * Constructs a new BudgetTrackerGUI and initializes the GUI components.
+     * The frame is shown at once; saved transactions are loaded in the background and the
+     * tabs fill in as they arrive.
      */
     public BudgetTrackerGUI() {
-        transactionManager = new TransactionManager();
+        transactionManager = new TransactionManager(DurabilityMode.GROUP_COMMIT, this::showPersistenceError,
+                (summaryRows, tableRows, totalRows) -> SwingUtilities.invokeLater(
+                        () -> showLoadProgress(summaryRows, totalRows)));
         prepareGUI();
+        transactionManager.addChangeListener(new CoalescingChangeListener(this::applyChange, SwingUtilities::invokeLater));
+        transactionManager.addBudgetListener(alerts -> SwingUtilities.invokeLater(() -> showBudgetAlerts(alerts)));
+        transactionManager.whenLoaded().thenRun(() -> SwingUtilities.invokeLater(this::loadingFinished));
+        startHttpServer();
+    }
+
+    /**
+     * Starts the read-only HTTP query server if the {@code budgettracker.http.port} system
+     * property names a port, e.g. {@code -Dbudgettracker.http.port=8080}.
+     */
+    private void startHttpServer() {
+        Integer port = Integer.getInteger("budgettracker.http.port");
+        if (port == null) {
+            return;
+        }
+        try {
+            httpServer = new LedgerHttpServer(transactionManager, port);
+            httpServer.start();
+            httpUrl = "http://localhost:" + httpServer.getPort() + "/api/";
+            statusLabel.setText("Serving the ledger at " + httpUrl);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(mainFrame, "Cannot start the HTTP server on port " + port + ": "
+                    + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Shows newly loaded transactions and refreshes the summaries while the ledger is loading.
+     *
+     * @param summaryRows the number of transactions included in the summaries so far
+     * @param totalRows the number of transactions being loaded
+     */
+    private void showLoadProgress(int summaryRows, int totalRows) {
+        if (transactionManager.isLoaded()) {
+            return; // Superseded by loadingFinished()
+        }
+        loadedSummaryRows = summaryRows;
+        loadingTotalRows = totalRows;
+        refreshTable(transactionsTableModel::transactionsAdded);
+        int percent = totalRows == 0 ? 100 : (int) (100L * transactionManager.getStore().size() / totalRows);
+        statusLabel.setText(String.format("Loading transactions... %d%% (%,d of %,d)",
+                percent, transactionManager.getStore().size(), totalRows));
+        summaryViews.forEach(Runnable::run);
+    }
+
+    /**
+     * Applies added transactions to the views on the event dispatch thread. Changes arriving
+     * in a burst are merged first; the table appends the new rows and each summary view updates
+     * only if the change touches what it shows.
+     *
+     * @param change the added rows and the months and categories they affect
+     */
+    private void applyChange(LedgerChange change) {
+        refreshTable(transactionsTableModel::transactionsAdded);
+        for (LedgerChangeListener view : changeViews) {
+            view.ledgerChanged(change);
+        }
+    }
+
+    /**
+     * Enables the controls that need the whole ledger and reports the startup times, measured
+     * from the start of the JVM. If the ledger failed to load, the controls that add
+     * transactions stay disabled.
+     */
+    private void loadingFinished() {
+        loadedMillis = java.lang.management.ManagementFactory.getRuntimeMXBean().getUptime();
+        refreshTable(transactionsTableModel::transactionsAdded);
+        summaryViews.forEach(Runnable::run);
+        addButton.setEnabled(canAddTransactions());
+        importItem.setEnabled(canAddTransactions());
+        searchField.setEnabled(true);
+        reportStartupTimes();
+    }
+
+    /**
+     * Tells whether transactions may be added: only once the ledger has loaded successfully.
+     *
+     * @return true if the add and import controls should be enabled
+     */
+    private boolean canAddTransactions() {
+        return transactionManager.isLoaded() && !transactionManager.isReadOnly();
+    }
+
+    /**
+     * Tells whether budget limits may be edited: once the ledger and the saved budgets have
+     * loaded successfully and no other limit is being saved.
+     *
+     * @return true if the limit cells should be editable
+     */
+    private boolean canEditBudgets() {
+        return canAddTransactions() && !transactionManager.areBudgetsReadOnly() && !savingBudget;
+    }
+
+    /**
+     * Shows the startup times in the status bar and the diagnostics dialog once both the first
+     * paint and the end of loading have happened, whichever comes last. A ledger that failed to
+     * load is reported in the status bar instead.
+     */
+    private void reportStartupTimes() {
+        if (firstPaintMillis < 0 || loadedMillis < 0) {
+            return;
+        }
+        startupTimes = String.format("window painted after %d ms, ledger loaded after %d ms",
+                firstPaintMillis, loadedMillis);
+        if (transactionManager.isReadOnly()) {
+            statusLabel.setText("Read-only: the saved transactions could not be loaded, so none can be added");
+        } else {
+            statusLabel.setText(String.format("Loaded %,d transactions; %s%s",
+                    transactionManager.getStore().size(), startupTimes,
+                    httpUrl == null ? "" : "; serving the ledger at " + httpUrl));
+        }
+    }
+
+    /**
+     * Warns that added expenses reached budget thresholds: the latest alert goes to the status
+     * bar and all of them, up to {@link #MAX_SHOWN_ALERTS}, to a dialog.
+     *
+     * @param alerts the alerts raised by one add
+     */
+    private void showBudgetAlerts(java.util.List<BudgetAlert> alerts) {
+        StringBuilder message = new StringBuilder();
+        boolean overBudget = false;
+        for (int i = 0; i < alerts.size(); i++) {
+            overBudget |= alerts.get(i).isOverBudget();
+            if (i < MAX_SHOWN_ALERTS) {
+                message.append(alerts.get(i)).append('\n');
+            }
+        }
+        if (alerts.size() > MAX_SHOWN_ALERTS) {
+            message.append(String.format("... and %d more", alerts.size() - MAX_SHOWN_ALERTS));
+        }
+        statusLabel.setText("Budget alert: " + alerts.get(alerts.size() - 1));
+        JOptionPane.showMessageDialog(mainFrame, message.toString().trim(),
+                overBudget ? "Over Budget" : "Budget Warning", JOptionPane.WARNING_MESSAGE);
+    }
+
+    /**
+     * Shows a persistence error on the event dispatch thread. Save errors arrive from the
+     * background persistence thread.
+     *
+     * @param message a short description of the failed operation
+     * @param error the underlying I/O error
+     */
+    private void showPersistenceError(String message, IOException error) {
+        SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(mainFrame,
+                message + ": " + error.getMessage(), "Error", JOptionPane.ERROR_MESSAGE));
+    }
+
+    /**
+     * Writes pending transactions and exits the application.
+     */
+    private void exit() {
+        if (httpServer != null) {
+            httpServer.close();
+        }
+        try {
+            transactionManager.close();
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(mainFrame, "Error saving transactions: " + e.getMessage(),
+                    "Error", JOptionPane.ERROR_MESSAGE);
+        }
+        System.exit(0);
     }
 
     /**
@@ -47,24 +252,43 @@ public class BudgetTrackerGUI {
     private void prepareGUI() {
         mainFrame = new JFrame("Student Budget Tracker");
         mainFrame.setSize(900, 650);
-        mainFrame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        mainFrame.setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
+        mainFrame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                exit();
+            }
+        });
         mainFrame.setLayout(new BorderLayout());
 
         // Create tabbed interface
         tabbedPane = new JTabbedPane();
 
-        // Initialize table model
-        String[] columnNames = {"Date", "Description", "Amount", "Category", "Type"};
-        transactionsTableModel = new DefaultTableModel(columnNames, 0);
-
         // Add tabs
         tabbedPane.addTab("Add Transaction", createAddTransactionPanel());
         tabbedPane.addTab("View Transactions", createViewTransactionsPanel());
         tabbedPane.addTab("Monthly Summary", createMonthlySummaryPanel());
         tabbedPane.addTab("Category Breakdown", createCategoryBreakdownPanel());
+        tabbedPane.addTab("Trends", createTrendsPanel());
+        tabbedPane.addTab("Budgets", createBudgetsPanel());
+        tabbedPane.addTab("Spending Velocity", createVelocityPanel());
 
         mainFrame.add(tabbedPane, BorderLayout.CENTER);
 
+        // Status bar; its first paint marks the moment the user sees the window
+        statusLabel = new JLabel("Loading transactions...") {
+            @Override
+            protected void paintComponent(Graphics g) {
+                if (firstPaintMillis < 0) {
+                    firstPaintMillis = java.lang.management.ManagementFactory.getRuntimeMXBean().getUptime();
+                    SwingUtilities.invokeLater(BudgetTrackerGUI.this::reportStartupTimes);
+                }
+                super.paintComponent(g);
+            }
+        };
+        statusLabel.setBorder(BorderFactory.createEmptyBorder(2, 6, 2, 6));
+        mainFrame.add(statusLabel, BorderLayout.SOUTH);
+
         // Add menu bar
         mainFrame.setJMenuBar(createMenuBar());
 
@@ -82,8 +306,13 @@ public class BudgetTrackerGUI {
 
         // File menu
         JMenu fileMenu = new JMenu("File");
+        importItem = new JMenuItem("Import CSV...");
+        importItem.setEnabled(canAddTransactions());
+        importItem.addActionListener(e -> importFromCSV());
+        fileMenu.add(importItem);
+        fileMenu.addSeparator();
         JMenuItem exitItem = new JMenuItem("Exit");
-        exitItem.addActionListener(e -> System.exit(0));
+        exitItem.addActionListener(e -> exit());
         fileMenu.add(exitItem);
 
         // Help menu
@@ -93,12 +322,107 @@ public class BudgetTrackerGUI {
                 "Student Budget Tracker\nVersion 1.0\nAuthor: Abderrahim Benlalam", "About", JOptionPane.INFORMATION_MESSAGE));
         helpMenu.add(aboutItem);
 
+        // Diagnostics stay hidden until Ctrl+Shift+D is pressed or the property is set
+        JMenuItem diagnosticsItem = new JMenuItem("Diagnostics...");
+        diagnosticsItem.setVisible(Boolean.getBoolean("budgettracker.diagnostics"));
+        diagnosticsItem.addActionListener(e -> showDiagnostics());
+        helpMenu.add(diagnosticsItem);
+        KeyStroke diagnosticsKey = KeyStroke.getKeyStroke(KeyEvent.VK_D,
+                InputEvent.CTRL_DOWN_MASK | InputEvent.SHIFT_DOWN_MASK);
+        mainFrame.getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(diagnosticsKey, "diagnostics");
+        mainFrame.getRootPane().getActionMap().put("diagnostics", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                diagnosticsItem.setVisible(true);
+                showDiagnostics();
+            }
+        });
+
         menuBar.add(fileMenu);
         menuBar.add(helpMenu);
 
         return menuBar;
     }
 
+    /**
+     * Shows latency percentiles of saves, loads, queries and table refreshes together with the
+     * ledger size, memory per row and disk usage. The figures refresh every second while the
+     * dialog is open.
+     */
+    private void showDiagnostics() {
+        JDialog dialog = new JDialog(mainFrame, "Diagnostics", false);
+        DefaultTableModel latencies = new DefaultTableModel(
+                new Object[]{"Operation", "Count", "p50", "p99", "Max", "Mean"}, 0);
+        JTable latencyTable = new JTable(latencies);
+        latencyTable.setDefaultEditor(Object.class, null);
+        JTextArea ledgerArea = new JTextArea(8, 50);
+        ledgerArea.setEditable(false);
+        ledgerArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+
+        Runnable update = () -> {
+            latencies.setRowCount(0);
+            transactionManager.getMetrics().getTimers().forEach((name, timer) -> latencies.addRow(new Object[]{
+                    name, timer.getCount(), formatNanos(timer.getPercentileNanos(50)),
+                    formatNanos(timer.getPercentileNanos(99)), formatNanos(timer.getMaxNanos()),
+                    formatNanos(timer.getMeanNanos())}));
+
+            TransactionStore store = transactionManager.getStore();
+            int rows = Math.max(1, store.size());
+            Runtime runtime = Runtime.getRuntime();
+            long heapUsed = runtime.totalMemory() - runtime.freeMemory();
+            long storeBytes = store.estimateMemoryBytes();
+            long diskBytes = transactionManager.getDiskBytes();
+            StringBuilder text = new StringBuilder(String.format(
+                    "Transactions:     %,d%n" +
+                            "Store memory:     %,.1f MB (%,d bytes per row)%n" +
+                            "Heap used:        %,.1f MB of %,.1f MB max (%,d bytes per row)%n" +
+                            "Files on disk:    %,.1f MB (%,d bytes per row)%n",
+                    store.size(), storeBytes / 1e6, storeBytes / rows,
+                    heapUsed / 1e6, runtime.maxMemory() / 1e6, heapUsed / rows,
+                    diskBytes / 1e6, diskBytes / rows));
+            transactionManager.getMetrics().getCounters().forEach((name, value) ->
+                    text.append(String.format("%-18s%,d%n", name + ":", value)));
+            if (startupTimes != null) {
+                text.append(String.format("Startup:          %s%n", startupTimes));
+            }
+            if (httpUrl != null) {
+                text.append(String.format("HTTP server:      %s%n", httpUrl));
+            }
+            ledgerArea.setText(text.toString());
+        };
+        update.run();
+        javax.swing.Timer timer = new javax.swing.Timer(1000, e -> update.run());
+        timer.start();
+        dialog.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                timer.stop();
+            }
+        });
+        dialog.setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+
+        JPanel content = new JPanel(new BorderLayout(5, 5));
+        content.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        JScrollPane latencyScroll = new JScrollPane(latencyTable);
+        latencyScroll.setPreferredSize(new Dimension(560, 180));
+        content.add(latencyScroll, BorderLayout.CENTER);
+        content.add(new JScrollPane(ledgerArea), BorderLayout.SOUTH);
+        dialog.add(content);
+        dialog.pack();
+        dialog.setLocationRelativeTo(mainFrame);
+        dialog.setVisible(true);
+    }
+
+    private static String formatNanos(long nanos) {
+        if (nanos < 10_000) {
+            return nanos + " ns";
+        }
+        if (nanos < 10_000_000) {
+            return String.format("%,.1f us", nanos / 1e3);
+        }
+        return String.format("%,.1f ms", nanos / 1e6);
+    }
+
     /**
      * Creates and returns the panel for adding new transactions.
      * Contains form fields for transaction details and an add button.
@@ -146,9 +470,7 @@ public class BudgetTrackerGUI {
         // Category
         gbc.gridx = 0; gbc.gridy = 3;
         panel.add(new JLabel("Category:"), gbc);
-        JComboBox<String> categoryCombo = new JComboBox<>(new String[]{
-                "Food", "Transport", "Entertainment", "Rent", "Utilities", "Books", "Other"
-        });
+        JComboBox<String> categoryCombo = new JComboBox<>(CATEGORIES);
         gbc.gridx = 1; gbc.gridy = 3;
         panel.add(categoryCombo, gbc);
 
@@ -160,7 +482,8 @@ public class BudgetTrackerGUI {
         panel.add(descField, gbc);
 
         // Add Button
-        JButton addButton = new JButton("Add Transaction");
+        addButton = new JButton("Add Transaction");
+        addButton.setEnabled(canAddTransactions());
         gbc.gridx = 0; gbc.gridy = 5;
         gbc.gridwidth = 2;
         gbc.anchor = GridBagConstraints.CENTER;
@@ -187,9 +510,6 @@ public class BudgetTrackerGUI {
 
                 JOptionPane.showMessageDialog(mainFrame, "Transaction added successfully!",
                         "Success", JOptionPane.INFORMATION_MESSAGE);
-
-                // Refresh other tabs
-                refreshTransactionsTable();
             } catch (IllegalArgumentException ex) {
                 JOptionPane.showMessageDialog(mainFrame, "Error: " + ex.getMessage(),
                         "Input Error", JOptionPane.ERROR_MESSAGE);
@@ -209,26 +529,71 @@ public class BudgetTrackerGUI {
         JPanel panel = new JPanel(new BorderLayout());
         panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
-        // Table setup
-        transactionsTableModel = new DefaultTableModel(
-                new String[]{"Date", "Description", "Amount", "Category", "Type"}, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Make table non-editable
-            }
-        };
+        // Table setup: cells are read lazily from the transaction store
+        transactionsTableModel = new TransactionTableModel(transactionManager);
 
         JTable transactionsTable = new JTable(transactionsTableModel);
         transactionsTable.setAutoCreateRowSorter(true);
+        transactionsTable.setDefaultRenderer(Double.class, new DefaultTableCellRenderer() {
+            @Override
+            protected void setValue(Object value) {
+                setHorizontalAlignment(SwingConstants.RIGHT);
+                setText(value == null ? "" : String.format("%.2f", (Double) value));
+            }
+        });
         JScrollPane scrollPane = new JScrollPane(transactionsTable);
 
-        // Filter panel
+        // Filter panel: search, type and category apply at once, dates on Apply or Enter
         JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
-        filterPanel.add(new JLabel("Filter:"));
+        filterPanel.add(new JLabel("Search:"));
+        searchField = new JTextField(14);
+        searchField.setEnabled(transactionManager.isLoaded());
+        searchField.setToolTipText("Words the description contains, e.g. \"burger ki\"");
+        filterPanel.add(searchField);
 
+        filterPanel.add(new JLabel("Type:"));
         JComboBox<String> filterTypeCombo = new JComboBox<>(new String[]{"All", "Income", "Expense"});
         filterPanel.add(filterTypeCombo);
 
+        // Categories are listed as they appear in the ledger, so refresh them on every opening
+        JComboBox<String> filterCategoryCombo = new JComboBox<>(new String[]{ALL_CATEGORIES});
+        filterCategoryCombo.addPopupMenuListener(new javax.swing.event.PopupMenuListener() {
+            @Override
+            public void popupMenuWillBecomeVisible(javax.swing.event.PopupMenuEvent e) {
+                StringDictionary categories = transactionManager.getStore().getCategories();
+                if (filterCategoryCombo.getItemCount() == categories.size() + 1) {
+                    return;
+                }
+                Object selected = filterCategoryCombo.getSelectedItem();
+                java.util.List<String> names = new ArrayList<>();
+                for (int id = 0; id < categories.size(); id++) {
+                    names.add(categories.valueOf(id));
+                }
+                Collections.sort(names);
+                names.add(0, ALL_CATEGORIES);
+                filterCategoryCombo.setModel(new DefaultComboBoxModel<>(names.toArray(new String[0])));
+                filterCategoryCombo.setSelectedItem(selected);
+            }
+
+            @Override
+            public void popupMenuWillBecomeInvisible(javax.swing.event.PopupMenuEvent e) {
+            }
+
+            @Override
+            public void popupMenuCanceled(javax.swing.event.PopupMenuEvent e) {
+            }
+        });
+        filterPanel.add(filterCategoryCombo);
+
+        filterPanel.add(new JLabel("From:"));
+        JTextField fromField = new JTextField(8);
+        fromField.setToolTipText("yyyy-MM-dd, empty for no limit");
+        filterPanel.add(fromField);
+        filterPanel.add(new JLabel("To:"));
+        JTextField toField = new JTextField(8);
+        toField.setToolTipText("yyyy-MM-dd, empty for no limit");
+        filterPanel.add(toField);
+
         JButton filterButton = new JButton("Apply");
         filterPanel.add(filterButton);
 
@@ -248,19 +613,49 @@ public class BudgetTrackerGUI {
         panel.add(buttonPanel, BorderLayout.SOUTH);
 
         // Initial load
-        refreshTransactionsTable();
+        refreshTransactionsTable(TransactionFilter.ALL);
+
+        // Filter actions; an unparsable date is marked and leaves the table as it is
+        Runnable applyFilter = () -> {
+            LocalDate from = parseFilterDate(fromField);
+            LocalDate to = parseFilterDate(toField);
+            if (from == INVALID_DATE || to == INVALID_DATE) {
+                return;
+            }
+            String category = (String) filterCategoryCombo.getSelectedItem();
+            refreshTransactionsTable(new TransactionFilter((String) filterTypeCombo.getSelectedItem(),
+                    ALL_CATEGORIES.equals(category) ? null : Collections.singleton(category), from, to,
+                    searchField.getText()));
+        };
+        searchField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
+            @Override
+            public void insertUpdate(javax.swing.event.DocumentEvent e) {
+                applyFilter.run();
+            }
 
-        // Button actions
-        refreshButton.addActionListener(e -> refreshTransactionsTable());
+            @Override
+            public void removeUpdate(javax.swing.event.DocumentEvent e) {
+                applyFilter.run();
+            }
 
-        filterButton.addActionListener(e -> {
-            String filterType = (String) filterTypeCombo.getSelectedItem();
-            refreshTransactionsTable(filterType);
+            @Override
+            public void changedUpdate(javax.swing.event.DocumentEvent e) {
+            }
         });
+        filterTypeCombo.addActionListener(e -> applyFilter.run());
+        filterCategoryCombo.addActionListener(e -> applyFilter.run());
+        fromField.addActionListener(e -> applyFilter.run());
+        toField.addActionListener(e -> applyFilter.run());
+        filterButton.addActionListener(e -> applyFilter.run());
+        refreshButton.addActionListener(e -> applyFilter.run());
 
         clearFilterButton.addActionListener(e -> {
+            searchField.setText("");
             filterTypeCombo.setSelectedIndex(0);
-            refreshTransactionsTable();
+            filterCategoryCombo.setSelectedIndex(0);
+            fromField.setText("");
+            toField.setText("");
+            applyFilter.run();
         });
 
         exportButton.addActionListener(e -> exportToCSV());
@@ -269,39 +664,55 @@ public class BudgetTrackerGUI {
     }
 
     /**
-     * Refreshes the transactions table with all transactions from the TransactionManager.
-     * This is a convenience method that calls refreshTransactionsTable("All").
+     * Refreshes the transactions table with the transactions matching a filter.
+     * Only the visible row ids are recomputed; cell values are read on demand.
+     *
+     * @param filter the transactions to display
      */
-    private void refreshTransactionsTable() {
-        refreshTransactionsTable("All");
+    private void refreshTransactionsTable(TransactionFilter filter) {
+        refreshTable(() -> transactionsTableModel.setFilter(filter));
     }
 
     /**
-     * Refreshes the transactions table with transactions filtered by the specified type.
+     * Reads an optional date from a filter field, marking the field if it cannot be parsed.
      *
-     * @param filterType the type of transactions to display ("All", "Income", or "Expense")
+     * @param field the field holding a yyyy-MM-dd date or nothing
+     * @return the date, null if the field is empty, or {@link #INVALID_DATE}
      */
-    private void refreshTransactionsTable(String filterType) {
-        transactionsTableModel.setRowCount(0);
-
-        for (Transaction t : transactionManager.getTransactions()) {
-            if (filterType.equals("All") ||
-                    (filterType.equals("Income") && t.isIncome()) ||
-                    (filterType.equals("Expense") && !t.isIncome())) {
+    private static LocalDate parseFilterDate(JTextField field) {
+        String text = field.getText().trim();
+        try {
+            LocalDate date = text.isEmpty() ? null : LocalDate.parse(text);
+            field.setForeground(UIManager.getColor("TextField.foreground"));
+            return date;
+        } catch (java.time.format.DateTimeParseException e) {
+            field.setForeground(Color.RED);
+            return INVALID_DATE;
+        }
+    }
 
-                transactionsTableModel.addRow(new Object[]{
-                        t.getDate(),
-                        t.getDescription(),
-                        String.format("%.2f", t.getAmount()),
-                        t.getCategory(),
-                        t.isIncome() ? "Income" : "Expense"
-                });
-            }
+    /**
+     * Runs a table update, recording its latency and a flight recorder event.
+     *
+     * @param refresh the update
+     */
+    private void refreshTable(Runnable refresh) {
+        LedgerEvents.TableRefreshEvent event = new LedgerEvents.TableRefreshEvent();
+        event.begin();
+        long start = System.nanoTime();
+        refresh.run();
+        transactionManager.getMetrics().timer("table.refresh").record(System.nanoTime() - start);
+        if (event.shouldCommit()) {
+            event.rows = transactionsTableModel.getRowCount();
+            event.filter = transactionsTableModel.getTypeFilter();
+            event.commit();
         }
     }
 
     /**
-     * Exports the current transactions to a CSV file selected by the user.
+     * Exports transactions to a CSV file selected by the user.
+     * The file chooser offers optional date range and type filters; the export itself runs on a
+     * background thread while a progress dialog with a Cancel button is shown.
      * Displays success or error messages in dialog boxes.
      */
     private void exportToCSV() {
@@ -309,29 +720,152 @@ public class BudgetTrackerGUI {
         fileChooser.setDialogTitle("Export Transactions");
         fileChooser.setSelectedFile(new File("transactions.csv"));
 
-        if (fileChooser.showSaveDialog(mainFrame) == JFileChooser.APPROVE_OPTION) {
-            File file = fileChooser.getSelectedFile();
-            try (PrintWriter writer = new PrintWriter(file)) {
-                // Write header
-                writer.println("Date,Description,Amount,Category,Type");
-
-                // Write data
-                for (Transaction t : transactionManager.getTransactions()) {
-                    writer.printf("\"%s\",\"%s\",%.2f,\"%s\",\"%s\"%n",
-                            t.getDate(),
-                            t.getDescription(),
-                            t.getAmount(),
-                            t.getCategory(),
-                            t.isIncome() ? "Income" : "Expense");
-                }
+        // Optional filters shown next to the file list
+        JPanel filterPanel = new JPanel(new GridLayout(0, 1, 0, 2));
+        filterPanel.setBorder(BorderFactory.createTitledBorder("Filters"));
+        JTextField fromField = new JTextField(10);
+        JTextField toField = new JTextField(10);
+        JComboBox<String> typeCombo = new JComboBox<>(new String[]{"All", "Income", "Expense"});
+        filterPanel.add(new JLabel("From (YYYY-MM-DD):"));
+        filterPanel.add(fromField);
+        filterPanel.add(new JLabel("To (YYYY-MM-DD):"));
+        filterPanel.add(toField);
+        filterPanel.add(new JLabel("Type:"));
+        filterPanel.add(typeCombo);
+        fileChooser.setAccessory(filterPanel);
+
+        if (fileChooser.showSaveDialog(mainFrame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
 
-                JOptionPane.showMessageDialog(mainFrame, "Data exported successfully to " + file.getName(),
-                        "Export Complete", JOptionPane.INFORMATION_MESSAGE);
-            } catch (IOException ex) {
-                JOptionPane.showMessageDialog(mainFrame, "Error exporting data: " + ex.getMessage(),
-                        "Export Error", JOptionPane.ERROR_MESSAGE);
+        File file = fileChooser.getSelectedFile();
+        CsvExporter exporter = new CsvExporter(transactionManager.getStore());
+        try {
+            int from = fromField.getText().trim().isEmpty() ? Integer.MIN_VALUE
+                    : (int) java.time.LocalDate.parse(fromField.getText().trim()).toEpochDay();
+            int to = toField.getText().trim().isEmpty() ? Integer.MAX_VALUE
+                    : (int) java.time.LocalDate.parse(toField.getText().trim()).toEpochDay();
+            exporter.setDateRange(from, to);
+        } catch (java.time.format.DateTimeParseException ex) {
+            JOptionPane.showMessageDialog(mainFrame, "Error: invalid date " + ex.getParsedString(),
+                    "Input Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        exporter.setTypeFilter((String) typeCombo.getSelectedItem());
+
+        // Progress dialog
+        int total = transactionManager.getStore().size();
+        JDialog progressDialog = new JDialog(mainFrame, "Exporting", false);
+        JProgressBar progressBar = new JProgressBar(0, Math.max(1, total));
+        progressBar.setStringPainted(true);
+        JButton cancelButton = new JButton("Cancel");
+        JPanel progressPanel = new JPanel(new BorderLayout(10, 10));
+        progressPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        progressPanel.add(new JLabel("Exporting to " + file.getName() + "..."), BorderLayout.NORTH);
+        progressPanel.add(progressBar, BorderLayout.CENTER);
+        progressPanel.add(cancelButton, BorderLayout.SOUTH);
+        progressDialog.add(progressPanel);
+        progressDialog.pack();
+        progressDialog.setLocationRelativeTo(mainFrame);
+
+        SwingWorker<Integer, Integer> worker = new SwingWorker<Integer, Integer>() {
+            @Override
+            protected Integer doInBackground() throws Exception {
+                return exporter.export(file.toPath(), this::publish, this::isCancelled);
+            }
+
+            @Override
+            protected void process(java.util.List<Integer> chunks) {
+                progressBar.setValue(chunks.get(chunks.size() - 1));
+            }
+
+            @Override
+            protected void done() {
+                progressDialog.dispose();
+                if (isCancelled()) {
+                    JOptionPane.showMessageDialog(mainFrame, "Export cancelled",
+                            "Export Cancelled", JOptionPane.INFORMATION_MESSAGE);
+                    return;
+                }
+                try {
+                    int written = get();
+                    JOptionPane.showMessageDialog(mainFrame, "Data exported successfully to " + file.getName()
+                                    + " (" + written + " transactions)",
+                            "Export Complete", JOptionPane.INFORMATION_MESSAGE);
+                } catch (InterruptedException | java.util.concurrent.ExecutionException ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    JOptionPane.showMessageDialog(mainFrame, "Error exporting data: " + cause.getMessage(),
+                            "Export Error", JOptionPane.ERROR_MESSAGE);
+                }
             }
+        };
+
+        cancelButton.addActionListener(e -> worker.cancel(false));
+        worker.execute();
+        progressDialog.setVisible(true);
+    }
+
+    /**
+     * Imports transactions from a CSV file in the layout produced by {@link #exportToCSV()}.
+     * The file is parsed on a background thread, which then adds the valid rows in one batch
+     * with a single save and a single table update and waits until they are saved. The outcome
+     * is reported only then, with rejected lines listed.
+     */
+    private void importFromCSV() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Import Transactions");
+        if (fileChooser.showOpenDialog(mainFrame) != JFileChooser.APPROVE_OPTION) {
+            return;
         }
+
+        File file = fileChooser.getSelectedFile();
+        mainFrame.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        importItem.setEnabled(false);
+        new SwingWorker<CsvImporter.Result, Void>() {
+            @Override
+            protected CsvImporter.Result doInBackground() throws Exception {
+                CsvImporter.Result result = new CsvImporter().parse(file.toPath());
+                try {
+                    transactionManager.addAll(result.getTransactions()).get();
+                } catch (java.util.concurrent.ExecutionException e) {
+                    throw new IOException("the transactions were added but could not be saved: "
+                            + e.getCause().getMessage(), e.getCause());
+                }
+                return result;
+            }
+
+            @Override
+            protected void done() {
+                mainFrame.setCursor(Cursor.getDefaultCursor());
+                importItem.setEnabled(canAddTransactions());
+                CsvImporter.Result result;
+                try {
+                    result = get();
+                } catch (InterruptedException | java.util.concurrent.ExecutionException ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    JOptionPane.showMessageDialog(mainFrame, "Error importing data: " + cause.getMessage(),
+                            "Import Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+
+                String message = "Imported " + result.getTransactions().size() + " transactions from "
+                        + file.getName() + ".";
+                if (result.getErrorCount() == 0) {
+                    JOptionPane.showMessageDialog(mainFrame, message,
+                            "Import Complete", JOptionPane.INFORMATION_MESSAGE);
+                    return;
+                }
+
+                JTextArea errorsArea = new JTextArea(String.join("\n", result.getErrors()), 12, 50);
+                errorsArea.setEditable(false);
+                JPanel report = new JPanel(new BorderLayout(5, 5));
+                report.add(new JLabel(message + " " + result.getErrorCount() + " lines were skipped:"),
+                        BorderLayout.NORTH);
+                report.add(new JScrollPane(errorsArea), BorderLayout.CENTER);
+                JOptionPane.showMessageDialog(mainFrame, report,
+                        "Import Complete", JOptionPane.WARNING_MESSAGE);
+            }
+        }.execute();
     }
 
     /**
@@ -372,50 +906,12 @@ public class BudgetTrackerGUI {
         resultsArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
         JScrollPane resultsScroll = new JScrollPane(resultsArea);
 
-        // Chart panel
-        JPanel chartPanel = new JPanel() {
-            @Override
-            protected void paintComponent(Graphics g) {
-                super.paintComponent(g);
-                int month = monthCombo.getSelectedIndex() + 1;
-                int year = (Integer) yearCombo.getSelectedItem();
-                double[] summary = transactionManager.getMonthlySummary(month, year);
-
-                if (summary[0] == 0 && summary[1] == 0) {
-                    g.drawString("No data available for selected month", 50, 50);
-                    return;
-                }
-
-                int width = getWidth();
-                int height = getHeight();
-                int diameter = Math.min(width, height) - 40;
-                int x = (width - diameter) / 2;
-                int y = (height - diameter) / 2;
-
-                double total = summary[0] + summary[1];
-                double incomeAngle = 360 * (summary[0] / total);
-
-                // Draw pie slices
-                g.setColor(new Color(50, 205, 50)); // Income - green
-                g.fillArc(x, y, diameter, diameter, 0, (int) incomeAngle);
-
-                g.setColor(new Color(220, 20, 60)); // Expenses - red
-                g.fillArc(x, y, diameter, diameter, (int) incomeAngle, 360 - (int) incomeAngle);
-
-                // Draw legend
-                int legendY = 20;
-                g.setColor(new Color(50, 205, 50));
-                g.fillRect(20, legendY, 15, 15);
-                g.setColor(Color.BLACK);
-                g.drawString(String.format("Income (%.1f%%)", (summary[0] / total) * 100), 40, legendY + 12);
-
-                legendY += 20;
-                g.setColor(new Color(220, 20, 60));
-                g.fillRect(20, legendY, 15, 15);
-                g.setColor(Color.BLACK);
-                g.drawString(String.format("Expenses (%.1f%%)", (summary[1] / total) * 100), 40, legendY + 12);
-            }
-        };
+        // Chart panel; the summary and the drawn pie are cached until the selection or data change
+        CachedChartPanel<java.util.List<Integer>, double[]> chartPanel = new CachedChartPanel<>(
+                () -> Arrays.asList(monthCombo.getSelectedIndex() + 1, (Integer) yearCombo.getSelectedItem()),
+                selection -> transactionManager.getMonthlySummary(selection.get(0), selection.get(1)),
+                transactionManager::getDataVersion,
+                BudgetTrackerGUI::drawMonthlySummaryChart);
         chartPanel.setPreferredSize(new Dimension(300, 300));
 
         // Add components to a container
@@ -434,6 +930,8 @@ public class BudgetTrackerGUI {
             int year = (Integer) yearCombo.getSelectedItem();
 
             double[] summary = transactionManager.getMonthlySummary(month, year);
+            String loading = transactionManager.isLoaded() ? "" : String.format(
+                    "\n\nStill loading: %,d of %,d transactions included", loadedSummaryRows, loadingTotalRows);
             resultsArea.setText(String.format(
                     "Monthly Summary for %s %d\n\n" +
                             "Total Income: $%,.2f\n" +
@@ -443,12 +941,18 @@ public class BudgetTrackerGUI {
                     monthCombo.getSelectedItem(), year,
                     summary[0], summary[1], (summary[0] - summary[1]),
                     (summary[0] > 0 ? ((summary[0] - summary[1]) / summary[0]) * 100 : 0)
-            ));
+            ) + loading);
             chartPanel.repaint();
         });
 
-        // Trigger initial calculation
+        // Initial calculation, repeated as the ledger loads; totals come from the index
         calculateButton.doClick();
+        summaryViews.add(calculateButton::doClick);
+        changeViews.add(change -> {
+            if (change.affectsMonth(monthCombo.getSelectedIndex() + 1, (Integer) yearCombo.getSelectedItem())) {
+                calculateButton.doClick();
+            }
+        });
 
         return panel;
     }
@@ -486,65 +990,629 @@ public class BudgetTrackerGUI {
         JButton calculateButton = new JButton("Calculate");
         monthPanel.add(calculateButton);
 
-        // Pie chart panel
-        JPanel chartPanel = new JPanel() {
-            @Override
-            protected void paintComponent(Graphics g) {
-                super.paintComponent(g);
-                int month = monthCombo.getSelectedIndex(); // 0 = all months
-                String selectedYear = (String) yearCombo.getSelectedItem();
+        // Pie chart panel; slices are sorted once per selection and data version, not per repaint
+        CachedChartPanel<java.util.List<Object>, java.util.List<Map.Entry<String, Double>>> chartPanel =
+                new CachedChartPanel<>(
+                        () -> Arrays.asList(monthCombo.getSelectedIndex(), yearCombo.getSelectedItem()),
+                        selection -> sortedBreakdown(getFilteredCategoryBreakdown(
+                                (Integer) selection.get(0), (String) selection.get(1))),
+                        transactionManager::getDataVersion,
+                        BudgetTrackerGUI::drawCategoryBreakdownChart);
+        chartPanel.setPreferredSize(new Dimension(400, 400));
 
-                Map<String, Double> breakdown = getFilteredCategoryBreakdown(month, selectedYear);
+        panel.add(monthPanel, BorderLayout.NORTH);
+        panel.add(chartPanel, BorderLayout.CENTER);
 
-                if (breakdown.isEmpty()) {
-                    g.drawString("No expense data available", 50, 50);
-                    return;
+        calculateButton.addActionListener(e -> chartPanel.repaint());
+        summaryViews.add(chartPanel::repaint);
+        changeViews.add(change -> {
+            int month = monthCombo.getSelectedIndex();
+            String year = (String) yearCombo.getSelectedItem();
+            boolean affected = year.equals("All Years")
+                    ? month == 0 || change.getMonths().stream().anyMatch(m -> m.getMonthValue() == month)
+                    : month == 0 ? change.affectsYear(Integer.parseInt(year))
+                    : change.affectsMonth(month, Integer.parseInt(year));
+            if (affected) {
+                chartPanel.repaint();
+            }
+        });
+        return panel;
+    }
+
+    /**
+     * Draws the income/expense pie of a month with its legend.
+     *
+     * @param g       the graphics context
+     * @param summary total income and expenses of the month
+     * @param width   the chart width
+     * @param height  the chart height
+     */
+    private static void drawMonthlySummaryChart(Graphics2D g, double[] summary, int width, int height) {
+        if (summary[0] == 0 && summary[1] == 0) {
+            g.drawString("No data available for selected month", 50, 50);
+            return;
+        }
+
+        int diameter = Math.min(width, height) - 40;
+        int x = (width - diameter) / 2;
+        int y = (height - diameter) / 2;
+
+        double total = summary[0] + summary[1];
+        double incomeAngle = 360 * (summary[0] / total);
+
+        // Draw pie slices
+        g.setColor(new Color(50, 205, 50)); // Income - green
+        g.fillArc(x, y, diameter, diameter, 0, (int) incomeAngle);
+
+        g.setColor(new Color(220, 20, 60)); // Expenses - red
+        g.fillArc(x, y, diameter, diameter, (int) incomeAngle, 360 - (int) incomeAngle);
+
+        // Draw legend
+        int legendY = 20;
+        g.setColor(new Color(50, 205, 50));
+        g.fillRect(20, legendY, 15, 15);
+        g.setColor(Color.BLACK);
+        g.drawString(String.format("Income (%.1f%%)", (summary[0] / total) * 100), 40, legendY + 12);
+
+        legendY += 20;
+        g.setColor(new Color(220, 20, 60));
+        g.fillRect(20, legendY, 15, 15);
+        g.setColor(Color.BLACK);
+        g.drawString(String.format("Expenses (%.1f%%)", (summary[1] / total) * 100), 40, legendY + 12);
+    }
+
+    /**
+     * Orders a category breakdown by amount, largest first, for drawing.
+     *
+     * @param breakdown expense totals by category
+     * @return the non-zero entries, largest first
+     */
+    private static java.util.List<Map.Entry<String, Double>> sortedBreakdown(Map<String, Double> breakdown) {
+        java.util.List<Map.Entry<String, Double>> slices = new ArrayList<>();
+        for (Map.Entry<String, Double> entry : breakdown.entrySet()) {
+            if (entry.getValue() > 0) {
+                slices.add(new AbstractMap.SimpleImmutableEntry<>(entry));
+            }
+        }
+        slices.sort(Map.Entry.<String, Double>comparingByValue().reversed());
+        return slices;
+    }
+
+    /**
+     * Draws the expense pie by category with a legend of amounts and shares. Categories beyond
+     * the palette are drawn as one "Other" slice so every slice keeps a distinct color.
+     *
+     * @param g      the graphics context
+     * @param slices expense totals by category, largest first
+     * @param width  the chart width
+     * @param height the chart height
+     */
+    private static void drawCategoryBreakdownChart(Graphics2D g, java.util.List<Map.Entry<String, Double>> slices,
+                                                   int width, int height) {
+        if (slices.isEmpty()) {
+            g.drawString("No expense data available", 50, 50);
+            return;
+        }
+
+        double total = 0;
+        for (Map.Entry<String, Double> slice : slices) {
+            total += slice.getValue();
+        }
+        if (slices.size() > CHART_COLORS.length) {
+            java.util.List<Map.Entry<String, Double>> shown = new ArrayList<>(slices.subList(0, CHART_COLORS.length - 1));
+            double other = 0;
+            for (Map.Entry<String, Double> slice : slices.subList(CHART_COLORS.length - 1, slices.size())) {
+                other += slice.getValue();
+            }
+            shown.add(new AbstractMap.SimpleImmutableEntry<>("Other", other));
+            slices = shown;
+        }
+
+        // Pie on the left, legend on the right
+        int legendWidth = Math.min(260, width / 2);
+        int diameter = Math.max(10, Math.min(width - legendWidth, height) - 40);
+        int x = 20;
+        int y = (height - diameter) / 2;
+
+        double startAngle = 90;
+        for (int i = 0; i < slices.size(); i++) {
+            // The last slice closes the circle so rounding leaves no gap
+            double arc = i == slices.size() - 1 ? 90 + 360 - startAngle : 360 * slices.get(i).getValue() / total;
+            g.setColor(CHART_COLORS[i]);
+            g.fill(new java.awt.geom.Arc2D.Double(x, y, diameter, diameter, startAngle, arc,
+                    java.awt.geom.Arc2D.PIE));
+            startAngle += arc;
+        }
+
+        int legendX = x + diameter + 20;
+        int legendY = Math.max(10, (height - slices.size() * 20) / 2);
+        for (int i = 0; i < slices.size(); i++) {
+            Map.Entry<String, Double> slice = slices.get(i);
+            g.setColor(CHART_COLORS[i]);
+            g.fillRect(legendX, legendY, 15, 15);
+            g.setColor(Color.BLACK);
+            g.drawString(String.format("%s: $%,.2f (%.1f%%)", slice.getKey(), slice.getValue(),
+                    slice.getValue() / total * 100), legendX + 20, legendY + 12);
+            legendY += 20;
+        }
+    }
+
+    /**
+     * Creates and returns the panel for category budgets.
+     * Lists every category with its monthly limit, the selected month's spending, what is left
+     * and the share of the limit used, highlighted once an alert threshold is reached. Limits
+     * are edited in the table; clearing one removes the category's budget.
+     *
+     * @return the configured JPanel for budgets
+     */
+    private JPanel createBudgetsPanel() {
+        JPanel panel = new JPanel(new BorderLayout(5, 5));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        // Month selection
+        JPanel monthPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        monthPanel.add(new JLabel("Select Month:"));
+        JComboBox<String> monthCombo = new JComboBox<>(new String[]{
+                "January", "February", "March", "April", "May", "June",
+                "July", "August", "September", "October", "November", "December"
+        });
+        monthCombo.setSelectedIndex(Calendar.getInstance().get(Calendar.MONTH));
+        monthPanel.add(monthCombo);
+        JComboBox<Integer> yearCombo = new JComboBox<>();
+        int currentYear = Calendar.getInstance().get(Calendar.YEAR);
+        for (int year = currentYear - 5; year <= currentYear + 5; year++) {
+            yearCombo.addItem(year);
+        }
+        yearCombo.setSelectedItem(currentYear);
+        monthPanel.add(yearCombo);
+        JLabel hintLabel = new JLabel();
+        monthPanel.add(hintLabel);
+
+        // Only the limit column is editable, once the ledger has loaded; edits are saved in the
+        // background by the model listener below
+        DefaultTableModel budgetModel = new DefaultTableModel(
+                new Object[]{"Category", "Monthly Limit", "Spent", "Remaining", "Used"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return column == 1 && canEditBudgets();
+            }
+
+            @Override
+            public Class<?> getColumnClass(int column) {
+                return column == 0 || column == 1 ? String.class : Double.class;
+            }
+        };
+        JTable budgetTable = new JTable(budgetModel);
+        budgetTable.setDefaultRenderer(Double.class, new DefaultTableCellRenderer() {
+            @Override
+            public Component getTableCellRendererComponent(JTable table, Object value, boolean selected,
+                                                           boolean focused, int row, int column) {
+                super.getTableCellRendererComponent(table, value, selected, focused, row, column);
+                setHorizontalAlignment(SwingConstants.RIGHT);
+                Color color = table.getForeground();
+                if (value == null) {
+                    setText("");
+                } else if (column == 4) {
+                    // Orange from the first alert threshold, red once the limit is reached
+                    double used = (Double) value;
+                    int[] thresholds = transactionManager.getBudgets().getThresholds();
+                    int warningPercent = thresholds.length == 0 ? 100 : thresholds[0];
+                    setText(String.format("%.1f%%", used));
+                    color = used >= 100 ? Color.RED : used >= warningPercent ? new Color(230, 120, 0) : color;
+                } else {
+                    setText(String.format("%,.2f", (Double) value));
+                }
+                if (!selected) {
+                    setForeground(color);
                 }
+                return this;
+            }
+        });
 
-                // ... rest of your pie chart drawing code ...
+        Runnable refresh = () -> {
+            if (budgetTable.isEditing()) {
+                return;
+            }
+            if (!transactionManager.isLoaded()) {
+                hintLabel.setText("Limits can be changed once the ledger has loaded");
+            } else if (transactionManager.areBudgetsReadOnly()) {
+                hintLabel.setText("Read-only: the saved ledger or budgets could not be loaded");
+            } else {
+                hintLabel.setText("Double-click a limit to change it; leave it empty for no budget");
+            }
+            int month = monthCombo.getSelectedIndex() + 1;
+            int year = (Integer) yearCombo.getSelectedItem();
+            Map<String, Double> spent = transactionManager.getCategoryBreakdown(month, year);
+            Map<String, Long> limits = transactionManager.getBudgets().getLimits();
+            Set<String> categories = new LinkedHashSet<>(Arrays.asList(CATEGORIES));
+            categories.addAll(limits.keySet());
+
+            budgetModel.setRowCount(0);
+            for (String category : categories) {
+                double categorySpent = spent.getOrDefault(category, 0.0);
+                Long limitCents = limits.get(category);
+                if (limitCents == null) {
+                    budgetModel.addRow(new Object[]{category, "", categorySpent, null, null});
+                } else {
+                    double limit = limitCents / 100.0;
+                    budgetModel.addRow(new Object[]{category, String.format("%.2f", limit), categorySpent,
+                            limit - categorySpent, 100 * categorySpent / limit});
+                }
             }
         };
-        chartPanel.setPreferredSize(new Dimension(400, 400));
+        // Save an edited limit off the event dispatch thread, then rebuild so the row shows the
+        // stored limit; refreshes only insert and delete rows, so they do not come back here
+        budgetModel.addTableModelListener(e -> {
+            if (e.getType() != javax.swing.event.TableModelEvent.UPDATE || e.getColumn() != 1
+                    || e.getFirstRow() != e.getLastRow()) {
+                return;
+            }
+            String category = (String) budgetModel.getValueAt(e.getFirstRow(), 0);
+            Object value = budgetModel.getValueAt(e.getFirstRow(), 1);
+            String text = value == null ? "" : value.toString().trim();
+            double amount;
+            try {
+                amount = text.isEmpty() ? 0 : Double.parseDouble(text);
+            } catch (NumberFormatException ex) {
+                JOptionPane.showMessageDialog(mainFrame, "Error: " + ex.getMessage(),
+                        "Input Error", JOptionPane.ERROR_MESSAGE);
+                SwingUtilities.invokeLater(refresh);
+                return;
+            }
+            savingBudget = true;
+            new SwingWorker<Void, Void>() {
+                @Override
+                protected Void doInBackground() throws IOException {
+                    transactionManager.setBudgetLimit(category, amount);
+                    return null;
+                }
+
+                @Override
+                protected void done() {
+                    savingBudget = false;
+                    try {
+                        get();
+                    } catch (InterruptedException | java.util.concurrent.ExecutionException ex) {
+                        Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                        if (cause instanceof IOException) {
+                            showPersistenceError("Error saving budgets", (IOException) cause);
+                        } else {
+                            JOptionPane.showMessageDialog(mainFrame, "Error: " + cause.getMessage(),
+                                    "Input Error", JOptionPane.ERROR_MESSAGE);
+                        }
+                    }
+                    refresh.run();
+                }
+            }.execute();
+        });
+        monthCombo.addActionListener(e -> refresh.run());
+        yearCombo.addActionListener(e -> refresh.run());
 
         panel.add(monthPanel, BorderLayout.NORTH);
+        panel.add(new JScrollPane(budgetTable), BorderLayout.CENTER);
+
+        refresh.run();
+        summaryViews.add(refresh);
+        changeViews.add(change -> {
+            if (change.affectsMonth(monthCombo.getSelectedIndex() + 1, (Integer) yearCombo.getSelectedItem())) {
+                refresh.run();
+            }
+        });
+        return panel;
+    }
+
+    /**
+     * Creates and returns the panel for rolling spending statistics.
+     * Shows 7, 30 and 90-day totals and daily averages, the burn rate and the projected
+     * month-end balance as of today, next to a chart of the 7 and 30-day average daily spending
+     * over a selectable period. Everything is read from sliding windows kept up to date as
+     * transactions are added.
+     *
+     * @return the configured JPanel for spending velocity
+     */
+    private JPanel createVelocityPanel() {
+        JPanel panel = new JPanel(new BorderLayout(5, 5));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        JPanel rangePanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        rangePanel.add(new JLabel("Chart:"));
+        JComboBox<String> rangeCombo = new JComboBox<>(new String[]{"Last 90 days", "Last 180 days", "Last 365 days"});
+        rangeCombo.setSelectedIndex(1);
+        rangePanel.add(rangeCombo);
+        int[] rangeDays = {90, 180, 365};
+
+        JTextArea statsArea = new JTextArea(14, 34);
+        statsArea.setEditable(false);
+        statsArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+
+        // The selection includes today, so the chart moves on at midnight even without new data
+        CachedChartPanel<java.util.List<Object>, double[][]> chartPanel = new CachedChartPanel<>(
+                () -> Arrays.asList(rangeDays[rangeCombo.getSelectedIndex()], LocalDate.now()),
+                selection -> {
+                    LocalDate today = (LocalDate) selection.get(1);
+                    LocalDate from = today.minusDays((Integer) selection.get(0) - 1);
+                    return new double[][]{
+                            transactionManager.getRollingAverages(7, from, today),
+                            transactionManager.getRollingAverages(30, from, today)};
+                },
+                transactionManager::getDataVersion,
+                BudgetTrackerGUI::drawVelocityChart);
+        chartPanel.setPreferredSize(new Dimension(450, 300));
+
+        Runnable refresh = () -> {
+            RollingStats stats = transactionManager.getRollingStats(LocalDate.now());
+            StringBuilder text = new StringBuilder(String.format("Spending as of %s%n%n", stats.getAsOf()));
+            text.append(String.format("%-10s%12s%12s%12s%n", "Window", "Spent", "Per day", "Income"));
+            for (int days : stats.getWindowDays()) {
+                text.append(String.format("%-10s%,12.2f%,12.2f%,12.2f%n", days + " days",
+                        stats.getExpenses(days), stats.getAverageDailyExpenses(days), stats.getIncome(days)));
+            }
+            text.append(String.format("%nDaily burn rate:        $%,.2f%n", stats.getDailyBurnRate()));
+            text.append(String.format("Month so far:           $%,.2f in, $%,.2f out%n",
+                    stats.getMonthIncome(), stats.getMonthExpenses()));
+            text.append(String.format("Balance today:          $%,.2f%n", stats.getBalance()));
+            text.append(String.format("Projected month end:    $%,.2f (%d days left)%n",
+                    stats.getProjectedMonthEndBalance(), stats.getDaysLeftInMonth()));
+            if (!transactionManager.isLoaded()) {
+                text.append(String.format("%nStill loading transactions"));
+            }
+            statsArea.setText(text.toString());
+            chartPanel.repaint();
+        };
+        rangeCombo.addActionListener(e -> chartPanel.repaint());
+
+        panel.add(rangePanel, BorderLayout.NORTH);
+        panel.add(new JScrollPane(statsArea), BorderLayout.WEST);
         panel.add(chartPanel, BorderLayout.CENTER);
 
-        calculateButton.addActionListener(e -> chartPanel.repaint());
+        refresh.run();
+        summaryViews.add(refresh);
+        // Reading the windows is O(1), so any change simply refreshes them
+        changeViews.add(change -> refresh.run());
         return panel;
     }
 
     /**
-     * Retrieves a filtered breakdown of expenses by category for the specified month and year.
+     * Draws rolling average daily spending as lines over time, with the newest day on the right.
      *
-     * @param month the month to filter by (0 for all months)
-     * @param yearFilter the year to filter by as a String ("All Years" or specific year)
-     * @return a Map of category names to total amounts for the filtered transactions
+     * @param g      the graphics context
+     * @param series the 7-day and 30-day averages, one value per day
+     * @param width  the chart width
+     * @param height the chart height
      */
-    private Map<String, Double> getFilteredCategoryBreakdown(int month, String yearFilter) {
-        Map<String, Double> breakdown = new LinkedHashMap<>();
-        Calendar cal = Calendar.getInstance();
+    private static void drawVelocityChart(Graphics2D g, double[][] series, int width, int height) {
+        double max = 0;
+        for (double[] line : series) {
+            for (double value : line) {
+                max = Math.max(max, value);
+            }
+        }
+        if (max == 0) {
+            g.drawString("No expenses in this period", 50, 50);
+            return;
+        }
 
-        for (Transaction t : transactionManager.getTransactions()) {
-            if (!t.isIncome()) {
-                cal.setTime(t.getDate());
+        int left = 70;
+        int top = 40;
+        int plotWidth = width - left - 20;
+        int plotHeight = height - top - 30;
+        int days = series[0].length;
+
+        // Axes with three value labels
+        g.setColor(Color.GRAY);
+        g.drawLine(left, top, left, top + plotHeight);
+        g.drawLine(left, top + plotHeight, left + plotWidth, top + plotHeight);
+        for (int i = 0; i <= 2; i++) {
+            int y = top + plotHeight - plotHeight * i / 2;
+            g.drawString(String.format("$%,.0f", max * i / 2), 5, y + 5);
+        }
+        g.drawString(days + " days ago", left, top + plotHeight + 20);
+        g.drawString("today", left + plotWidth - 30, top + plotHeight + 20);
+
+        Color[] colors = {new Color(255, 165, 0), new Color(30, 144, 255)};
+        String[] labels = {"7-day average per day", "30-day average per day"};
+        for (int s = 0; s < series.length; s++) {
+            g.setColor(colors[s]);
+            int previousX = -1;
+            int previousY = -1;
+            for (int day = 0; day < days; day++) {
+                int x = left + (days == 1 ? 0 : (int) ((long) plotWidth * day / (days - 1)));
+                int y = top + plotHeight - (int) (plotHeight * series[s][day] / max);
+                if (previousX >= 0) {
+                    g.drawLine(previousX, previousY, x, y);
+                }
+                previousX = x;
+                previousY = y;
+            }
+            g.fillRect(left + 180 * s, 10, 15, 15);
+            g.setColor(Color.BLACK);
+            g.drawString(labels[s], left + 180 * s + 20, 22);
+        }
+    }
 
-                // Month filter (0 means all months)
-                boolean monthMatch = (month == 0) || (cal.get(Calendar.MONTH) + 1 == month);
+    /**
+     * Creates and returns the panel for multi-year trend reports.
+     * Shows yearly totals with year-over-year changes, monthly income, expenses and savings rate
+     * with one expense column per category, and each category's yearly expenses. Reports are
+     * computed in the background by the analytics engine when Generate is pressed.
+     *
+     * @return the configured JPanel for trend reports
+     */
+    private JPanel createTrendsPanel() {
+        JPanel panel = new JPanel(new BorderLayout(5, 5));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
-                // Year filter
-                boolean yearMatch;
-                if (yearFilter.equals("All Years")) {
-                    yearMatch = true;
-                } else {
-                    int selectedYear = Integer.parseInt(yearFilter);
-                    yearMatch = (cal.get(Calendar.YEAR) == selectedYear);
+        // Year range selection
+        JPanel rangePanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        JComboBox<Integer> fromCombo = new JComboBox<>();
+        JComboBox<Integer> toCombo = new JComboBox<>();
+        int currentYear = Calendar.getInstance().get(Calendar.YEAR);
+        for (int year = currentYear - 10; year <= currentYear + 5; year++) {
+            fromCombo.addItem(year);
+            toCombo.addItem(year);
+        }
+        fromCombo.setSelectedItem(currentYear - 4);
+        toCombo.setSelectedItem(currentYear);
+        rangePanel.add(new JLabel("From:"));
+        rangePanel.add(fromCombo);
+        rangePanel.add(new JLabel("To:"));
+        rangePanel.add(toCombo);
+        JButton generateButton = new JButton("Generate");
+        rangePanel.add(generateButton);
+        JLabel reportStatus = new JLabel(" ");
+        rangePanel.add(reportStatus);
+
+        JTable yearlyTable = new JTable();
+        JTable monthlyTable = new JTable();
+        JTable categoryTable = new JTable();
+        // Monthly rows get one column per category, so let them scroll sideways
+        monthlyTable.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
+        for (JTable table : new JTable[]{yearlyTable, monthlyTable, categoryTable}) {
+            table.setDefaultEditor(Object.class, null);
+        }
+        JTabbedPane reportTabs = new JTabbedPane();
+        reportTabs.addTab("Year over Year", new JScrollPane(yearlyTable));
+        reportTabs.addTab("Monthly Trends", new JScrollPane(monthlyTable));
+        reportTabs.addTab("Categories", new JScrollPane(categoryTable));
+
+        panel.add(rangePanel, BorderLayout.NORTH);
+        panel.add(reportTabs, BorderLayout.CENTER);
+
+        generateButton.addActionListener(e -> {
+            int fromYear = (Integer) fromCombo.getSelectedItem();
+            int toYear = (Integer) toCombo.getSelectedItem();
+            if (fromYear > toYear) {
+                JOptionPane.showMessageDialog(mainFrame, "The first year must not be after the last year",
+                        "Invalid Range", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            generateButton.setEnabled(false);
+            reportStatus.setText("Computing...");
+            long start = System.nanoTime();
+            new SwingWorker<TrendReport, Void>() {
+                @Override
+                protected TrendReport doInBackground() {
+                    return transactionManager.getTrendReport(fromYear, toYear);
                 }
 
-                if (monthMatch && yearMatch) {
-                    breakdown.merge(t.getCategory(), t.getAmount(), Double::sum);
+                @Override
+                protected void done() {
+                    generateButton.setEnabled(true);
+                    TrendReport report;
+                    try {
+                        report = get();
+                    } catch (InterruptedException | java.util.concurrent.ExecutionException ex) {
+                        Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                        reportStatus.setText("Failed: " + cause.getMessage());
+                        return;
+                    }
+                    yearlyTable.setModel(createYearlyTrendModel(report));
+                    monthlyTable.setModel(createMonthlyTrendModel(report));
+                    categoryTable.setModel(createCategoryTrendModel(report));
+                    String loading = transactionManager.isLoaded() ? "" : " (still loading)";
+                    reportStatus.setText(String.format("Computed in %d ms%s",
+                            (System.nanoTime() - start) / 1_000_000, loading));
                 }
+            }.execute();
+        });
+        return panel;
+    }
+
+    /**
+     * Builds the table model of yearly totals and their changes from the previous year.
+     *
+     * @param report the trend report
+     * @return one row per year
+     */
+    private static TableModel createYearlyTrendModel(TrendReport report) {
+        DefaultTableModel model = new DefaultTableModel(new Object[]{
+                "Year", "Income", "Income Change", "Expenses", "Expense Change", "Net Savings", "Savings Rate"}, 0);
+        for (int year = report.getFromYear(); year <= report.getToYear(); year++) {
+            double income = report.getYearlyIncome(year);
+            double expenses = report.getYearlyExpenses(year);
+            model.addRow(new Object[]{year, formatMoney(income), formatPercent(report.getIncomeChange(year)),
+                    formatMoney(expenses), formatPercent(report.getExpenseChange(year)),
+                    formatMoney(income - expenses), formatPercent(report.getYearlySavingsRate(year))});
+        }
+        return model;
+    }
+
+    /**
+     * Builds the table model of monthly totals, savings rates and per-category expense series.
+     *
+     * @param report the trend report
+     * @return one row per month, one expense column per category
+     */
+    private static TableModel createMonthlyTrendModel(TrendReport report) {
+        java.util.List<String> categories = report.getCategories();
+        java.util.List<Object> columns = new ArrayList<>(Arrays.asList("Month", "Income", "Expenses", "Savings Rate"));
+        columns.addAll(categories);
+        DefaultTableModel model = new DefaultTableModel(columns.toArray(), 0);
+
+        double[] income = report.getMonthlyIncome();
+        double[] expenses = report.getMonthlyExpenses();
+        double[] rates = report.getSavingsRateHistory();
+        double[][] trends = new double[categories.size()][];
+        for (int c = 0; c < trends.length; c++) {
+            trends[c] = report.getCategoryTrend(categories.get(c));
+        }
+        for (int month = 0; month < report.getMonthCount(); month++) {
+            Object[] row = new Object[columns.size()];
+            row[0] = String.format("%d-%02d", report.getFromYear() + month / 12, month % 12 + 1);
+            row[1] = formatMoney(income[month]);
+            row[2] = formatMoney(expenses[month]);
+            row[3] = formatPercent(rates[month]);
+            for (int c = 0; c < trends.length; c++) {
+                row[4 + c] = formatMoney(trends[c][month]);
             }
+            model.addRow(row);
         }
-        return breakdown;
+        return model;
+    }
+
+    /**
+     * Builds the table model of each category's yearly expenses and latest yearly change.
+     *
+     * @param report the trend report
+     * @return one row per category
+     */
+    private static TableModel createCategoryTrendModel(TrendReport report) {
+        java.util.List<Object> columns = new ArrayList<>();
+        columns.add("Category");
+        for (int year = report.getFromYear(); year <= report.getToYear(); year++) {
+            columns.add(year);
+        }
+        columns.add("Latest Change");
+        DefaultTableModel model = new DefaultTableModel(columns.toArray(), 0);
+        for (String category : report.getCategories()) {
+            Object[] row = new Object[columns.size()];
+            row[0] = category;
+            for (int year = report.getFromYear(); year <= report.getToYear(); year++) {
+                row[1 + year - report.getFromYear()] = formatMoney(report.getYearlyCategoryExpenses(category, year));
+            }
+            row[row.length - 1] = formatPercent(report.getCategoryChange(category, report.getToYear()));
+            model.addRow(row);
+        }
+        return model;
+    }
+
+    private static String formatMoney(double amount) {
+        return String.format("$%,.2f", amount);
+    }
+
+    private static String formatPercent(double percent) {
+        return Double.isNaN(percent) ? "-" : String.format("%+.1f%%", percent);
+    }
+
+    /**
+     * Retrieves a filtered breakdown of expenses by category for the specified month and year.
+     *
+     * @param month the month to filter by (0 for all months)
+     * @param yearFilter the year to filter by as a String ("All Years" or specific year)
+     * @return a Map of category names to total amounts for the filtered transactions
+     */
+    private Map<String, Double> getFilteredCategoryBreakdown(int month, String yearFilter) {
+        int year = yearFilter.equals("All Years") ? CategoryRollup.ALL : Integer.parseInt(yearFilter);
+        return transactionManager.getCategoryBreakdown(month, year);
     }
 }
\ No newline at end of file
@@ -0,0 +1,146 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Chart panel that keeps its dataset and its rendered image between repaints.
+ * The dataset is loaded once per selection and data version, and the chart is drawn once into an
+ * off-screen {@link BufferedImage} per selection and size; ordinary repaints only copy that image.
+ * Resizing redraws from the cached dataset without querying the ledger again, and changing the
+ * selection back to a recent one reuses its dataset. Both are discarded when the data version
+ * changes.
+ *
+ * @param <S> the selection type; selections are compared with {@code equals}
+ * @param <D> the dataset type
+ */
+public class CachedChartPanel<S, D> extends JPanel {
+    private static final long serialVersionUID = 1L;
+
+    /** Number of recent selections whose datasets and images are kept. */
+    private static final int CACHED_SELECTIONS = 8;
+
+    /**
+     * Draws a chart from its dataset.
+     *
+     * @param <D> the dataset type
+     */
+    @FunctionalInterface
+    public interface Renderer<D> {
+        /**
+         * Draws the chart into a cleared, antialiased graphics context.
+         *
+         * @param g      the graphics context, in component coordinates
+         * @param data   the dataset of the current selection
+         * @param width  the chart width
+         * @param height the chart height
+         */
+        void render(Graphics2D g, D data, int width, int height);
+    }
+
+    private final transient Supplier<S> selection;
+    private final transient Function<S, D> loader;
+    private final transient LongSupplier dataVersion;
+    private final transient Renderer<D> renderer;
+    private final transient Map<S, Entry<D>> cache = new LinkedHashMap<S, Entry<D>>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<S, Entry<D>> eldest) {
+            return size() > CACHED_SELECTIONS;
+        }
+    };
+
+    /**
+     * Creates a chart panel.
+     *
+     * @param selection   returns the current selection, such as the chosen month and year
+     * @param loader      computes the dataset of a selection; called on the event dispatch thread
+     * @param dataVersion returns a number that changes whenever the underlying data changes
+     * @param renderer    draws the chart
+     */
+    public CachedChartPanel(Supplier<S> selection, Function<S, D> loader, LongSupplier dataVersion,
+                            Renderer<D> renderer) {
+        this.selection = selection;
+        this.loader = loader;
+        this.dataVersion = dataVersion;
+        this.renderer = renderer;
+    }
+
+    /**
+     * Discards all cached datasets and images and repaints, for changes the data version does
+     * not cover.
+     */
+    public void clearCache() {
+        cache.clear();
+        repaint();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        int width = getWidth();
+        int height = getHeight();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+
+        S key = selection.get();
+        // Read before loading, so data changing during the load makes the entry stale
+        long version = dataVersion.getAsLong();
+        Entry<D> entry = cache.get(key);
+        if (entry == null || entry.version != version) {
+            entry = new Entry<>(loader.apply(key), version);
+            cache.put(key, entry);
+        }
+
+        // Render at device resolution so the image stays sharp on scaled displays
+        AffineTransform transform = ((Graphics2D) g).getTransform();
+        double scaleX = transform.getScaleX();
+        double scaleY = transform.getScaleY();
+        int imageWidth = (int) Math.ceil(width * scaleX);
+        int imageHeight = (int) Math.ceil(height * scaleY);
+        if (entry.image == null || entry.image.getWidth() != imageWidth || entry.image.getHeight() != imageHeight) {
+            entry.image = render(entry.data, width, height, imageWidth, imageHeight, scaleX, scaleY);
+        }
+        g.drawImage(entry.image, 0, 0, width, height, null);
+    }
+
+    private BufferedImage render(D data, int width, int height, int imageWidth, int imageHeight,
+                                 double scaleX, double scaleY) {
+        GraphicsConfiguration configuration = getGraphicsConfiguration();
+        BufferedImage image = configuration != null
+                ? configuration.createCompatibleImage(imageWidth, imageHeight, Transparency.TRANSLUCENT)
+                : new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.scale(scaleX, scaleY);
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setFont(getFont());
+            g.setColor(getForeground());
+            renderer.render(g, data, width, height);
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * Dataset of one selection, and its image at the last size it was painted at.
+     */
+    private static class Entry<D> {
+        final D data;
+        final long version;
+        BufferedImage image;
+
+        Entry(D data, long version) {
+            this.data = data;
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Monthly spending limits per category and the percentages of a limit that raise an alert.
+ * Budgets are immutable; {@link #withLimit(String, long)} returns a changed copy, so the
+ * {@link TransactionManager} can swap them while transactions are being added.
+ *
+ * <p>Alerts are evaluated incrementally: an added expense crosses a threshold if the month's
+ * spending in its category was below it before the expense and reaches it afterwards, which
+ * needs only the running total kept by the {@link CategoryRollup}.</p>
+ */
+public final class CategoryBudgets {
+    /** Percentages of a limit alerted on by default. */
+    public static final int[] DEFAULT_THRESHOLDS = {80, 100};
+
+    /** Budgets without any limit. */
+    public static final CategoryBudgets NONE = new CategoryBudgets(Collections.emptyMap(), DEFAULT_THRESHOLDS);
+
+    private static final int MAGIC = 0x53424247; // "SBBG"
+    private static final short FORMAT_VERSION = 1;
+
+    private final Map<String, Long> limits;
+    private final int[] thresholds;
+
+    /**
+     * Creates budgets.
+     *
+     * @param limitCents        monthly limits in cents by category name
+     * @param thresholdPercents percentages of a limit to alert on, e.g. {80, 100}
+     * @throws IllegalArgumentException if a limit or threshold is not positive
+     */
+    public CategoryBudgets(Map<String, Long> limitCents, int[] thresholdPercents) {
+        for (long limit : limitCents.values()) {
+            if (limit <= 0) {
+                throw new IllegalArgumentException("Budget limit must be positive: " + limit);
+            }
+        }
+        for (int threshold : thresholdPercents) {
+            if (threshold <= 0) {
+                throw new IllegalArgumentException("Alert threshold must be positive: " + threshold);
+            }
+        }
+        this.limits = Collections.unmodifiableMap(new TreeMap<>(limitCents));
+        this.thresholds = thresholdPercents.clone();
+        Arrays.sort(this.thresholds);
+    }
+
+    /**
+     * Returns the limits.
+     *
+     * @return monthly limits in cents by category name, in name order
+     */
+    public Map<String, Long> getLimits() {
+        return limits;
+    }
+
+    /**
+     * Returns the alert thresholds.
+     *
+     * @return percentages of a limit, in ascending order
+     */
+    public int[] getThresholds() {
+        return thresholds.clone();
+    }
+
+    public boolean isEmpty() { return limits.isEmpty(); }
+
+    /**
+     * Returns the monthly limit of a category.
+     *
+     * @param category the category name
+     * @return the limit in cents, or 0 if the category has no budget
+     */
+    public long getLimitCents(String category) {
+        Long limit = limits.get(category);
+        return limit == null ? 0 : limit;
+    }
+
+    /**
+     * Returns budgets with the limit of one category changed.
+     *
+     * @param category   the category name (cannot be null)
+     * @param limitCents the new monthly limit in cents, or 0 or less to remove the budget
+     * @return the changed budgets
+     * @throws IllegalArgumentException if category is null
+     */
+    public CategoryBudgets withLimit(String category, long limitCents) {
+        if (category == null) {
+            throw new IllegalArgumentException("Category cannot be null");
+        }
+        Map<String, Long> changed = new TreeMap<>(limits);
+        if (limitCents > 0) {
+            changed.put(category, limitCents);
+        } else {
+            changed.remove(category);
+        }
+        return new CategoryBudgets(changed, thresholds);
+    }
+
+    /**
+     * Tells which threshold an expense has crossed.
+     *
+     * @param limitCents  the limit of the expense's category
+     * @param beforeCents the month's spending in the category before the expense
+     * @param afterCents  the month's spending in the category including the expense
+     * @return the highest threshold percentage reached by the expense but not before it, or 0
+     *         if none was crossed
+     */
+    public int crossedThreshold(long limitCents, long beforeCents, long afterCents) {
+        for (int i = thresholds.length - 1; i >= 0; i--) {
+            long thresholdCents = thresholdCents(limitCents, thresholds[i]);
+            if (afterCents >= thresholdCents) {
+                return beforeCents < thresholdCents ? thresholds[i] : 0;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns a percentage of a limit, rounded up to whole cents. Splitting the limit into whole
+     * units and cents keeps the product exact; a result beyond the long range saturates.
+     */
+    private static long thresholdCents(long limitCents, int percent) {
+        try {
+            return Math.addExact(Math.multiplyExact(limitCents / 100, percent), (limitCents % 100 * percent + 99) / 100);
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Reads a budgets file.
+     *
+     * @param file the file
+     * @return the budgets, or {@link #NONE} if the file does not exist
+     * @throws IOException if the file cannot be read or is corrupt
+     */
+    public static CategoryBudgets read(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return NONE;
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        if (bytes.length < 4) {
+            throw new IOException("Corrupt budgets file: " + file);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 4);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        in.skipBytes(bytes.length - 4);
+        if ((int) crc.getValue() != in.readInt()) {
+            throw new IOException("Budgets checksum mismatch: " + file);
+        }
+
+        in = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 4));
+        if (in.readInt() != MAGIC || in.readShort() != FORMAT_VERSION) {
+            throw new IOException("Unrecognized budgets format: " + file);
+        }
+        int[] thresholds = new int[in.readInt()];
+        for (int i = 0; i < thresholds.length; i++) {
+            thresholds[i] = in.readInt();
+        }
+        int count = in.readInt();
+        Map<String, Long> limits = new TreeMap<>();
+        for (int i = 0; i < count; i++) {
+            limits.put(in.readUTF(), in.readLong());
+        }
+        try {
+            return new CategoryBudgets(limits, thresholds);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt budgets file: " + file, e);
+        }
+    }
+
+    /**
+     * Writes the budgets through a temporary file and an atomic rename.
+     *
+     * @param file the file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeShort(FORMAT_VERSION);
+            out.writeInt(thresholds.length);
+            for (int threshold : thresholds) {
+                out.writeInt(threshold);
+            }
+            out.writeInt(limits.size());
+            for (Map.Entry<String, Long> limit : limits.entrySet()) {
+                out.writeUTF(limit.getKey());
+                out.writeLong(limit.getValue());
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes.toByteArray());
+            out.writeInt((int) crc.getValue());
+        }
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp.toFile())) {
+            out.write(bytes.toByteArray());
+            out.getFD().sync();
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
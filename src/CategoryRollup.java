@@ -0,0 +1,238 @@
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * A pre-aggregated (year, month, category) cube of expense totals and counts.
+ * Besides the individual month cells, each year keeps a rolled-up "all months" row and the cube
+ * keeps an "all years" level per month and overall, so every combination offered by the
+ * Category Breakdown tab is answered by reading one row of cells. Breakdowns list categories in
+ * the order of the ledger's category dictionary.
+ *
+ * <p>{@link #snapshot()} freezes the cube in constant time by sharing its levels. Each level and
+ * the map of years remember the snapshot epoch they belong to; a write copies the map and the
+ * two levels it touches (its year and the all-years level) if they are older, so a snapshot
+ * costs at most a few small copies and never a rescan of the ledger.</p>
+ */
+public class CategoryRollup {
+    /** Month or year value selecting the rolled-up level. */
+    public static final int ALL = 0;
+
+    private static final int INITIAL_CATEGORIES = 8;
+
+    private final StringDictionary categories;
+    private Map<Integer, Level> years = new HashMap<>();
+    private Level allYears = new Level(INITIAL_CATEGORIES, 0);
+    // Bumped by every snapshot; structures from an older epoch are shared and copied on write
+    private int epoch;
+    private int yearsEpoch;
+
+    /**
+     * Creates an empty rollup whose category ids refer to the given dictionary.
+     *
+     * @param categories the category dictionary of the ledger
+     */
+    public CategoryRollup(StringDictionary categories) {
+        this.categories = categories;
+    }
+
+    /**
+     * Discards all cells and recomputes the cube from the rows of a store.
+     *
+     * @param store the complete ledger
+     */
+    public void rebuild(TransactionStore store) {
+        years = new HashMap<>();
+        yearsEpoch = epoch;
+        allYears = new Level(INITIAL_CATEGORIES, epoch);
+        for (int row = 0; row < store.size(); row++) {
+            add(store.getEpochDay(row), store.getAmountCents(row), store.getCategoryId(row), store.isIncome(row));
+        }
+    }
+
+    /**
+     * Adds an expense to every level of the cube it contributes to. Income is ignored.
+     *
+     * @param epochDay    the transaction date as days since 1970-01-01
+     * @param amountCents the amount in cents
+     * @param categoryId  the category id in the ledger's dictionary
+     * @param isIncome    true for income, false for expenses
+     */
+    public void add(int epochDay, long amountCents, int categoryId, boolean isIncome) {
+        if (isIncome) {
+            return;
+        }
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        writableYear(date.getYear()).add(date.getMonthValue(), categoryId, amountCents, 1);
+        writableAllYears().add(date.getMonthValue(), categoryId, amountCents, 1);
+    }
+
+    /**
+     * Adds precomputed expense totals of a category to a month, e.g. those of a closed
+     * {@link LedgerPartition}.
+     *
+     * @param month      the month (1-12)
+     * @param year       the year
+     * @param categoryId the category id in the ledger's dictionary
+     * @param cents      the expenses to add, in cents
+     * @param count      the number of expenses they cover
+     */
+    public void addTotals(int month, int year, int categoryId, long cents, int count) {
+        if (count == 0) {
+            return;
+        }
+        writableYear(year).add(month, categoryId, cents, count);
+        writableAllYears().add(month, categoryId, cents, count);
+    }
+
+    /**
+     * Returns a read-only copy of the cube in constant time. Later additions to this rollup do
+     * not change the snapshot; categories added to the dictionary afterwards have no expenses in it.
+     *
+     * @return the snapshot; it must not be added to
+     */
+    public CategoryRollup snapshot() {
+        epoch++;
+        CategoryRollup snapshot = new CategoryRollup(categories);
+        snapshot.years = years;
+        snapshot.allYears = allYears;
+        snapshot.epoch = epoch;
+        snapshot.yearsEpoch = epoch - 1;
+        return snapshot;
+    }
+
+    /**
+     * Returns the level of a year for writing, copying the map of years and the level first if
+     * a snapshot shares them.
+     */
+    private Level writableYear(int year) {
+        if (yearsEpoch != epoch) {
+            years = new HashMap<>(years);
+            yearsEpoch = epoch;
+        }
+        Level level = years.get(year);
+        if (level == null) {
+            level = new Level(categories.size(), epoch);
+            years.put(year, level);
+        } else if (level.epoch != epoch) {
+            level = new Level(level, epoch);
+            years.put(year, level);
+        }
+        return level;
+    }
+
+    /**
+     * Returns the all-years level for writing, copying it first if a snapshot shares it.
+     */
+    private Level writableAllYears() {
+        if (allYears.epoch != epoch) {
+            allYears = new Level(allYears, epoch);
+        }
+        return allYears;
+    }
+
+    /**
+     * Returns the expenses of one category in one cell, e.g. the running total a budget is
+     * checked against.
+     *
+     * @param month      the month (1-12) or {@link #ALL}
+     * @param year       the year or {@link #ALL}
+     * @param categoryId the category id in the ledger's dictionary
+     * @return the total expenses in cents
+     */
+    public long getSum(int month, int year, int categoryId) {
+        Level level = year == ALL ? allYears : years.get(year);
+        return level == null ? 0 : level.sum(month, categoryId);
+    }
+
+    /**
+     * Returns expense totals per category for a month and year.
+     *
+     * @param month the month (1-12) or {@link #ALL}
+     * @param year  the year or {@link #ALL}
+     * @return category names mapped to total expenses, in order of first appearance; only
+     *         categories with at least one expense in the period are included
+     */
+    public Map<String, Double> getBreakdown(int month, int year) {
+        Map<String, Double> breakdown = new LinkedHashMap<>();
+        Level level = year == ALL ? allYears : years.get(year);
+        if (level == null) {
+            return breakdown;
+        }
+        for (int category = 0; category < categories.size(); category++) {
+            if (level.count(month, category) > 0) {
+                breakdown.put(categories.valueOf(category), level.sum(month, category) / 100.0);
+            }
+        }
+        return breakdown;
+    }
+
+    /**
+     * Returns expense counts per category for a month and year.
+     *
+     * @param month the month (1-12) or {@link #ALL}
+     * @param year  the year or {@link #ALL}
+     * @return category names mapped to the number of expenses, in order of first appearance
+     */
+    public Map<String, Integer> getCounts(int month, int year) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        Level level = year == ALL ? allYears : years.get(year);
+        if (level == null) {
+            return counts;
+        }
+        for (int category = 0; category < categories.size(); category++) {
+            int count = level.count(month, category);
+            if (count > 0) {
+                counts.put(categories.valueOf(category), count);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Cells of one year (or of the all-years level): row 0 holds the all-months roll-up,
+     * rows 1-12 the individual months, and columns are category ids. Sums are in cents.
+     */
+    private static class Level {
+        private final int epoch;
+        private long[][] sums = new long[13][];
+        private int[][] counts = new int[13][];
+
+        Level(int categories, int epoch) {
+            this.epoch = epoch;
+            for (int month = 0; month <= 12; month++) {
+                sums[month] = new long[Math.max(categories, INITIAL_CATEGORIES)];
+                counts[month] = new int[sums[month].length];
+            }
+        }
+
+        Level(Level from, int epoch) {
+            this.epoch = epoch;
+            for (int month = 0; month <= 12; month++) {
+                sums[month] = from.sums[month].clone();
+                counts[month] = from.counts[month].clone();
+            }
+        }
+
+        void add(int month, int category, long amount, int count) {
+            if (category >= sums[0].length) {
+                int capacity = Math.max(sums[0].length * 2, category + 1);
+                for (int m = 0; m <= 12; m++) {
+                    sums[m] = Arrays.copyOf(sums[m], capacity);
+                    counts[m] = Arrays.copyOf(counts[m], capacity);
+                }
+            }
+            sums[ALL][category] += amount;
+            counts[ALL][category] += count;
+            sums[month][category] += amount;
+            counts[month][category] += count;
+        }
+
+        long sum(int month, int category) {
+            return category < sums[month].length ? sums[month][category] : 0;
+        }
+
+        int count(int month, int category) {
+            return category < counts[month].length ? counts[month][category] : 0;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+import java.util.concurrent.Executor;
+
+/**
+ * Hands ledger changes over to another thread, merging all changes that arrive before that
+ * thread gets to them into one. With {@code SwingUtilities::invokeLater} as executor, a burst of
+ * additions from any number of threads results in a single update on the event dispatch thread.
+ */
+public class CoalescingChangeListener implements LedgerChangeListener {
+    private final LedgerChangeListener delegate;
+    private final Executor executor;
+    private LedgerChange pending;
+
+    /**
+     * Creates a coalescing listener.
+     *
+     * @param delegate receives the merged changes
+     * @param executor runs the delivery, e.g. {@code SwingUtilities::invokeLater}
+     */
+    public CoalescingChangeListener(LedgerChangeListener delegate, Executor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override
+    public void ledgerChanged(LedgerChange change) {
+        synchronized (this) {
+            if (pending != null) {
+                // A delivery is already scheduled and will pick this change up
+                pending = pending.merge(change);
+                return;
+            }
+            pending = change;
+        }
+        executor.execute(this::deliver);
+    }
+
+    private void deliver() {
+        LedgerChange change;
+        synchronized (this) {
+            change = pending;
+            pending = null;
+        }
+        delegate.ledgerChanged(change);
+    }
+}
@@ -0,0 +1,495 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.IntConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * A versioned, column-oriented binary file holding a complete ledger.
+ * Every field is stored as its own contiguous column so the file can be memory-mapped and
+ * read without per-row object decoding:
+ *
+ * <pre>
+ * header        magic, version, row count, category count, description count, heap size
+ * amountCents   long[rows]   amount in cents
+ * epochDays     int[rows]    days since 1970-01-01
+ * categoryIds   int[rows]    index into the category dictionary
+ * descriptions  int[rows]    index into the description dictionary
+ * incomeFlags   long[words]  one bit per row, set for income
+ * categories    (short length, UTF-8 bytes)[category count]
+ * heapOffsets   int[description count + 1]
+ * heap          UTF-8 bytes of all distinct descriptions
+ * checksum      CRC32 of everything before it
+ * </pre>
+ *
+ * All values are little-endian and every section starts on an 8-byte boundary.
+ * Repeated descriptions and categories are stored once.
+ */
+public class ColumnarLedgerFile {
+    private static final int MAGIC = 0x434c4253; // "SBLC" in little-endian order
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_SIZE = 32;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    private static final int MAX_CATEGORY_BYTES = 0xffff;
+
+    /** Number of rows appended between two progress reports. */
+    public static final int APPEND_CHUNK_ROWS = 1 << 16;
+
+    private final ByteBuffer data;
+    private final int rowCount;
+    private final long amountsOffset;
+    private final long daysOffset;
+    private final long categoryIdsOffset;
+    private final long descriptionIdsOffset;
+    private final long incomeOffset;
+    private final String[] categories;
+    private final long heapOffsetsOffset;
+    private final long heapOffset;
+    private final int descriptionCount;
+    // Allocated on first use, so scans that never decode descriptions keep no per-description state
+    private String[] descriptionCache;
+
+    /**
+     * Interprets a mapped file; use {@link #open(Path)}.
+     */
+    private ColumnarLedgerFile(ByteBuffer data) throws IOException {
+        this.data = data.order(ByteOrder.LITTLE_ENDIAN);
+        if (data.capacity() < HEADER_SIZE + 4 || data.getInt(0) != MAGIC) {
+            throw new IOException("Not a columnar ledger file");
+        }
+        if (data.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Unsupported ledger file version " + data.getInt(4));
+        }
+
+        CRC32 crc = new CRC32();
+        ByteBuffer covered = data.duplicate();
+        covered.position(0).limit(data.capacity() - 4);
+        crc.update(covered);
+        if ((int) crc.getValue() != data.getInt(data.capacity() - 4)) {
+            throw new IOException("Ledger file checksum mismatch");
+        }
+
+        rowCount = data.getInt(8);
+        int categoryCount = data.getInt(12);
+        int descriptionCount = data.getInt(16);
+
+        amountsOffset = HEADER_SIZE;
+        daysOffset = align(amountsOffset + 8L * rowCount);
+        categoryIdsOffset = align(daysOffset + 4L * rowCount);
+        descriptionIdsOffset = align(categoryIdsOffset + 4L * rowCount);
+        incomeOffset = align(descriptionIdsOffset + 4L * rowCount);
+
+        long position = align(incomeOffset + 8L * words(rowCount));
+        categories = new String[categoryCount];
+        for (int i = 0; i < categoryCount; i++) {
+            int length = data.getShort((int) position) & 0xffff;
+            categories[i] = decode((int) position + 2, length);
+            position += 2 + length;
+        }
+
+        heapOffsetsOffset = align(position);
+        heapOffset = align(heapOffsetsOffset + 4L * (descriptionCount + 1));
+        this.descriptionCount = descriptionCount;
+    }
+
+    /**
+     * Memory-maps an existing ledger file and validates its header and checksum.
+     *
+     * @param file the file to open
+     * @return a reader over the mapped columns
+     * @throws IOException if the file cannot be mapped or is not a valid ledger file
+     */
+    public static ColumnarLedgerFile open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new ColumnarLedgerFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Tells whether the given file starts with the columnar ledger magic number.
+     *
+     * @param file the file to inspect
+     * @return true if the file looks like a columnar ledger file
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isColumnarFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                // Keep reading until the magic number is complete or the file ends
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Writes the first {@code rows} rows of a store to a new columnar ledger file, replacing any
+     * existing file. The store's dictionaries are written as the file's dictionaries, so ids are
+     * kept as they are. Other threads may keep appending to the store while it is written.
+     *
+     * @param file  the destination file
+     * @param store the rows to write, in ledger order
+     * @param rows  the number of rows to write, at most {@link TransactionStore#size()}
+     * @throws IOException if the file cannot be written, or a category name takes more than 65535
+     *                     bytes in UTF-8
+     */
+    public static void write(Path file, TransactionStore store, int rows) throws IOException {
+        StringDictionary categories = store.getCategories();
+        StringDictionary descriptions = store.getDescriptions();
+        // Read once: concurrent appends may add values, but never ones used by the rows written
+        int categoryCount = categories.size();
+        int descriptionCount = descriptions.size();
+
+        long heapSize = 0;
+        for (int i = 0; i < descriptionCount; i++) {
+            heapSize += utf8Length(descriptions.valueOf(i));
+        }
+        if (heapSize > Integer.MAX_VALUE) {
+            throw new IOException("Description heap too large: " + heapSize + " bytes");
+        }
+        // Category names are stored with a 16-bit length; refuse rather than truncate them
+        for (int i = 0; i < categoryCount; i++) {
+            if (utf8Length(categories.valueOf(i)) > MAX_CATEGORY_BYTES) {
+                throw new IOException("Category name longer than " + MAX_CATEGORY_BYTES + " bytes: category " + i);
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ColumnWriter out = new ColumnWriter(channel);
+            out.putInt(MAGIC);
+            out.putInt(FORMAT_VERSION);
+            out.putInt(rows);
+            out.putInt(categoryCount);
+            out.putInt(descriptionCount);
+            out.putInt(0); // Reserved
+            out.putLong(heapSize);
+
+            for (int i = 0; i < rows; i++) {
+                out.putLong(store.getAmountCents(i));
+            }
+            out.align();
+            for (int i = 0; i < rows; i++) {
+                out.putInt(store.getEpochDay(i));
+            }
+            out.align();
+            for (int i = 0; i < rows; i++) {
+                out.putInt(store.getCategoryId(i));
+            }
+            out.align();
+            for (int i = 0; i < rows; i++) {
+                out.putInt(store.getDescriptionId(i));
+            }
+            out.align();
+
+            long word = 0;
+            for (int i = 0; i < rows; i++) {
+                if (store.isIncome(i)) {
+                    word |= 1L << (i & 63);
+                }
+                if ((i & 63) == 63) {
+                    out.putLong(word);
+                    word = 0;
+                }
+            }
+            if ((rows & 63) != 0) {
+                out.putLong(word);
+            }
+
+            for (int i = 0; i < categoryCount; i++) {
+                byte[] bytes = categories.valueOf(i).getBytes(StandardCharsets.UTF_8);
+                out.putShort((short) bytes.length);
+                out.putBytes(bytes);
+            }
+            out.align();
+
+            int offset = 0;
+            out.putInt(offset);
+            for (int i = 0; i < descriptionCount; i++) {
+                offset += utf8Length(descriptions.valueOf(i));
+                out.putInt(offset);
+            }
+            out.align();
+            for (int i = 0; i < descriptionCount; i++) {
+                out.putBytes(descriptions.valueOf(i).getBytes(StandardCharsets.UTF_8));
+            }
+            out.finish();
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Returns the number of transactions stored in the file.
+     *
+     * @return the row count
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Returns the amount of a row in cents.
+     *
+     * @param row the row index
+     * @return the amount in cents
+     */
+    public long getAmountCents(int row) {
+        return data.getLong((int) (amountsOffset + 8L * row));
+    }
+
+    /**
+     * Returns the date of a row as days since 1970-01-01.
+     *
+     * @param row the row index
+     * @return the epoch day
+     */
+    public int getEpochDay(int row) {
+        return data.getInt((int) (daysOffset + 4L * row));
+    }
+
+    /**
+     * Returns the category dictionary id of a row.
+     *
+     * @param row the row index
+     * @return the category id, an index into {@link #getCategories()}
+     */
+    public int getCategoryId(int row) {
+        return data.getInt((int) (categoryIdsOffset + 4L * row));
+    }
+
+    /**
+     * Returns the description dictionary id of a row.
+     *
+     * @param row the row index
+     * @return the description id
+     */
+    public int getDescriptionId(int row) {
+        return data.getInt((int) (descriptionIdsOffset + 4L * row));
+    }
+
+    /**
+     * Tells whether a row is an income transaction.
+     *
+     * @param row the row index
+     * @return true for income, false for expenses
+     */
+    public boolean isIncome(int row) {
+        return (data.getLong((int) (incomeOffset + 8L * (row >>> 6))) & (1L << (row & 63))) != 0;
+    }
+
+    /**
+     * Returns the category dictionary.
+     *
+     * @return the distinct category names, indexed by category id
+     */
+    public String[] getCategories() {
+        return categories.clone();
+    }
+
+    /**
+     * Returns the number of distinct descriptions in the description heap.
+     *
+     * @return the description dictionary size
+     */
+    public int getDescriptionCount() {
+        return descriptionCount;
+    }
+
+    /**
+     * Decodes a description from the heap. Each distinct description is decoded only once.
+     *
+     * @param descriptionId the description id
+     * @return the description text
+     */
+    public String getDescription(int descriptionId) {
+        if (descriptionCache == null) {
+            descriptionCache = new String[descriptionCount];
+        }
+        String description = descriptionCache[descriptionId];
+        if (description == null) {
+            int start = data.getInt((int) (heapOffsetsOffset + 4L * descriptionId));
+            int end = data.getInt((int) (heapOffsetsOffset + 4L * (descriptionId + 1)));
+            description = decode((int) heapOffset + start, end - start);
+            descriptionCache[descriptionId] = description;
+        }
+        return description;
+    }
+
+    /**
+     * Returns the encoded bytes of a description without decoding or caching it.
+     *
+     * @param descriptionId the description id
+     * @return a read-only view of the UTF-8 bytes in the mapped file
+     */
+    public ByteBuffer getDescriptionBytes(int descriptionId) {
+        int start = data.getInt((int) (heapOffsetsOffset + 4L * descriptionId));
+        int end = data.getInt((int) (heapOffsetsOffset + 4L * (descriptionId + 1)));
+        return data.slice((int) heapOffset + start, end - start).asReadOnlyBuffer();
+    }
+
+    /**
+     * Appends every row of the file to a store, translating dictionary ids into the store's
+     * dictionaries. Each distinct category and description is decoded only once.
+     *
+     * @param store the store to append to
+     */
+    public void appendTo(TransactionStore store) {
+        appendTo(store, rows -> { });
+    }
+
+    /**
+     * Appends every row of the file to a store like {@link #appendTo(TransactionStore)}, reporting
+     * progress after every {@value #APPEND_CHUNK_ROWS} rows and at the end, so readers of the
+     * store can pick up rows while the rest are still being copied.
+     *
+     * @param store    the store to append to
+     * @param progress receives the number of rows of this file appended so far
+     */
+    public void appendTo(TransactionStore store, IntConsumer progress) {
+        store.ensureCapacity(store.size() + rowCount);
+        int[] categoryMap = new int[categories.length];
+        for (int i = 0; i < categories.length; i++) {
+            categoryMap[i] = store.getCategories().idOf(categories[i]);
+        }
+        int[] descriptionMap = new int[descriptionCount];
+        Arrays.fill(descriptionMap, -1);
+
+        for (int i = 0; i < rowCount; i++) {
+            int descriptionId = getDescriptionId(i);
+            if (descriptionMap[descriptionId] < 0) {
+                descriptionMap[descriptionId] = store.getDescriptions().idOf(getDescription(descriptionId));
+            }
+            store.add(getEpochDay(i), getAmountCents(i), categoryMap[getCategoryId(i)],
+                    descriptionMap[descriptionId], isIncome(i));
+            if (((i + 1) & (APPEND_CHUNK_ROWS - 1)) == 0) {
+                progress.accept(i + 1);
+            }
+        }
+        progress.accept(rowCount);
+    }
+
+    /**
+     * Decodes UTF-8 bytes at an absolute position of the mapped file.
+     */
+    private String decode(int position, int length) {
+        byte[] bytes = new byte[length];
+        data.get(position, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Rounds a file position up to the next 8-byte boundary.
+     */
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    /**
+     * Returns the number of 64-bit words needed for one bit per row.
+     */
+    private static int words(int rows) {
+        return (rows + 63) >>> 6;
+    }
+
+    /**
+     * Returns the number of bytes needed to encode a string as UTF-8.
+     */
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Buffered little-endian writer that tracks the file position and a running checksum.
+     */
+    private static class ColumnWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32 crc = new CRC32();
+        private long position;
+
+        ColumnWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+            position += 4;
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+            position += 8;
+        }
+
+        void putShort(short value) throws IOException {
+            ensure(2);
+            buffer.putShort(value);
+            position += 2;
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensure(1);
+                int chunk = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, chunk);
+                offset += chunk;
+            }
+            position += bytes.length;
+        }
+
+        /** Pads with zero bytes up to the next 8-byte boundary. */
+        void align() throws IOException {
+            while ((position & 7) != 0) {
+                ensure(1);
+                buffer.put((byte) 0);
+                position++;
+            }
+        }
+
+        /** Flushes the buffered bytes and appends the checksum trailer. */
+        void finish() throws IOException {
+            flush();
+            buffer.putInt((int) crc.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+
+/**
+ * Streams transactions from a {@link TransactionStore} to a CSV file.
+ * Rows are encoded straight into a direct byte buffer that is written through a
+ * {@link FileChannel}; dates and amounts are formatted by hand rather than with
+ * {@code String.format}, and category and type columns are encoded once per distinct value.
+ * The output layout is the same as before: {@code Date,Description,Amount,Category,Type} with
+ * text columns quoted and embedded quotes doubled. Line breaks inside a text are written as
+ * spaces, because {@link CsvImporter} reads one transaction per line.
+ *
+ * <p>The exporter has no Swing dependencies and is meant to run on a background thread; it
+ * reports progress through a callback and stops when asked to cancel.</p>
+ */
+public class CsvExporter {
+    /** Header line written at the top of every export. */
+    public static final String HEADER = "Date,Description,Amount,Category,Type";
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final int PROGRESS_INTERVAL = 1 << 14;
+    private static final byte[] INCOME = quote("Income");
+    private static final byte[] EXPENSE = quote("Expense");
+
+    private final TransactionStore store;
+    private int fromEpochDay = Integer.MIN_VALUE;
+    private int toEpochDay = Integer.MAX_VALUE;
+    private String filterType = "All";
+
+    /**
+     * Creates an exporter for all rows of a store.
+     *
+     * @param store the store to export
+     */
+    public CsvExporter(TransactionStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Restricts the export to an inclusive range of dates.
+     *
+     * @param fromEpochDay the first day to include, or {@code Integer.MIN_VALUE} for no lower bound
+     * @param toEpochDay   the last day to include, or {@code Integer.MAX_VALUE} for no upper bound
+     */
+    public void setDateRange(int fromEpochDay, int toEpochDay) {
+        this.fromEpochDay = fromEpochDay;
+        this.toEpochDay = toEpochDay;
+    }
+
+    /**
+     * Restricts the export to one type of transaction.
+     *
+     * @param filterType the type of transactions to export ("All", "Income", or "Expense")
+     */
+    public void setTypeFilter(String filterType) {
+        this.filterType = filterType;
+    }
+
+    /**
+     * Writes the selected rows to a file. If the export is cancelled the partial file is deleted.
+     *
+     * @param file      the destination file
+     * @param progress  receives the number of rows examined so far (out of {@link TransactionStore#size()})
+     * @param cancelled polled regularly; returning true stops the export
+     * @return the number of rows written, or -1 if the export was cancelled
+     * @throws IOException if the file cannot be written
+     */
+    public int export(Path file, IntConsumer progress, BooleanSupplier cancelled) throws IOException {
+        int rows = store.size();
+        boolean all = filterType.equals("All");
+        boolean wantIncome = filterType.equals("Income");
+        byte[][] categories = new byte[store.getCategories().size()][];
+        int written = 0;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.put((HEADER + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+            byte[] newline = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+            for (int row = 0; row < rows; row++) {
+                if ((row & (PROGRESS_INTERVAL - 1)) == 0) {
+                    if (cancelled.getAsBoolean()) {
+                        written = -1;
+                        break;
+                    }
+                    progress.accept(row);
+                }
+
+                int day = store.getEpochDay(row);
+                boolean income = store.isIncome(row);
+                if (day < fromEpochDay || day > toEpochDay || (!all && income != wantIncome)) {
+                    continue;
+                }
+
+                int categoryId = store.getCategoryId(row);
+                if (categories[categoryId] == null) {
+                    categories[categoryId] = quote(store.getCategories().valueOf(categoryId));
+                }
+                byte[] description = quote(store.getDescription(row));
+                byte[] type = income ? INCOME : EXPENSE;
+
+                // Longest fixed part: quoted date, amount up to 22 characters and four commas
+                int needed = 12 + 1 + description.length + 1 + 22 + 1 + categories[categoryId].length + 1
+                        + type.length + newline.length;
+                if (buffer.remaining() < needed) {
+                    drain(buffer, channel);
+                    if (buffer.remaining() < needed) {
+                        buffer = ByteBuffer.allocateDirect(needed);
+                    }
+                }
+
+                buffer.put((byte) '"');
+                putDate(buffer, day);
+                buffer.put((byte) '"').put((byte) ',');
+                buffer.put(description).put((byte) ',');
+                putCents(buffer, store.getAmountCents(row));
+                buffer.put((byte) ',');
+                buffer.put(categories[categoryId]).put((byte) ',');
+                buffer.put(type);
+                buffer.put(newline);
+                written++;
+            }
+
+            if (written >= 0) {
+                drain(buffer, channel);
+                progress.accept(rows);
+            }
+        }
+
+        if (written < 0) {
+            Files.deleteIfExists(file);
+        }
+        return written;
+    }
+
+    /**
+     * Writes the buffered bytes to the channel and clears the buffer.
+     */
+    private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Encodes a value as a quoted CSV field with embedded quotes doubled and line breaks replaced
+     * by spaces.
+     */
+    static byte[] quote(String value) {
+        String text = value == null ? "" : value;
+        if (text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            text = text.replace("\r\n", " ").replace('\r', ' ').replace('\n', ' ');
+        }
+        if (text.indexOf('"') >= 0) {
+            text = text.replace("\"", "\"\"");
+        }
+        return ('"' + text + '"').getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes an epoch day as YYYY-MM-DD using the proleptic Gregorian civil-from-days algorithm.
+     */
+    static void putDate(ByteBuffer buffer, int epochDay) {
+        long z = epochDay + 719468L;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        if (year < 0 || year > 9999) {
+            buffer.put(java.time.LocalDate.ofEpochDay(epochDay).toString().getBytes(StandardCharsets.US_ASCII));
+            return;
+        }
+        int y = (int) year;
+        buffer.put((byte) ('0' + y / 1000)).put((byte) ('0' + y / 100 % 10))
+                .put((byte) ('0' + y / 10 % 10)).put((byte) ('0' + y % 10));
+        buffer.put((byte) '-').put((byte) ('0' + month / 10)).put((byte) ('0' + month % 10));
+        buffer.put((byte) '-').put((byte) ('0' + day / 10)).put((byte) ('0' + day % 10));
+    }
+
+    /**
+     * Writes an amount in cents with exactly two decimals, e.g. 1234 as 12.34.
+     */
+    static void putCents(ByteBuffer buffer, long cents) {
+        if (cents < 0) {
+            buffer.put((byte) '-');
+            if (cents == Long.MIN_VALUE) {
+                buffer.put("92233720368547758.08".getBytes(StandardCharsets.US_ASCII));
+                return;
+            }
+            cents = -cents;
+        }
+        long units = cents / 100;
+        int fraction = (int) (cents % 100);
+
+        int length = 1;
+        for (long rest = units / 10; rest != 0; rest /= 10) {
+            length++;
+        }
+        int start = buffer.position();
+        for (int i = start + length - 1; i >= start; i--) {
+            buffer.put(i, (byte) ('0' + units % 10));
+            units /= 10;
+        }
+        buffer.position(start + length);
+        buffer.put((byte) '.').put((byte) ('0' + fraction / 10)).put((byte) ('0' + fraction % 10));
+    }
+}
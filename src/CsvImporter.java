@@ -0,0 +1,312 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Parses CSV files in the layout written by {@link CsvExporter}
+ * ({@code Date,Description,Amount,Category,Type}) into transactions for a bulk import.
+ * The file is memory-mapped, cut into chunks at line boundaries and the chunks are parsed in
+ * parallel; the results are merged back in file order. Lines that fail validation are skipped
+ * and reported with their line number.
+ *
+ * <p>Quoted fields may contain commas and doubled quotes but not line breaks: lines are split
+ * into chunks for parallel parsing without looking at quotes. {@link CsvExporter} writes line
+ * breaks inside descriptions as spaces, so its files always import.</p>
+ */
+public class CsvImporter {
+    /** Upper bound on the number of error messages kept in a result. */
+    public static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final int CHUNK_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * The outcome of parsing a file.
+     */
+    public static class Result {
+        private final List<Transaction> transactions;
+        private final List<String> errors;
+        private final int errorCount;
+
+        Result(List<Transaction> transactions, List<String> errors, int errorCount) {
+            this.transactions = transactions;
+            this.errors = errors;
+            this.errorCount = errorCount;
+        }
+
+        /** @return the valid transactions in file order */
+        public List<Transaction> getTransactions() { return transactions; }
+
+        /** @return messages for rejected lines, at most {@link #MAX_REPORTED_ERRORS} */
+        public List<String> getErrors() { return errors; }
+
+        /** @return the total number of rejected lines */
+        public int getErrorCount() { return errorCount; }
+    }
+
+    /**
+     * Parses a CSV file. A first line starting with {@code Date,} is treated as the header.
+     *
+     * @param file the file to parse
+     * @return the valid transactions and the rejected lines
+     * @throws IOException if the file cannot be read or is larger than 2 GB
+     */
+    public Result parse(Path file) throws IOException {
+        ByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("File too large to import: " + channel.size() + " bytes");
+            }
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        // Cut the file into chunks that end right after a line break
+        List<int[]> bounds = new ArrayList<>();
+        int limit = data.limit();
+        int start = 0;
+        while (start < limit) {
+            int end = Math.min(limit, start + CHUNK_SIZE);
+            while (end < limit && data.get(end - 1) != '\n') {
+                end++;
+            }
+            bounds.add(new int[]{start, end});
+            start = end;
+        }
+
+        List<Chunk> chunks = IntStream.range(0, bounds.size()).parallel()
+                .mapToObj(i -> parseChunk(data, bounds.get(i)[0], bounds.get(i)[1], i == 0))
+                .collect(Collectors.toList());
+
+        // Merge in file order, turning chunk-relative line numbers into absolute ones
+        List<Transaction> transactions = new ArrayList<>(chunks.stream().mapToInt(c -> c.transactions.size()).sum());
+        List<String> errors = new ArrayList<>();
+        int errorCount = 0;
+        int firstLine = 1;
+        for (Chunk chunk : chunks) {
+            transactions.addAll(chunk.transactions);
+            for (int i = 0; i < chunk.errorLines.size(); i++) {
+                if (errors.size() < MAX_REPORTED_ERRORS) {
+                    errors.add("Line " + (firstLine + chunk.errorLines.get(i)) + ": " + chunk.errorMessages.get(i));
+                }
+                errorCount++;
+            }
+            firstLine += chunk.lineCount;
+        }
+        return new Result(transactions, errors, errorCount);
+    }
+
+    /**
+     * Parses the lines in {@code [start, end)}.
+     */
+    private static Chunk parseChunk(ByteBuffer data, int start, int end, boolean firstChunk) {
+        Chunk chunk = new Chunk();
+        LineParser parser = new LineParser(data);
+        int lineStart = start;
+        while (lineStart < end) {
+            int lineEnd = lineStart;
+            while (lineEnd < end && data.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int contentEnd = lineEnd;
+            if (contentEnd > lineStart && data.get(contentEnd - 1) == '\r') {
+                contentEnd--;
+            }
+
+            boolean header = firstChunk && chunk.lineCount == 0 && startsWith(data, lineStart, contentEnd, "Date,");
+            if (!header && contentEnd > lineStart) {
+                try {
+                    chunk.transactions.add(parser.parse(lineStart, contentEnd));
+                } catch (IllegalArgumentException e) {
+                    chunk.errorLines.add(chunk.lineCount);
+                    chunk.errorMessages.add(e.getMessage());
+                }
+            }
+            chunk.lineCount++;
+            lineStart = lineEnd + 1;
+        }
+        return chunk;
+    }
+
+    private static boolean startsWith(ByteBuffer data, int start, int end, String prefix) {
+        if (end - start < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (data.get(start + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Results of one chunk; line numbers are relative to the chunk's first line.
+     */
+    private static class Chunk {
+        final List<Transaction> transactions = new ArrayList<>();
+        final List<Integer> errorLines = new ArrayList<>();
+        final List<String> errorMessages = new ArrayList<>();
+        int lineCount;
+    }
+
+    /**
+     * Splits one line into fields and converts them. Not thread-safe; one per chunk.
+     */
+    private static class LineParser {
+        private final ByteBuffer data;
+        private final Map<String, String> categories = new HashMap<>();
+        private byte[] field = new byte[256];
+        private int fieldLength;
+        private int position;
+
+        LineParser(ByteBuffer data) {
+            this.data = data;
+        }
+
+        Transaction parse(int start, int end) {
+            position = start;
+            int epochDay = parseDate(nextField(end));
+            String description = nextField(end);
+            long cents = parseCents(nextField(end));
+            String category = categories.computeIfAbsent(nextField(end), c -> c);
+            String type = nextField(end);
+            if (position <= end) {
+                throw new IllegalArgumentException("too many fields");
+            }
+            if (description.isEmpty()) {
+                throw new IllegalArgumentException("description cannot be empty");
+            }
+
+            boolean isIncome;
+            if (type.equalsIgnoreCase("Income")) {
+                isIncome = true;
+            } else if (type.equalsIgnoreCase("Expense")) {
+                isIncome = false;
+            } else {
+                throw new IllegalArgumentException("unknown type '" + type + "'");
+            }
+            Transaction transaction = new Transaction(epochDay, description, cents, category, isIncome);
+            transaction.checkTextLengths();
+            return transaction;
+        }
+
+        /**
+         * Reads the next field, unquoting it if needed, and moves past the following comma.
+         * After the last field the position is past {@code end}.
+         */
+        private String nextField(int end) {
+            if (position > end) {
+                throw new IllegalArgumentException("too few fields");
+            }
+            fieldLength = 0;
+            if (position < end && data.get(position) == '"') {
+                position++;
+                while (true) {
+                    if (position >= end) {
+                        throw new IllegalArgumentException("unterminated quoted field");
+                    }
+                    byte b = data.get(position++);
+                    if (b == '"') {
+                        if (position < end && data.get(position) == '"') {
+                            append(b);
+                            position++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        append(b);
+                    }
+                }
+                if (position < end && data.get(position) != ',') {
+                    throw new IllegalArgumentException("unexpected text after quoted field");
+                }
+            } else {
+                while (position < end && data.get(position) != ',') {
+                    append(data.get(position++));
+                }
+            }
+            position++; // Skip the comma, or step past the end of the line
+            return new String(field, 0, fieldLength, StandardCharsets.UTF_8);
+        }
+
+        private void append(byte b) {
+            if (fieldLength == field.length) {
+                field = Arrays.copyOf(field, fieldLength * 2);
+            }
+            field[fieldLength++] = b;
+        }
+
+        /**
+         * Parses YYYY-MM-DD into an epoch day.
+         */
+        private static int parseDate(String text) {
+            if (text.length() != 10 || text.charAt(4) != '-' || text.charAt(7) != '-') {
+                throw new IllegalArgumentException("invalid date '" + text + "'");
+            }
+            int year = digits(text, 0, 4);
+            int month = digits(text, 5, 7);
+            int day = digits(text, 8, 10);
+            if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31) {
+                throw new IllegalArgumentException("invalid date '" + text + "'");
+            }
+            try {
+                return (int) java.time.LocalDate.of(year, month, day).toEpochDay();
+            } catch (java.time.DateTimeException e) {
+                throw new IllegalArgumentException("invalid date '" + text + "'");
+            }
+        }
+
+        private static int digits(String text, int from, int to) {
+            int value = 0;
+            for (int i = from; i < to; i++) {
+                char c = text.charAt(i);
+                if (c < '0' || c > '9') {
+                    return -1;
+                }
+                value = value * 10 + (c - '0');
+            }
+            return value;
+        }
+
+        /**
+         * Parses an amount with at most two decimals into cents.
+         */
+        private static long parseCents(String text) {
+            int i = 0;
+            boolean negative = false;
+            if (i < text.length() && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+                negative = text.charAt(i) == '-';
+                i++;
+            }
+            long units = 0;
+            int integerDigits = 0;
+            for (; i < text.length() && text.charAt(i) != '.'; i++) {
+                char c = text.charAt(i);
+                if (c < '0' || c > '9' || ++integerDigits > 15) {
+                    throw new IllegalArgumentException("invalid amount '" + text + "'");
+                }
+                units = units * 10 + (c - '0');
+            }
+            long fraction = 0;
+            int decimals = 0;
+            if (i < text.length()) {
+                for (i++; i < text.length(); i++) {
+                    char c = text.charAt(i);
+                    if (c < '0' || c > '9' || ++decimals > 2) {
+                        throw new IllegalArgumentException("invalid amount '" + text + "'");
+                    }
+                    fraction = fraction * 10 + (c - '0');
+                }
+            }
+            if (integerDigits == 0 && decimals == 0) {
+                throw new IllegalArgumentException("invalid amount '" + text + "'");
+            }
+            long cents = units * 100 + (decimals == 1 ? fraction * 10 : fraction);
+            return negative ? -cents : cents;
+        }
+    }
+}
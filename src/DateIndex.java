@@ -0,0 +1,468 @@
+import java.util.*;
+
+/**
+ * Orders the rows of a {@link TransactionStore} by date and keeps per-day totals, so date-window
+ * queries take O(log n) instead of a scan over every row.
+ *
+ * <p>Two structures are maintained:</p>
+ * <ul>
+ *   <li>A permutation of row ids sorted by (epoch day, row id), kept next to the sorted days so
+ *       a window is found by binary search. Rows dated on or after the latest day are appended
+ *       in O(1). Back-dated rows go into a small sorted side buffer that is searched alongside
+ *       and merged into the main arrays once it holds about {@code sqrt(n)} rows, which keeps
+ *       both the insertion and the amortized merge cost at O(sqrt(n)) per back-dated row.</li>
+ *   <li>Fenwick trees over the distinct days that have rows (income and expense cents and
+ *       counts), keyed by each day's rank, so the totals of any inclusive date range take two
+ *       binary searches and two prefix sums. Memory follows the number of distinct days, not the
+ *       span between the earliest and latest date, so a stray far-off date costs one slot. A
+ *       row on a new latest day extends the trees in O(log d); a back-dated row on a day not seen
+ *       before inserts its slot and rebuilds the trees in O(d) for d distinct days.</li>
+ * </ul>
+ *
+ * <p>Row ids in the store never change; the index only holds a separate ordering. Like the other
+ * aggregates it is not thread-safe on its own; {@link TransactionManager} guards it.</p>
+ */
+public class DateIndex {
+    private static final int MIN_PENDING_LIMIT = 1024;
+    private static final int INITIAL_DAYS = 64;
+
+    // Sorted main arrays
+    private int[] sortedRows = new int[0];
+    private int[] sortedDays = new int[0];
+    private int sortedSize;
+
+    // Sorted side buffer for back-dated rows
+    private int[] pendingRows = new int[MIN_PENDING_LIMIT];
+    private int[] pendingDays = new int[MIN_PENDING_LIMIT];
+    private int pendingSize;
+
+    // Fenwick trees over the distinct days: slot i holds days[i], ascending; slots from dayCount
+    // on are unused and stay zero
+    private int[] days = new int[0];
+    private int dayCount;
+    private long[] incomeCents = new long[0];
+    private long[] expenseCents = new long[0];
+    private long[] incomeCounts = new long[0];
+    private long[] expenseCounts = new long[0];
+
+    /**
+     * Returns the number of indexed rows.
+     *
+     * @return the number of rows added or rebuilt into the index
+     */
+    public int size() {
+        return sortedSize + pendingSize;
+    }
+
+    /**
+     * Adds newly appended store rows. Small batches are inserted row by row; a batch larger than
+     * the side buffer would hold rebuilds the whole index instead, which is linear.
+     *
+     * @param store   the store holding the rows
+     * @param fromRow the first new row
+     * @param toRow   the row after the last new row
+     */
+    public void addRows(TransactionStore store, int fromRow, int toRow) {
+        if (toRow - fromRow > pendingLimit()) {
+            rebuild(store, toRow);
+            return;
+        }
+        for (int row = fromRow; row < toRow; row++) {
+            add(row, store.getEpochDay(row), store.getAmountCents(row), store.isIncome(row));
+        }
+    }
+
+    /**
+     * Adds one row. Rows must be added in row id order.
+     *
+     * @param row         the row id in the store
+     * @param epochDay    the date as days since 1970-01-01
+     * @param amountCents the amount in cents
+     * @param isIncome    true for income, false for expenses
+     */
+    public void add(int row, int epochDay, long amountCents, boolean isIncome) {
+        int slot = daySlot(epochDay);
+        if (isIncome) {
+            addTo(incomeCents, slot, amountCents);
+            addTo(incomeCounts, slot, 1);
+        } else {
+            addTo(expenseCents, slot, amountCents);
+            addTo(expenseCounts, slot, 1);
+        }
+
+        if (sortedSize == 0 || epochDay >= sortedDays[sortedSize - 1]) {
+            // In date order; the new row id is larger than every indexed one
+            if (sortedSize == sortedRows.length) {
+                int capacity = Math.max(16, sortedSize + (sortedSize >> 1));
+                sortedRows = Arrays.copyOf(sortedRows, capacity);
+                sortedDays = Arrays.copyOf(sortedDays, capacity);
+            }
+            sortedRows[sortedSize] = row;
+            sortedDays[sortedSize] = epochDay;
+            sortedSize++;
+            return;
+        }
+
+        // Back-dated: equal days keep row order, so insert after the last entry of the same day
+        int at = upperBound(pendingDays, pendingSize, epochDay);
+        if (pendingSize == pendingRows.length) {
+            pendingRows = Arrays.copyOf(pendingRows, pendingSize * 2);
+            pendingDays = Arrays.copyOf(pendingDays, pendingSize * 2);
+        }
+        System.arraycopy(pendingRows, at, pendingRows, at + 1, pendingSize - at);
+        System.arraycopy(pendingDays, at, pendingDays, at + 1, pendingSize - at);
+        pendingRows[at] = row;
+        pendingDays[at] = epochDay;
+        pendingSize++;
+        if (pendingSize > pendingLimit()) {
+            mergePending();
+        }
+    }
+
+    /**
+     * Discards the index and rebuilds it from the first {@code rows} rows of a store. Rows are
+     * ordered with a counting sort by day, in O(rows + days), when their dates are dense, and
+     * with a comparison sort otherwise, so the work never depends on the span of the dates.
+     *
+     * @param store the store
+     * @param rows  the number of rows to index
+     */
+    public void rebuild(TransactionStore store, int rows) {
+        sortedSize = 0;
+        pendingSize = 0;
+        dayCount = 0;
+        days = new int[0];
+        incomeCents = new long[0];
+        expenseCents = new long[0];
+        incomeCounts = new long[0];
+        expenseCounts = new long[0];
+        if (rows == 0) {
+            sortedRows = new int[0];
+            sortedDays = new int[0];
+            return;
+        }
+        sortByDay(store, rows);
+
+        // One slot per distinct day, in day order, holding that day's totals
+        int distinct = 1;
+        for (int i = 1; i < rows; i++) {
+            if (sortedDays[i] != sortedDays[i - 1]) {
+                distinct++;
+            }
+        }
+        int capacity = distinct + (distinct >> 3) + 1;
+        days = new int[capacity];
+        incomeCents = new long[capacity];
+        expenseCents = new long[capacity];
+        incomeCounts = new long[capacity];
+        expenseCounts = new long[capacity];
+        int slot = -1;
+        for (int i = 0; i < rows; i++) {
+            if (slot < 0 || sortedDays[i] != days[slot]) {
+                days[++slot] = sortedDays[i];
+            }
+            int row = sortedRows[i];
+            if (store.isIncome(row)) {
+                incomeCents[slot] += store.getAmountCents(row);
+                incomeCounts[slot]++;
+            } else {
+                expenseCents[slot] += store.getAmountCents(row);
+                expenseCounts[slot]++;
+            }
+        }
+        dayCount = distinct;
+
+        buildTree(incomeCents, dayCount);
+        buildTree(expenseCents, dayCount);
+        buildTree(incomeCounts, dayCount);
+        buildTree(expenseCounts, dayCount);
+    }
+
+    /**
+     * Fills the main sorted arrays with the first {@code rows} rows ordered by (day, row id).
+     */
+    private void sortByDay(TransactionStore store, int rows) {
+        int minDay = Integer.MAX_VALUE;
+        int maxDay = Integer.MIN_VALUE;
+        for (int row = 0; row < rows; row++) {
+            int day = store.getEpochDay(row);
+            minDay = Math.min(minDay, day);
+            maxDay = Math.max(maxDay, day);
+        }
+        sortedRows = new int[rows + (rows >> 3)];
+        sortedDays = new int[sortedRows.length];
+        sortedSize = rows;
+
+        long span = (long) maxDay - minDay + 1;
+        if (span <= 2L * rows + MIN_PENDING_LIMIT) {
+            // Dense dates: count the rows of every day, then place each row after its day's start
+            int[] starts = new int[(int) span + 1];
+            for (int row = 0; row < rows; row++) {
+                starts[store.getEpochDay(row) - minDay + 1]++;
+            }
+            for (int slot = 0; slot < span; slot++) {
+                starts[slot + 1] += starts[slot];
+            }
+            for (int row = 0; row < rows; row++) {
+                int day = store.getEpochDay(row);
+                int position = starts[day - minDay]++;
+                sortedRows[position] = row;
+                sortedDays[position] = day;
+            }
+            return;
+        }
+
+        // Sparse dates, e.g. a mistyped year: sort (day, row) pairs instead of counting every day
+        long[] keys = new long[rows];
+        for (int row = 0; row < rows; row++) {
+            keys[row] = ((long) store.getEpochDay(row) << 32) | row;
+        }
+        Arrays.sort(keys);
+        for (int i = 0; i < rows; i++) {
+            sortedDays[i] = (int) (keys[i] >> 32);
+            sortedRows[i] = (int) keys[i];
+        }
+    }
+
+    /**
+     * Returns the rows dated within an inclusive range, ordered by date and then by row id.
+     *
+     * @param fromDay the first epoch day
+     * @param toDay   the last epoch day
+     * @return the row ids; empty if the range is reversed
+     */
+    public int[] rowsBetween(int fromDay, int toDay) {
+        if (fromDay > toDay) {
+            return new int[0];
+        }
+        int sortedFrom = lowerBound(sortedDays, sortedSize, fromDay);
+        int sortedTo = upperBound(sortedDays, sortedSize, toDay);
+        int pendingFrom = lowerBound(pendingDays, pendingSize, fromDay);
+        int pendingTo = upperBound(pendingDays, pendingSize, toDay);
+
+        int[] rows = new int[(sortedTo - sortedFrom) + (pendingTo - pendingFrom)];
+        merge(sortedRows, sortedDays, sortedFrom, sortedTo, pendingRows, pendingDays, pendingFrom, pendingTo, rows);
+        return rows;
+    }
+
+    /**
+     * Returns the income and expense totals of an inclusive date range.
+     *
+     * @param fromDay the first epoch day
+     * @param toDay   the last epoch day
+     * @return an array where index 0 contains total income and index 1 total expenses
+     */
+    public double[] getSummary(int fromDay, int toDay) {
+        return new double[]{rangeSum(incomeCents, fromDay, toDay) / 100.0, rangeSum(expenseCents, fromDay, toDay) / 100.0};
+    }
+
+    /**
+     * Returns the income and expense totals of an inclusive date range in cents.
+     *
+     * @param fromDay the first epoch day
+     * @param toDay   the last epoch day
+     * @return an array where index 0 contains total income and index 1 total expenses
+     */
+    public long[] getTotalCents(int fromDay, int toDay) {
+        return new long[]{rangeSum(incomeCents, fromDay, toDay), rangeSum(expenseCents, fromDay, toDay)};
+    }
+
+    /**
+     * Returns the number of income and expense transactions in an inclusive date range.
+     *
+     * @param fromDay the first epoch day
+     * @param toDay   the last epoch day
+     * @return an array where index 0 contains the income count and index 1 the expense count
+     */
+    public int[] getCounts(int fromDay, int toDay) {
+        return new int[]{(int) rangeSum(incomeCounts, fromDay, toDay), (int) rangeSum(expenseCounts, fromDay, toDay)};
+    }
+
+    /**
+     * Returns the number of side-buffer rows that triggers a merge, about the square root of the
+     * index size.
+     */
+    private int pendingLimit() {
+        return Math.max(MIN_PENDING_LIMIT, (int) Math.sqrt(size()));
+    }
+
+    /**
+     * Merges the side buffer into the main sorted arrays.
+     */
+    private void mergePending() {
+        int size = sortedSize + pendingSize;
+        int[] rows = new int[size + (size >> 3)];
+        int[] days = new int[rows.length];
+        merge(sortedRows, sortedDays, 0, sortedSize, pendingRows, pendingDays, 0, pendingSize, rows, days);
+        sortedRows = rows;
+        sortedDays = days;
+        sortedSize = size;
+        pendingSize = 0;
+    }
+
+    private static void merge(int[] aRows, int[] aDays, int aFrom, int aTo,
+                              int[] bRows, int[] bDays, int bFrom, int bTo, int[] outRows) {
+        merge(aRows, aDays, aFrom, aTo, bRows, bDays, bFrom, bTo, outRows, null);
+    }
+
+    /**
+     * Merges two ranges ordered by (day, row) into the output arrays; {@code outDays} may be null.
+     */
+    private static void merge(int[] aRows, int[] aDays, int aFrom, int aTo,
+                              int[] bRows, int[] bDays, int bFrom, int bTo, int[] outRows, int[] outDays) {
+        int a = aFrom;
+        int b = bFrom;
+        int out = 0;
+        while (a < aTo || b < bTo) {
+            boolean takeA = b >= bTo
+                    || (a < aTo && (aDays[a] < bDays[b] || (aDays[a] == bDays[b] && aRows[a] < bRows[b])));
+            if (takeA) {
+                if (outDays != null) {
+                    outDays[out] = aDays[a];
+                }
+                outRows[out++] = aRows[a++];
+            } else {
+                if (outDays != null) {
+                    outDays[out] = bDays[b];
+                }
+                outRows[out++] = bRows[b++];
+            }
+        }
+    }
+
+    /**
+     * Returns the first position whose day is at least {@code day}.
+     */
+    private static int lowerBound(int[] days, int size, int day) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (days[mid] < day) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the first position whose day is greater than {@code day}.
+     */
+    private static int upperBound(int[] days, int size, int day) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (days[mid] <= day) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Sums a tree over the days seen within an inclusive day range.
+     */
+    private long rangeSum(long[] tree, int fromDay, int toDay) {
+        if (fromDay > toDay) {
+            return 0;
+        }
+        int from = lowerBound(days, dayCount, fromDay);
+        int to = upperBound(days, dayCount, toDay) - 1;
+        if (from > to) {
+            return 0;
+        }
+        return prefixSum(tree, to) - prefixSum(tree, from - 1);
+    }
+
+    /**
+     * Returns the tree slot of a day, adding a slot if the day has not been seen. A new latest day
+     * is appended to the trees; an earlier one is inserted and the trees are rebuilt.
+     */
+    private int daySlot(int epochDay) {
+        int slot = lowerBound(days, dayCount, epochDay);
+        if (slot < dayCount && days[slot] == epochDay) {
+            return slot;
+        }
+        if (dayCount == days.length) {
+            // Unused slots are zero and a used slot's range does not depend on the length
+            int capacity = Math.max(INITIAL_DAYS, dayCount * 2);
+            days = Arrays.copyOf(days, capacity);
+            incomeCents = Arrays.copyOf(incomeCents, capacity);
+            expenseCents = Arrays.copyOf(expenseCents, capacity);
+            incomeCounts = Arrays.copyOf(incomeCounts, capacity);
+            expenseCounts = Arrays.copyOf(expenseCounts, capacity);
+        }
+        if (slot == dayCount) {
+            appendSlot(incomeCents, slot);
+            appendSlot(expenseCents, slot);
+            appendSlot(incomeCounts, slot);
+            appendSlot(expenseCounts, slot);
+        } else {
+            insertSlot(incomeCents, slot, dayCount);
+            insertSlot(expenseCents, slot, dayCount);
+            insertSlot(incomeCounts, slot, dayCount);
+            insertSlot(expenseCounts, slot, dayCount);
+            System.arraycopy(days, slot, days, slot + 1, dayCount - slot);
+        }
+        days[slot] = epochDay;
+        dayCount++;
+        return slot;
+    }
+
+    /**
+     * Sets a new last slot, whose day has no value yet, to the sum of the earlier days it covers.
+     */
+    private static void appendSlot(long[] tree, int slot) {
+        tree[slot] = prefixSum(tree, slot - 1) - prefixSum(tree, (slot & (slot + 1)) - 1);
+    }
+
+    /**
+     * Inserts an empty day at a slot of a tree with {@code count} used slots, in linear time.
+     */
+    private static void insertSlot(long[] tree, int slot, int count) {
+        // Undo the linear build to recover the per-day values
+        for (int i = count - 1; i >= 0; i--) {
+            int parent = i | (i + 1);
+            if (parent < count) {
+                tree[parent] -= tree[i];
+            }
+        }
+        System.arraycopy(tree, slot, tree, slot + 1, count - slot);
+        tree[slot] = 0;
+        buildTree(tree, count + 1);
+    }
+
+    /**
+     * Turns the first {@code count} per-day values into a Fenwick tree in place.
+     */
+    private static void buildTree(long[] values, int count) {
+        for (int i = 0; i < count; i++) {
+            int parent = i | (i + 1);
+            if (parent < count) {
+                values[parent] += values[i];
+            }
+        }
+    }
+
+    private void addTo(long[] tree, int slot, long value) {
+        for (int i = slot; i < dayCount; i |= i + 1) {
+            tree[i] += value;
+        }
+    }
+
+    /**
+     * Sums the values of slots 0 to {@code slot} inclusive; 0 for a negative slot.
+     */
+    private static long prefixSum(long[] tree, int slot) {
+        long sum = 0;
+        for (int i = slot; i >= 0; i = (i & (i + 1)) - 1) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+}
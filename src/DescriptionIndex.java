@@ -0,0 +1,258 @@
+import java.util.*;
+
+/**
+ * Inverted index over transaction descriptions for search-as-you-type.
+ *
+ * <p>Descriptions are already dictionary-encoded in the {@link TransactionStore}, so the index
+ * works on distinct descriptions rather than rows:</p>
+ * <ul>
+ *   <li>Every distinct description is split into lower-case words once, and a sorted map from
+ *       word to the ids of the descriptions containing it answers prefix lookups with a range
+ *       scan: {@code "burg"} finds every word from {@code "burg"} up to the next prefix.</li>
+ *   <li>A posting list per description holds the row ids using it, in ascending order, so
+ *       matching descriptions expand to rows without touching any other row.</li>
+ * </ul>
+ *
+ * <p>A query matches a row when every query word is a prefix of some word of the description,
+ * so typing narrows the result one keystroke at a time. Rows must be added in row id order. Like
+ * the other aggregates the index is not thread-safe on its own; {@link TransactionManager}
+ * guards it.</p>
+ */
+public class DescriptionIndex {
+    /** Results with at most this many postings are merged by sorting; larger ones through a bitmap. */
+    private static final int SORT_LIMIT = 4096;
+
+    private final NavigableMap<String, Postings> words = new TreeMap<>();
+    private Postings[] rowsByDescription = new Postings[16];
+    private int indexedDescriptions;
+    private int rows;
+
+    /**
+     * Returns the number of indexed rows.
+     *
+     * @return the number of rows added or rebuilt into the index
+     */
+    public int size() {
+        return rows;
+    }
+
+    /**
+     * Adds newly appended store rows.
+     *
+     * @param store   the store holding the rows
+     * @param fromRow the first new row
+     * @param toRow   the row after the last new row
+     */
+    public void addRows(TransactionStore store, int fromRow, int toRow) {
+        for (int row = fromRow; row < toRow; row++) {
+            add(store, row);
+        }
+    }
+
+    /**
+     * Adds one newly appended store row.
+     *
+     * @param store the store holding the row
+     * @param row   the row id; larger than every indexed row
+     */
+    public void add(TransactionStore store, int row) {
+        int description = store.getDescriptionId(row);
+        if (description >= indexedDescriptions) {
+            indexDescriptions(store.getDescriptions(), description + 1);
+        }
+        Postings postings = rowsByDescription[description];
+        if (postings == null) {
+            postings = new Postings(4);
+            rowsByDescription[description] = postings;
+        }
+        postings.add(row);
+        rows = row + 1;
+    }
+
+    /**
+     * Discards the index and rebuilds it from the first {@code rows} rows of a store, sizing
+     * every posting list exactly with a counting pass first.
+     *
+     * @param store the store
+     * @param rows  the number of rows to index
+     */
+    public void rebuild(TransactionStore store, int rows) {
+        words.clear();
+        indexedDescriptions = 0;
+        int descriptions = store.getDescriptions().size();
+        int[] counts = new int[descriptions];
+        for (int row = 0; row < rows; row++) {
+            counts[store.getDescriptionId(row)]++;
+        }
+        rowsByDescription = new Postings[Math.max(16, descriptions)];
+        for (int description = 0; description < descriptions; description++) {
+            if (counts[description] > 0) {
+                rowsByDescription[description] = new Postings(counts[description]);
+            }
+        }
+        indexDescriptions(store.getDescriptions(), descriptions);
+        for (int row = 0; row < rows; row++) {
+            rowsByDescription[store.getDescriptionId(row)].add(row);
+        }
+        this.rows = rows;
+    }
+
+    /**
+     * Returns the rows whose description matches a query.
+     *
+     * @param query words to look for; each must be a prefix of a word of the description
+     * @return the matching row ids in ascending order; every indexed row if the query has no words
+     */
+    public int[] search(String query) {
+        List<String> queryWords = tokenize(query);
+        if (queryWords.isEmpty()) {
+            int[] all = new int[rows];
+            Arrays.setAll(all, row -> row);
+            return all;
+        }
+
+        // Descriptions matching every query word
+        BitSet matching = null;
+        for (String word : queryWords) {
+            BitSet candidates = descriptionsWithPrefix(word);
+            if (matching == null) {
+                matching = candidates;
+            } else {
+                matching.and(candidates);
+            }
+            if (matching.isEmpty()) {
+                return new int[0];
+            }
+        }
+
+        long total = 0;
+        for (int d = matching.nextSetBit(0); d >= 0; d = matching.nextSetBit(d + 1)) {
+            total += postingsSize(d);
+        }
+        if (total <= SORT_LIMIT) {
+            int[] result = new int[(int) total];
+            int size = 0;
+            for (int d = matching.nextSetBit(0); d >= 0; d = matching.nextSetBit(d + 1)) {
+                Postings postings = rowsByDescription[d];
+                if (postings != null) {
+                    System.arraycopy(postings.values, 0, result, size, postings.size);
+                    size += postings.size;
+                }
+            }
+            Arrays.sort(result);
+            return result;
+        }
+        BitSet bits = new BitSet(rows);
+        for (int d = matching.nextSetBit(0); d >= 0; d = matching.nextSetBit(d + 1)) {
+            Postings postings = rowsByDescription[d];
+            if (postings != null) {
+                for (int i = 0; i < postings.size; i++) {
+                    bits.set(postings.values[i]);
+                }
+            }
+        }
+        int[] result = new int[(int) total];
+        int size = 0;
+        for (int row = bits.nextSetBit(0); row >= 0; row = bits.nextSetBit(row + 1)) {
+            result[size++] = row;
+        }
+        return result;
+    }
+
+    /**
+     * Tells whether a description matches a query, using the same rules as {@link #search(String)}.
+     *
+     * @param description the description
+     * @param queryWords  the query, already split with {@link #tokenize(String)}
+     * @return true if every query word is a prefix of a word of the description
+     */
+    public static boolean matches(String description, List<String> queryWords) {
+        List<String> descriptionWords = tokenize(description);
+        for (String queryWord : queryWords) {
+            boolean found = false;
+            for (String word : descriptionWords) {
+                if (word.startsWith(queryWord)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Splits text into lower-case words at every character that is not a letter or digit.
+     *
+     * @param text the text; may be null
+     * @return the words in order, duplicates included
+     */
+    public static List<String> tokenize(String text) {
+        List<String> result = new ArrayList<>();
+        if (text == null) {
+            return result;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                result.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return result;
+    }
+
+    private BitSet descriptionsWithPrefix(String prefix) {
+        BitSet result = new BitSet(indexedDescriptions);
+        for (Postings descriptions : words.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            for (int i = 0; i < descriptions.size; i++) {
+                result.set(descriptions.values[i]);
+            }
+        }
+        return result;
+    }
+
+    private int postingsSize(int description) {
+        Postings postings = rowsByDescription[description];
+        return postings == null ? 0 : postings.size;
+    }
+
+    /**
+     * Adds the words of dictionary entries up to {@code end} to the word map.
+     */
+    private void indexDescriptions(StringDictionary descriptions, int end) {
+        if (end > rowsByDescription.length) {
+            rowsByDescription = Arrays.copyOf(rowsByDescription, Math.max(end, rowsByDescription.length * 2));
+        }
+        for (int description = indexedDescriptions; description < end; description++) {
+            for (String word : new LinkedHashSet<>(tokenize(descriptions.valueOf(description)))) {
+                words.computeIfAbsent(word, key -> new Postings(1)).add(description);
+            }
+        }
+        indexedDescriptions = end;
+    }
+
+    /**
+     * Growable ascending list of ids.
+     */
+    private static class Postings {
+        int[] values;
+        int size;
+
+        Postings(int capacity) {
+            values = new int[Math.max(1, capacity)];
+        }
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size + (size >> 1) + 1);
+            }
+            values[size++] = value;
+        }
+    }
+}
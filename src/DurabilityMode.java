@@ -0,0 +1,22 @@
+/**
+ * Controls when added transactions are forced to disk by the {@link PersistenceWriter}.
+ */
+public enum DurabilityMode {
+    /**
+     * Every commit is forced to disk before its future completes. Transactions added while a
+     * force is in progress are committed together in the next one.
+     */
+    SYNC,
+
+    /**
+     * Pending transactions are collected for a short interval, or until enough have arrived,
+     * and then written and forced together.
+     */
+    GROUP_COMMIT,
+
+    /**
+     * Transactions are kept in memory and written when the manager is closed, or earlier if
+     * too many accumulate. Fastest, but a crash loses everything added since the last write.
+     */
+    ON_EXIT
+}
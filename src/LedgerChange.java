@@ -0,0 +1,186 @@
+import java.time.YearMonth;
+import java.util.*;
+
+/**
+ * Describes transactions added to the ledger: the range of store rows they occupy and the
+ * months and categories whose totals they changed, so views can update only what is affected.
+ * Changes are immutable; {@link #merge(LedgerChange)} combines several into one.
+ */
+public final class LedgerChange {
+    private final int fromRow;
+    private final int toRow;
+    private final int[] months;
+    private final Set<String> categories;
+
+    /**
+     * Creates a change.
+     *
+     * @param fromRow    the first added row
+     * @param toRow      the row after the last added row
+     * @param months     the distinct month ordinals ({@code year * 12 + month - 1}) of the added
+     *                   rows, in ascending order
+     * @param categories the categories of the added rows
+     */
+    LedgerChange(int fromRow, int toRow, int[] months, Set<String> categories) {
+        this.fromRow = fromRow;
+        this.toRow = toRow;
+        this.months = months;
+        this.categories = Collections.unmodifiableSet(categories);
+    }
+
+    /**
+     * Describes rows just added to a store.
+     *
+     * @param store   the store holding the rows
+     * @param fromRow the first added row
+     * @param toRow   the row after the last added row
+     * @return the change
+     */
+    static LedgerChange of(TransactionStore store, int fromRow, int toRow) {
+        int[] months = new int[8];
+        int monthCount = 0;
+        BitSet categoryIds = new BitSet();
+        int lastDay = Integer.MIN_VALUE;
+        int lastMonth = 0;
+        for (int row = fromRow; row < toRow; row++) {
+            int day = store.getEpochDay(row);
+            if (day != lastDay) {
+                int month = MonthlyAggregateIndex.monthOrdinal(day);
+                if (monthCount == 0 || month != lastMonth) {
+                    if (monthCount == months.length) {
+                        months = Arrays.copyOf(months, monthCount * 2);
+                    }
+                    months[monthCount++] = month;
+                    lastMonth = month;
+                }
+                lastDay = day;
+            }
+            categoryIds.set(store.getCategoryId(row));
+        }
+        Set<String> categories = new HashSet<>();
+        categoryIds.stream().forEach(id -> categories.add(store.getCategories().valueOf(id)));
+        return new LedgerChange(fromRow, toRow, distinct(months, monthCount), categories);
+    }
+
+    /**
+     * Sorts month ordinals and drops repeats.
+     *
+     * @param months the ordinals, in any order
+     * @param count  the number of ordinals used at the start of the array
+     * @return the distinct ordinals in ascending order
+     */
+    private static int[] distinct(int[] months, int count) {
+        Arrays.sort(months, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || months[i] != months[distinct - 1]) {
+                months[distinct++] = months[i];
+            }
+        }
+        return Arrays.copyOf(months, distinct);
+    }
+
+    /** @return the first added row */
+    public int getFromRow() { return fromRow; }
+
+    /** @return the row after the last added row */
+    public int getToRow() { return toRow; }
+
+    /**
+     * Returns whether the change added transactions in a month.
+     *
+     * @param month the month (1-12)
+     * @param year  the year
+     * @return true if at least one added transaction falls in that month
+     */
+    public boolean affectsMonth(int month, int year) {
+        long ordinal = year * 12L + month - 1;
+        int index = firstAtLeast(ordinal);
+        return index < months.length && months[index] == ordinal;
+    }
+
+    /**
+     * Returns whether the change added transactions in a year.
+     *
+     * @param year the year
+     * @return true if at least one added transaction falls in that year
+     */
+    public boolean affectsYear(int year) {
+        int next = firstAtLeast(year * 12L);
+        return next < months.length && months[next] < (year + 1) * 12L;
+    }
+
+    /**
+     * Returns the index of the first affected month whose ordinal is at least the given one.
+     * Ordinals are compared as longs, so any year can be asked about.
+     *
+     * @param ordinal the month ordinal
+     * @return the index into the sorted months, or their count if all are smaller
+     */
+    private int firstAtLeast(long ordinal) {
+        int low = 0;
+        int high = months.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (months[mid] < ordinal) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the months in which transactions were added.
+     *
+     * @return the affected months, in ascending order
+     */
+    public SortedSet<YearMonth> getMonths() {
+        SortedSet<YearMonth> result = new TreeSet<>();
+        for (int ordinal : months) {
+            result.add(YearMonth.of(Math.floorDiv(ordinal, 12), Math.floorMod(ordinal, 12) + 1));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the categories of the added transactions.
+     *
+     * @return the affected category names
+     */
+    public Set<String> getCategories() {
+        return categories;
+    }
+
+    /**
+     * Returns whether a transaction of a category was added.
+     *
+     * @param category the category name
+     * @return true if the category is affected
+     */
+    public boolean affectsCategory(String category) {
+        return categories.contains(category);
+    }
+
+    /**
+     * Combines this change with another one.
+     *
+     * @param other the other change
+     * @return a change covering the rows, months and categories of both
+     */
+    public LedgerChange merge(LedgerChange other) {
+        int[] mergedMonths = Arrays.copyOf(months, months.length + other.months.length);
+        System.arraycopy(other.months, 0, mergedMonths, months.length, other.months.length);
+        Set<String> mergedCategories = new HashSet<>(categories);
+        mergedCategories.addAll(other.categories);
+        return new LedgerChange(Math.min(fromRow, other.fromRow), Math.max(toRow, other.toRow),
+                distinct(mergedMonths, mergedMonths.length), mergedCategories);
+    }
+
+    @Override
+    public String toString() {
+        return "LedgerChange[rows " + fromRow + "-" + toRow + ", " + months.length + " months, "
+                + categories + "]";
+    }
+}
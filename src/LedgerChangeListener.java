@@ -0,0 +1,15 @@
+/**
+ * Receives the transactions added to a {@link TransactionManager}.
+ * Listeners are called on the thread that added the transactions, after its locks are released;
+ * wrap a listener in a {@link CoalescingChangeListener} to receive merged changes on another
+ * thread, such as the event dispatch thread.
+ */
+@FunctionalInterface
+public interface LedgerChangeListener {
+    /**
+     * Called after transactions have been added.
+     *
+     * @param change the added rows and the months and categories they affect
+     */
+    void ledgerChanged(LedgerChange change);
+}
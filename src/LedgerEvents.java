@@ -0,0 +1,69 @@
+import jdk.jfr.*;
+
+/**
+ * JDK Flight Recorder events emitted by the ledger. They cost next to nothing unless a recording
+ * is running; start one with {@code -XX:StartFlightRecording=filename=ledger.jfr} or
+ * {@code jcmd <pid> JFR.start} and open the file in JDK Mission Control, where the events appear
+ * under "Budget Tracker".
+ */
+final class LedgerEvents {
+    private LedgerEvents() {
+    }
+
+    @Name("budgettracker.Save")
+    @Label("Ledger Save")
+    @Category({"Budget Tracker", "Persistence"})
+    @Description("A group of transactions written to the journal, or a snapshot rewrite")
+    static class SaveEvent extends Event {
+        @Label("Records")
+        int records;
+
+        @Label("Snapshot Rewrite")
+        boolean compaction;
+
+        @Label("Durability Mode")
+        String mode;
+
+        @Label("Failed")
+        boolean failed;
+    }
+
+    @Name("budgettracker.Load")
+    @Label("Ledger Load")
+    @Category({"Budget Tracker", "Persistence"})
+    @Description("Recovery of the ledger from the snapshot and journal at startup")
+    static class LoadEvent extends Event {
+        @Label("Rows")
+        int rows;
+    }
+
+    @Name("budgettracker.Query")
+    @Label("Summary Query")
+    @Category({"Budget Tracker", "Queries"})
+    @Description("A summary read from the monthly index or the category rollup")
+    @StackTrace(false)
+    @Threshold("1 ms") // Queries normally take microseconds; only slow ones are worth recording
+    static class QueryEvent extends Event {
+        @Label("Query")
+        String query;
+
+        @Label("Month")
+        int month;
+
+        @Label("Year")
+        int year;
+    }
+
+    @Name("budgettracker.TableRefresh")
+    @Label("Table Refresh")
+    @Category({"Budget Tracker", "User Interface"})
+    @Description("The transaction table picking up new rows or applying a filter")
+    @StackTrace(false)
+    static class TableRefreshEvent extends Event {
+        @Label("Visible Rows")
+        int rows;
+
+        @Label("Filter")
+        String filter;
+    }
+}
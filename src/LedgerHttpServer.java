@@ -0,0 +1,383 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A read-only HTTP server answering JSON queries about the ledger of a {@link TransactionManager},
+ * so dashboards and scripts can read it while the application is running. The server listens on
+ * the loopback address only, and refuses requests whose {@code Host} header does not name
+ * {@code localhost} or a loopback address with the server's port, so a web page cannot read the
+ * ledger by rebinding its own host name to the loopback address. Endpoints, all answering GET:
+ *
+ * <ul>
+ *   <li>{@code /api/summary?year=2024[&month=3]}: income and expenses with their counts, per
+ *       month of the year or for one month</li>
+ *   <li>{@code /api/categories[?year=2024[&month=3]]}: expenses and counts per category</li>
+ *   <li>{@code /api/transactions?offset=0&limit=100[&type=Expense][&category=Food,Rent]
+ *       [&from=2024-01-01][&to=2024-12-31][&q=words]}: one page of matching transactions</li>
+ *   <li>{@code /api/budgets?year=2024&month=3}: limit and spending of each budgeted category</li>
+ * </ul>
+ *
+ * <p>Years are accepted from {@value #MIN_YEAR} to {@value #MAX_YEAR}; others are answered with
+ * status 400.</p>
+ *
+ * <p>Every request pins a {@link LedgerSnapshot} and answers from it alone, so the parts of a
+ * response agree with each other, concurrent adds neither block nor tear it, and the snapshot's
+ * version is included in the response.</p>
+ *
+ * <p>Requests run on virtual threads when the runtime provides them (Java 21 and later) and on a
+ * bounded pool of platform threads otherwise.</p>
+ */
+public class LedgerHttpServer implements Closeable {
+    /** Transactions per page when the request does not say. */
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    /** Largest page a request may ask for. */
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    /** Earliest year a request may ask for; year 0 would mean all years to the category rollup. */
+    public static final int MIN_YEAR = 1;
+
+    /** Latest year a request may ask for, which keeps month ordinals far from overflowing. */
+    public static final int MAX_YEAR = 9999;
+
+    // Connections waiting to be accepted, so bursts of clients are queued rather than refused
+    private static final int BACKLOG = 4096;
+
+    private final TransactionManager manager;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Set<String> allowedHosts = new HashSet<>();
+
+    /**
+     * Creates a server bound to the loopback address. Call {@link #start()} to accept requests.
+     *
+     * @param manager the manager to query
+     * @param port    the port, or 0 to pick a free one
+     * @throws IOException if the port cannot be bound
+     */
+    public LedgerHttpServer(TransactionManager manager, int port) throws IOException {
+        this.manager = manager;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+        this.executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/api/", this::handle);
+        int boundPort = getPort();
+        for (String host : new String[]{"localhost", "127.0.0.1", "[::1]"}) {
+            allowedHosts.add(host + ":" + boundPort);
+            if (boundPort == 80) {
+                allowedHosts.add(host);
+            }
+        }
+    }
+
+    /**
+     * Starts accepting requests on a background thread.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return the bound port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests, gives running requests up to a second to finish and releases
+     * the port.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Creates the executor requests run on: one virtual thread per request if the runtime has
+     * them, looked up reflectively because the application is compiled for Java 17, or else a
+     * fixed pool of daemon threads.
+     */
+    private static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threads = new AtomicInteger();
+            return Executors.newFixedThreadPool(Math.max(8, 4 * Runtime.getRuntime().availableProcessors()), task -> {
+                Thread thread = new Thread(task, "ledger-http-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Dispatches a request to its endpoint and sends the JSON answer, or an error object with
+     * status 400 for invalid parameters, 403 for a foreign {@code Host}, 404 for unknown paths and
+     * 405 for methods other than GET.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            int status = 200;
+            String body;
+            try {
+                String host = exchange.getRequestHeaders().getFirst("Host");
+                if (host == null || !allowedHosts.contains(host.toLowerCase(Locale.ROOT))) {
+                    status = 403;
+                    body = error("Requests must be addressed to localhost:" + getPort());
+                } else if (!exchange.getRequestMethod().equals("GET")) {
+                    status = 405;
+                    exchange.getResponseHeaders().set("Allow", "GET");
+                    body = error("Only GET is supported");
+                } else {
+                    Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+                    switch (exchange.getRequestURI().getPath()) {
+                        case "/api/summary":
+                            body = summary(query);
+                            break;
+                        case "/api/categories":
+                            body = categories(query);
+                            break;
+                        case "/api/transactions":
+                            body = transactions(query);
+                            break;
+                        case "/api/budgets":
+                            body = budgets(query);
+                            break;
+                        default:
+                            status = 404;
+                            body = error("Unknown endpoint: " + exchange.getRequestURI().getPath());
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                status = 400;
+                body = error(e.getMessage());
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Answers {@code /api/summary}: every month of a year, or one month.
+     */
+    private String summary(Map<String, String> query) {
+        LedgerSnapshot snapshot = manager.snapshot();
+        int year = intParameter(query, "year", null, MIN_YEAR, MAX_YEAR);
+        int month = intParameter(query, "month", 0, 1, 12);
+        int firstMonth = month == 0 ? 1 : month;
+        int lastMonth = month == 0 ? 12 : month;
+        double[][] summaries = snapshot.getMonthlySummaries(firstMonth, year, lastMonth, year);
+
+        StringBuilder json = new StringBuilder(128 * summaries.length);
+        json.append("{\"version\":").append(snapshot.getVersion()).append(",\"year\":").append(year).append(",\"months\":[");
+        for (int i = 0; i < summaries.length; i++) {
+            int[] counts = snapshot.getMonthlyTransactionCounts(firstMonth + i, year);
+            json.append(i == 0 ? "{" : ",{")
+                    .append("\"month\":").append(firstMonth + i)
+                    .append(",\"income\":").append(summaries[i][0])
+                    .append(",\"expenses\":").append(summaries[i][1])
+                    .append(",\"incomeCount\":").append(counts[0])
+                    .append(",\"expenseCount\":").append(counts[1]).append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * Answers {@code /api/categories} for a month, a year or all years.
+     */
+    private String categories(Map<String, String> query) {
+        LedgerSnapshot snapshot = manager.snapshot();
+        int year = intParameter(query, "year", CategoryRollup.ALL, MIN_YEAR, MAX_YEAR);
+        int month = intParameter(query, "month", CategoryRollup.ALL, 1, 12);
+        Map<String, Double> expenses = snapshot.getCategoryBreakdown(month, year);
+        Map<String, Integer> counts = snapshot.getCategoryCounts(month, year);
+
+        StringBuilder json = new StringBuilder(64 + 64 * expenses.size());
+        json.append("{\"version\":").append(snapshot.getVersion())
+                .append(",\"year\":").append(year).append(",\"month\":").append(month).append(",\"categories\":[");
+        boolean first = true;
+        for (Map.Entry<String, Double> category : expenses.entrySet()) {
+            json.append(first ? "{" : ",{").append("\"name\":");
+            appendString(json, category.getKey());
+            json.append(",\"expenses\":").append(category.getValue())
+                    .append(",\"count\":").append(counts.getOrDefault(category.getKey(), 0)).append('}');
+            first = false;
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * Answers {@code /api/transactions} with one page of the rows matching the filter parameters,
+     * in the order they were added.
+     */
+    private String transactions(Map<String, String> query) {
+        LedgerSnapshot snapshot = manager.snapshot();
+        int offset = intParameter(query, "offset", 0, 0, Integer.MAX_VALUE);
+        int limit = intParameter(query, "limit", DEFAULT_PAGE_SIZE, 0, MAX_PAGE_SIZE);
+        String category = query.get("category");
+        TransactionFilter filter = new TransactionFilter(query.getOrDefault("type", "All"),
+                category == null ? null : Arrays.asList(category.split(",")),
+                dateParameter(query, "from"), dateParameter(query, "to"), query.getOrDefault("q", ""));
+
+        TransactionStore store = manager.getStore();
+        int[] matching = filter.isRestrictive() ? snapshot.findRows(filter) : null;
+        int total = matching == null ? snapshot.size() : matching.length;
+        int end = (int) Math.min(total, (long) offset + limit);
+
+        StringBuilder json = new StringBuilder(128 + 128 * Math.max(0, end - offset));
+        json.append("{\"version\":").append(snapshot.getVersion()).append(",\"total\":").append(total)
+                .append(",\"offset\":").append(offset).append(",\"limit\":").append(limit)
+                .append(",\"transactions\":[");
+        for (int i = offset; i < end; i++) {
+            int row = matching == null ? i : matching[i];
+            json.append(i == offset ? "{" : ",{").append("\"row\":").append(row)
+                    .append(",\"date\":\"").append(LocalDate.ofEpochDay(store.getEpochDay(row))).append('"')
+                    .append(",\"description\":");
+            appendString(json, store.getDescription(row));
+            json.append(",\"amount\":").append(store.getAmountCents(row) / 100.0).append(",\"category\":");
+            appendString(json, store.getCategory(row));
+            json.append(",\"type\":\"").append(store.isIncome(row) ? "Income" : "Expense").append("\"}");
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * Answers {@code /api/budgets} with the limit and spending of each budgeted category in a month.
+     */
+    private String budgets(Map<String, String> query) {
+        LedgerSnapshot snapshot = manager.snapshot();
+        int year = intParameter(query, "year", null, MIN_YEAR, MAX_YEAR);
+        int month = intParameter(query, "month", null, 1, 12);
+        Map<String, Long> limits = manager.getBudgets().getLimits();
+        Map<String, Double> spent = snapshot.getCategoryBreakdown(month, year);
+
+        StringBuilder json = new StringBuilder(64 + 64 * limits.size());
+        json.append("{\"version\":").append(snapshot.getVersion())
+                .append(",\"year\":").append(year).append(",\"month\":").append(month).append(",\"budgets\":[");
+        boolean first = true;
+        for (Map.Entry<String, Long> limit : limits.entrySet()) {
+            json.append(first ? "{" : ",{").append("\"category\":");
+            appendString(json, limit.getKey());
+            json.append(",\"limit\":").append(limit.getValue() / 100.0)
+                    .append(",\"spent\":").append(spent.getOrDefault(limit.getKey(), 0.0)).append('}');
+            first = false;
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * Splits a raw query string into decoded parameters; a repeated parameter keeps its last value.
+     */
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    /**
+     * Reads an integer parameter.
+     *
+     * @param defaultValue the value if the parameter is absent, or null if it is required
+     * @throws IllegalArgumentException if the parameter is missing, not a number or out of range
+     */
+    private static int intParameter(Map<String, String> query, String name, Integer defaultValue, int min, int max) {
+        String text = query.get(name);
+        if (text == null || text.isEmpty()) {
+            if (defaultValue == null) {
+                throw new IllegalArgumentException("Missing parameter: " + name);
+            }
+            return defaultValue;
+        }
+        try {
+            int value = Integer.parseInt(text);
+            if (value < min || value > max) {
+                throw new IllegalArgumentException("Parameter " + name + " out of range: " + text);
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parameter " + name + " is not a number: " + text);
+        }
+    }
+
+    /**
+     * Reads an optional yyyy-MM-dd date parameter.
+     *
+     * @return the date, or null if the parameter is absent
+     * @throws IllegalArgumentException if the parameter is not a date
+     */
+    private static LocalDate dateParameter(Map<String, String> query, String name) {
+        String text = query.get(name);
+        if (text == null || text.isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(text);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Parameter " + name + " is not a date: " + text);
+        }
+    }
+
+    private static String error(String message) {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        appendString(json, message);
+        return json.append('}').toString();
+    }
+
+    /**
+     * Appends a JSON string literal, escaping quotes, backslashes and control characters.
+     */
+    private static void appendString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+}
@@ -0,0 +1,209 @@
+import java.io.*;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * A closed year of the ledger: an immutable {@link ColumnarLedgerFile} holding the transactions
+ * dated in that year, together with their income and expense totals per month and their expense
+ * totals per category and month. The totals are kept in the {@link PartitionManifest}, so
+ * summaries of a closed year are available without reading its rows.
+ */
+public final class LedgerPartition {
+    private final String fileName;
+    private final int year;
+    private final int rowCount;
+    private final long[] incomeCents = new long[12];
+    private final int[] incomeCounts = new int[12];
+    private final long[] expenseCents = new long[12];
+    private final int[] expenseCounts = new int[12];
+    private final String[] categories;
+    // Indexed [category][month - 1]
+    private final long[][] categoryCents;
+    private final int[][] categoryCounts;
+
+    private LedgerPartition(String fileName, int year, int rowCount, String[] categories) {
+        this.fileName = fileName;
+        this.year = year;
+        this.rowCount = rowCount;
+        this.categories = categories;
+        this.categoryCents = new long[categories.length][12];
+        this.categoryCounts = new int[categories.length][12];
+    }
+
+    /**
+     * Computes the totals of a partition from the rows written to its file.
+     *
+     * @param fileName the name of the partition file, relative to the ledger directory
+     * @param year     the year every row is dated in
+     * @param rows     a store holding exactly the rows of the partition
+     * @return the partition description
+     * @throws IllegalArgumentException if a row is dated in another year
+     */
+    public static LedgerPartition summarize(String fileName, int year, TransactionStore rows) {
+        String[] categories = new String[rows.getCategories().size()];
+        for (int i = 0; i < categories.length; i++) {
+            categories[i] = rows.getCategories().valueOf(i);
+        }
+        LedgerPartition partition = new LedgerPartition(fileName, year, rows.size(), categories);
+        for (int row = 0; row < rows.size(); row++) {
+            LocalDate date = LocalDate.ofEpochDay(rows.getEpochDay(row));
+            if (date.getYear() != year) {
+                throw new IllegalArgumentException("Row dated " + date + " in the partition of " + year);
+            }
+            int month = date.getMonthValue() - 1;
+            long cents = rows.getAmountCents(row);
+            if (rows.isIncome(row)) {
+                partition.incomeCents[month] += cents;
+                partition.incomeCounts[month]++;
+            } else {
+                partition.expenseCents[month] += cents;
+                partition.expenseCounts[month]++;
+                partition.categoryCents[rows.getCategoryId(row)][month] += cents;
+                partition.categoryCounts[rows.getCategoryId(row)][month]++;
+            }
+        }
+        return partition;
+    }
+
+    public String getFileName() { return fileName; }
+    public int getYear() { return year; }
+    public int getRowCount() { return rowCount; }
+
+    /**
+     * Returns the income of a month.
+     *
+     * @param month the month (1-12)
+     * @return the total income in cents
+     */
+    public long getIncomeCents(int month) {
+        return incomeCents[month - 1];
+    }
+
+    /**
+     * Returns the number of income transactions of a month.
+     *
+     * @param month the month (1-12)
+     * @return the count
+     */
+    public int getIncomeCount(int month) {
+        return incomeCounts[month - 1];
+    }
+
+    /**
+     * Returns the expenses of a month.
+     *
+     * @param month the month (1-12)
+     * @return the total expenses in cents
+     */
+    public long getExpenseCents(int month) {
+        return expenseCents[month - 1];
+    }
+
+    /**
+     * Returns the number of expense transactions of a month.
+     *
+     * @param month the month (1-12)
+     * @return the count
+     */
+    public int getExpenseCount(int month) {
+        return expenseCounts[month - 1];
+    }
+
+    /**
+     * Returns the categories used in the partition.
+     *
+     * @return the category names, indexed by the category numbers of this partition
+     */
+    public String[] getCategories() {
+        return categories.clone();
+    }
+
+    /**
+     * Returns the expenses of a category in a month.
+     *
+     * @param category an index into {@link #getCategories()}
+     * @param month    the month (1-12)
+     * @return the total expenses in cents
+     */
+    public long getCategoryExpenseCents(int category, int month) {
+        return categoryCents[category][month - 1];
+    }
+
+    /**
+     * Returns the number of expenses of a category in a month.
+     *
+     * @param category an index into {@link #getCategories()}
+     * @param month    the month (1-12)
+     * @return the count
+     */
+    public int getCategoryExpenseCount(int category, int month) {
+        return categoryCounts[category][month - 1];
+    }
+
+    /**
+     * Writes the description and totals in the manifest format.
+     */
+    void write(DataOutputStream out) throws IOException {
+        out.writeUTF(fileName);
+        out.writeInt(year);
+        out.writeInt(rowCount);
+        for (int month = 0; month < 12; month++) {
+            out.writeLong(incomeCents[month]);
+            out.writeInt(incomeCounts[month]);
+            out.writeLong(expenseCents[month]);
+            out.writeInt(expenseCounts[month]);
+        }
+        out.writeInt(categories.length);
+        for (int category = 0; category < categories.length; category++) {
+            out.writeUTF(categories[category]);
+            for (int month = 0; month < 12; month++) {
+                out.writeLong(categoryCents[category][month]);
+                out.writeInt(categoryCounts[category][month]);
+            }
+        }
+    }
+
+    /**
+     * Reads a partition written by {@link #write(DataOutputStream)}.
+     */
+    static LedgerPartition read(DataInputStream in) throws IOException {
+        String fileName = in.readUTF();
+        int year = in.readInt();
+        int rowCount = in.readInt();
+        long[] income = new long[12];
+        int[] incomeCount = new int[12];
+        long[] expenses = new long[12];
+        int[] expenseCount = new int[12];
+        for (int month = 0; month < 12; month++) {
+            income[month] = in.readLong();
+            incomeCount[month] = in.readInt();
+            expenses[month] = in.readLong();
+            expenseCount[month] = in.readInt();
+        }
+        int categoryCount = in.readInt();
+        if (rowCount < 0 || categoryCount < 0 || categoryCount > rowCount) {
+            throw new IOException("Corrupt partition entry for " + fileName);
+        }
+        String[] categories = new String[categoryCount];
+        long[][] cents = new long[categoryCount][12];
+        int[][] counts = new int[categoryCount][12];
+        for (int category = 0; category < categoryCount; category++) {
+            categories[category] = in.readUTF();
+            for (int month = 0; month < 12; month++) {
+                cents[category][month] = in.readLong();
+                counts[category][month] = in.readInt();
+            }
+        }
+
+        LedgerPartition partition = new LedgerPartition(fileName, year, rowCount, categories);
+        System.arraycopy(income, 0, partition.incomeCents, 0, 12);
+        System.arraycopy(incomeCount, 0, partition.incomeCounts, 0, 12);
+        System.arraycopy(expenses, 0, partition.expenseCents, 0, 12);
+        System.arraycopy(expenseCount, 0, partition.expenseCounts, 0, 12);
+        for (int category = 0; category < categoryCount; category++) {
+            partition.categoryCents[category] = cents[category];
+            partition.categoryCounts[category] = counts[category];
+        }
+        return partition;
+    }
+}
@@ -0,0 +1,131 @@
+import java.util.*;
+
+/**
+ * An immutable, versioned view of the ledger taken by {@link TransactionManager#snapshot()}.
+ * It pins the rows present when it was taken together with the monthly totals and the category
+ * rollup that include exactly those rows, so a reader that answers several queries from one
+ * snapshot gets results that agree with each other however many transactions are added
+ * meanwhile.
+ *
+ * <p>Taking a snapshot copies nothing: rows are only ever appended to the store, so the snapshot
+ * keeps a row count, and the aggregates are shared with the live ones until the manager next
+ * writes to them (see {@link MonthlyAggregateIndex#snapshot()} and
+ * {@link CategoryRollup#snapshot()}). Summary queries on a snapshot take no locks.</p>
+ *
+ * <p>While the ledger is loading in the background, the totals and the transactions of a
+ * snapshot may cover different rows, as with the manager's own queries.</p>
+ */
+public final class LedgerSnapshot {
+    private final TransactionManager manager;
+    private final TransactionStore store;
+    private final long version;
+    private final int rows;
+    private final MonthlyAggregateIndex monthlyIndex;
+    private final CategoryRollup categoryRollup;
+
+    LedgerSnapshot(TransactionManager manager, TransactionStore store, long version, int rows,
+                   MonthlyAggregateIndex monthlyIndex, CategoryRollup categoryRollup) {
+        this.manager = manager;
+        this.store = store;
+        this.version = version;
+        this.rows = rows;
+        this.monthlyIndex = monthlyIndex;
+        this.categoryRollup = categoryRollup;
+    }
+
+    /**
+     * Returns the {@link TransactionManager#getDataVersion() data version} the snapshot was taken
+     * at. A cached result computed from this snapshot is stale once the manager's data version
+     * differs.
+     *
+     * @return the data version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the number of transactions in the snapshot.
+     *
+     * @return the row count; rows 0 to {@code size() - 1} of the store belong to the snapshot
+     */
+    public int size() {
+        return rows;
+    }
+
+    /**
+     * Returns the transactions of the snapshot in the order they were added.
+     *
+     * @return an unmodifiable list; elements are views created from the store when accessed
+     */
+    public List<Transaction> getTransactions() {
+        return store.asList(rows);
+    }
+
+    /**
+     * Returns the rows of the snapshot matching a filter.
+     *
+     * @param filter the filter
+     * @return the matching row ids, ascending, each less than {@link #size()}
+     */
+    public int[] findRows(TransactionFilter filter) {
+        return manager.findRows(filter, rows);
+    }
+
+    /**
+     * Returns the income and expense totals of a month.
+     *
+     * @param month the month (1-12)
+     * @param year the year
+     * @return an array where index 0 contains total income and index 1 total expenses
+     */
+    public double[] getMonthlySummary(int month, int year) {
+        return monthlyIndex.getSummary(month, year);
+    }
+
+    /**
+     * Returns the number of income and expense transactions in a month.
+     *
+     * @param month the month (1-12)
+     * @param year the year
+     * @return an array where index 0 contains the income count and index 1 the expense count
+     */
+    public int[] getMonthlyTransactionCounts(int month, int year) {
+        return monthlyIndex.getCounts(month, year);
+    }
+
+    /**
+     * Returns monthly summaries for an inclusive range of months.
+     *
+     * @param fromMonth the first month (1-12)
+     * @param fromYear the year of the first month
+     * @param toMonth the last month (1-12)
+     * @param toYear the year of the last month
+     * @return one {income, expenses} pair per month in chronological order
+     */
+    public double[][] getMonthlySummaries(int fromMonth, int fromYear, int toMonth, int toYear) {
+        return monthlyIndex.getSummaries(fromMonth, fromYear, toMonth, toYear);
+    }
+
+    /**
+     * Returns total expenses per category for a period.
+     *
+     * @param month the month (1-12), or {@link CategoryRollup#ALL} for all months
+     * @param year the year, or {@link CategoryRollup#ALL} for all years
+     * @return a Map of category names to total expenses, in order of first appearance
+     */
+    public Map<String, Double> getCategoryBreakdown(int month, int year) {
+        return categoryRollup.getBreakdown(month, year);
+    }
+
+    /**
+     * Returns the number of expenses per category for a period.
+     *
+     * @param month the month (1-12), or {@link CategoryRollup#ALL} for all months
+     * @param year the year, or {@link CategoryRollup#ALL} for all years
+     * @return a Map of category names to expense counts, in order of first appearance
+     */
+    public Map<String, Integer> getCategoryCounts(int month, int year) {
+        return categoryRollup.getCounts(month, year);
+    }
+}
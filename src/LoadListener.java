@@ -0,0 +1,17 @@
+/**
+ * Receives progress while a {@link TransactionManager} loads the ledger in the background.
+ * Listeners are called on the loading thread, so user interface code must hand the
+ * notification over to its own thread.
+ */
+@FunctionalInterface
+public interface LoadListener {
+    /**
+     * Called repeatedly while loading. Summaries are built before the rows are copied, newest
+     * rows first, so {@code summaryRows} runs ahead of {@code tableRows}.
+     *
+     * @param summaryRows the number of rows included in the summaries so far
+     * @param tableRows   the number of rows available through the store so far
+     * @param totalRows   the number of rows being loaded; may grow once the journal is replayed
+     */
+    void loadProgress(int summaryRows, int tableRows, int totalRows);
+}
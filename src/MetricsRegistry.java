@@ -0,0 +1,54 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process registry of named counters and latency histograms, for diagnosing slow saves,
+ * loads and queries without attaching a profiler. Metrics are created on first use and live as
+ * long as the registry; names are dotted, such as {@code query.monthlySummary}.
+ */
+public class MetricsRegistry {
+    private final Map<String, LatencyHistogram> timers = new ConcurrentSkipListMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+
+    /**
+     * Returns the latency histogram with a name, creating it if needed. Callers on hot paths
+     * should look it up once and keep it.
+     *
+     * @param name the metric name
+     * @return the histogram
+     */
+    public LatencyHistogram timer(String name) {
+        return timers.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    /**
+     * Returns the counter with a name, creating it if needed.
+     *
+     * @param name the metric name
+     * @return the counter
+     */
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    /**
+     * Returns all latency histograms.
+     *
+     * @return an unmodifiable live view, sorted by name
+     */
+    public Map<String, LatencyHistogram> getTimers() {
+        return Collections.unmodifiableMap(timers);
+    }
+
+    /**
+     * Returns the current value of every counter.
+     *
+     * @return a snapshot, sorted by name
+     */
+    public Map<String, Long> getCounters() {
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+        return values;
+    }
+}
@@ -0,0 +1,229 @@
+import java.time.LocalDate;
+
+/**
+ * Keeps running income and expense totals and transaction counts for every calendar month.
+ * Months are addressed by their ordinal ({@code year * 12 + month - 1}) and stored in arrays
+ * spanning the earliest to the latest month seen, so looking up a month is a single array
+ * access and adding a transaction updates one slot. Totals are kept in cents so they stay exact.
+ *
+ * <p>{@link #snapshot()} freezes the current totals in constant time: the snapshot shares the
+ * arrays, and the index copies them before its next write. The arrays hold one slot per month
+ * of the ledger's span, so that copy is small and independent of the number of transactions.</p>
+ */
+public class MonthlyAggregateIndex {
+    private static final int INITIAL_CAPACITY = 24;
+
+    private int firstOrdinal;
+    private int monthCount;
+    private long[] incomeTotals = new long[0];
+    private long[] expenseTotals = new long[0];
+    private int[] incomeCounts = new int[0];
+    private int[] expenseCounts = new int[0];
+    // True while a snapshot shares the arrays
+    private boolean shared;
+
+    /**
+     * Discards all totals and recomputes them from the rows of a store.
+     *
+     * @param store the complete ledger
+     */
+    public void rebuild(TransactionStore store) {
+        firstOrdinal = 0;
+        monthCount = 0;
+        incomeTotals = new long[0];
+        expenseTotals = new long[0];
+        incomeCounts = new int[0];
+        expenseCounts = new int[0];
+        shared = false;
+        for (int row = 0; row < store.size(); row++) {
+            add(store.getEpochDay(row), store.getAmountCents(row), store.isIncome(row));
+        }
+    }
+
+    /**
+     * Adds a transaction to the totals of its month.
+     *
+     * @param epochDay    the transaction date as days since 1970-01-01
+     * @param amountCents the amount in cents
+     * @param isIncome    true for income, false for expenses
+     */
+    public void add(int epochDay, long amountCents, boolean isIncome) {
+        unshare();
+        int slot = slotFor(monthOrdinal(epochDay));
+        if (isIncome) {
+            incomeTotals[slot] += amountCents;
+            incomeCounts[slot]++;
+        } else {
+            expenseTotals[slot] += amountCents;
+            expenseCounts[slot]++;
+        }
+    }
+
+    /**
+     * Adds precomputed totals to a month, e.g. those of a closed {@link LedgerPartition}.
+     *
+     * @param month        the month (1-12)
+     * @param year         the year
+     * @param incomeCents  the income to add, in cents
+     * @param incomeCount  the number of income transactions it covers
+     * @param expenseCents the expenses to add, in cents
+     * @param expenseCount the number of expenses it covers
+     */
+    public void addTotals(int month, int year, long incomeCents, int incomeCount, long expenseCents, int expenseCount) {
+        if (incomeCount == 0 && expenseCount == 0) {
+            return;
+        }
+        unshare();
+        int slot = slotFor(ordinal(month, year));
+        incomeTotals[slot] += incomeCents;
+        incomeCounts[slot] += incomeCount;
+        expenseTotals[slot] += expenseCents;
+        expenseCounts[slot] += expenseCount;
+    }
+
+    /**
+     * Returns a read-only copy of the current totals in constant time. Later additions to this
+     * index do not change the snapshot.
+     *
+     * @return the snapshot; it must not be added to
+     */
+    public MonthlyAggregateIndex snapshot() {
+        MonthlyAggregateIndex snapshot = new MonthlyAggregateIndex();
+        snapshot.firstOrdinal = firstOrdinal;
+        snapshot.monthCount = monthCount;
+        snapshot.incomeTotals = incomeTotals;
+        snapshot.expenseTotals = expenseTotals;
+        snapshot.incomeCounts = incomeCounts;
+        snapshot.expenseCounts = expenseCounts;
+        snapshot.shared = true;
+        shared = true;
+        return snapshot;
+    }
+
+    /**
+     * Returns the totals for a single month.
+     *
+     * @param month the month (1-12)
+     * @param year  the year
+     * @return an array where index 0 contains total income and index 1 total expenses
+     */
+    public double[] getSummary(int month, int year) {
+        int slot = ordinal(month, year) - firstOrdinal;
+        if (slot < 0 || slot >= monthCount) {
+            return new double[]{0, 0};
+        }
+        return new double[]{incomeTotals[slot] / 100.0, expenseTotals[slot] / 100.0};
+    }
+
+    /**
+     * Returns the number of transactions recorded for a single month.
+     *
+     * @param month the month (1-12)
+     * @param year  the year
+     * @return an array where index 0 contains the income count and index 1 the expense count
+     */
+    public int[] getCounts(int month, int year) {
+        int slot = ordinal(month, year) - firstOrdinal;
+        if (slot < 0 || slot >= monthCount) {
+            return new int[]{0, 0};
+        }
+        return new int[]{incomeCounts[slot], expenseCounts[slot]};
+    }
+
+    /**
+     * Returns the totals for every month in an inclusive range.
+     *
+     * @param fromMonth the first month (1-12)
+     * @param fromYear  the year of the first month
+     * @param toMonth   the last month (1-12)
+     * @param toYear    the year of the last month
+     * @return one {income, expenses} pair per month in chronological order; empty if the range is reversed
+     */
+    public double[][] getSummaries(int fromMonth, int fromYear, int toMonth, int toYear) {
+        int from = ordinal(fromMonth, fromYear);
+        int to = ordinal(toMonth, toYear);
+        double[][] summaries = new double[Math.max(0, to - from + 1)][];
+        for (int i = 0; i < summaries.length; i++) {
+            int slot = from + i - firstOrdinal;
+            summaries[i] = (slot >= 0 && slot < monthCount)
+                    ? new double[]{incomeTotals[slot] / 100.0, expenseTotals[slot] / 100.0}
+                    : new double[]{0, 0};
+        }
+        return summaries;
+    }
+
+    /**
+     * Returns the month ordinal ({@code year * 12 + month - 1}) of an epoch day.
+     *
+     * @param epochDay the date as days since 1970-01-01
+     * @return the month ordinal
+     */
+    public static int monthOrdinal(int epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        return ordinal(date.getMonthValue(), date.getYear());
+    }
+
+    /**
+     * Converts a month and year into a month ordinal.
+     */
+    private static int ordinal(int month, int year) {
+        return year * 12 + month - 1;
+    }
+
+    /**
+     * Returns the array slot for a month ordinal, growing the arrays in either direction if needed.
+     */
+    private int slotFor(int ordinal) {
+        if (monthCount == 0) {
+            firstOrdinal = ordinal;
+            resize(INITIAL_CAPACITY, 0);
+            monthCount = 1;
+            return 0;
+        }
+        if (ordinal < firstOrdinal) {
+            int shift = firstOrdinal - ordinal;
+            resize(Math.max(incomeTotals.length * 2, monthCount + shift), shift);
+            firstOrdinal = ordinal;
+            monthCount += shift;
+            return 0;
+        }
+        int slot = ordinal - firstOrdinal;
+        if (slot >= incomeTotals.length) {
+            resize(Math.max(incomeTotals.length * 2, slot + 1), 0);
+        }
+        monthCount = Math.max(monthCount, slot + 1);
+        return slot;
+    }
+
+    /**
+     * Copies the arrays if a snapshot shares them, so the next write does not reach it.
+     */
+    private void unshare() {
+        if (shared) {
+            resize(incomeTotals.length, 0);
+            shared = false;
+        }
+    }
+
+    /**
+     * Reallocates the arrays with the given capacity, moving existing entries right by {@code shift}.
+     */
+    private void resize(int capacity, int shift) {
+        incomeTotals = copy(incomeTotals, capacity, shift);
+        expenseTotals = copy(expenseTotals, capacity, shift);
+        incomeCounts = copy(incomeCounts, capacity, shift);
+        expenseCounts = copy(expenseCounts, capacity, shift);
+    }
+
+    private long[] copy(long[] source, int capacity, int shift) {
+        long[] target = new long[capacity];
+        System.arraycopy(source, 0, target, shift, monthCount);
+        return target;
+    }
+
+    private int[] copy(int[] source, int capacity, int shift) {
+        int[] target = new int[capacity];
+        System.arraycopy(source, 0, target, shift, monthCount);
+        return target;
+    }
+}
@@ -0,0 +1,134 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * The list of files making up a partitioned ledger: one {@link LedgerPartition} per closed year,
+ * in year order, and the active snapshot holding the transactions of the open years. Their rows
+ * are loaded in that order, followed by the journal.
+ *
+ * <p>Every compaction writes its files under new names carrying a generation number and then
+ * replaces the manifest atomically, so the manifest on disk always names a complete, consistent
+ * set of files; files it no longer names are deleted afterwards.</p>
+ */
+public final class PartitionManifest {
+    private static final int MAGIC = 0x53424d46; // "SBMF"
+    private static final short FORMAT_VERSION = 1;
+
+    private final int generation;
+    private final String activeFile;
+    private final List<LedgerPartition> partitions;
+
+    /**
+     * Creates a manifest.
+     *
+     * @param generation the number of the compaction that wrote it
+     * @param activeFile the name of the active snapshot, or null if it has no rows
+     * @param partitions the closed partitions, in ascending year order
+     */
+    public PartitionManifest(int generation, String activeFile, List<LedgerPartition> partitions) {
+        this.generation = generation;
+        this.activeFile = activeFile;
+        this.partitions = Collections.unmodifiableList(new ArrayList<>(partitions));
+    }
+
+    public int getGeneration() { return generation; }
+    public String getActiveFile() { return activeFile; }
+    public List<LedgerPartition> getPartitions() { return partitions; }
+
+    /**
+     * Returns the partition of a year.
+     *
+     * @param year the year
+     * @return the partition, or null if the year is not closed
+     */
+    public LedgerPartition getPartition(int year) {
+        for (LedgerPartition partition : partitions) {
+            if (partition.getYear() == year) {
+                return partition;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of rows in the closed partitions.
+     *
+     * @return the row count, not including the active snapshot
+     */
+    public int getPartitionRows() {
+        int rows = 0;
+        for (LedgerPartition partition : partitions) {
+            rows += partition.getRowCount();
+        }
+        return rows;
+    }
+
+    /**
+     * Reads a manifest file.
+     *
+     * @param file the manifest
+     * @return the manifest
+     * @throws IOException if the file cannot be read or is corrupt
+     */
+    public static PartitionManifest read(Path file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        if (bytes.length < 4) {
+            throw new IOException("Corrupt manifest: " + file);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 4);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        in.skipBytes(bytes.length - 4);
+        if ((int) crc.getValue() != in.readInt()) {
+            throw new IOException("Manifest checksum mismatch: " + file);
+        }
+
+        in = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 4));
+        if (in.readInt() != MAGIC || in.readShort() != FORMAT_VERSION) {
+            throw new IOException("Unrecognized manifest format: " + file);
+        }
+        int generation = in.readInt();
+        String activeFile = in.readBoolean() ? in.readUTF() : null;
+        int count = in.readInt();
+        List<LedgerPartition> partitions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            partitions.add(LedgerPartition.read(in));
+        }
+        return new PartitionManifest(generation, activeFile, partitions);
+    }
+
+    /**
+     * Writes the manifest through a temporary file and an atomic rename.
+     *
+     * @param file the manifest
+     * @throws IOException if the manifest cannot be written
+     */
+    public void write(Path file) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeShort(FORMAT_VERSION);
+            out.writeInt(generation);
+            out.writeBoolean(activeFile != null);
+            if (activeFile != null) {
+                out.writeUTF(activeFile);
+            }
+            out.writeInt(partitions.size());
+            for (LedgerPartition partition : partitions) {
+                partition.write(out);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes.toByteArray());
+            out.writeInt((int) crc.getValue());
+        }
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp.toFile())) {
+            out.write(bytes.toByteArray());
+            out.getFD().sync();
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
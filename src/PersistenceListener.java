@@ -0,0 +1,17 @@
+import java.io.IOException;
+
+/**
+ * Receives persistence errors from a {@link TransactionManager}.
+ * Listeners are called on the thread that hit the error, which for saves is the background
+ * persistence thread, so user interface code must hand the notification over to its own thread.
+ */
+@FunctionalInterface
+public interface PersistenceListener {
+    /**
+     * Called when loading or saving transactions fails.
+     *
+     * @param message a short description of the failed operation, e.g. "Error saving transactions"
+     * @param error   the underlying I/O error
+     */
+    void persistenceFailed(String message, IOException error);
+}
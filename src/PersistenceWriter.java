@@ -0,0 +1,267 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Background thread that writes added transactions to the {@link TransactionJournal}.
+ * Callers hand over batches with {@link #submit(List, int)} and return immediately; the writer
+ * combines all batches waiting at the time of a commit into one journal write and one force
+ * (group commit), according to the configured {@link DurabilityMode}. Each submission gets a
+ * future that completes once its transactions have been committed, or completes exceptionally
+ * if the write failed, in which case the listener is notified as well.
+ */
+public class PersistenceWriter implements Closeable {
+    /** Default longest wait before a group commit in {@link DurabilityMode#GROUP_COMMIT} mode. */
+    public static final int DEFAULT_GROUP_COMMIT_MILLIS = 50;
+
+    /** Default number of records that triggers a group commit before the wait is over. */
+    public static final int DEFAULT_GROUP_COMMIT_RECORDS = 512;
+
+    /** Records held back in {@link DurabilityMode#ON_EXIT} mode before they are written anyway. */
+    private static final int MAX_DEFERRED_RECORDS = 1 << 16;
+
+    private static final PendingBatch SHUTDOWN = new PendingBatch(Collections.emptyList(), -1);
+
+    private final TransactionJournal journal;
+    private final TransactionStore store;
+    private final DurabilityMode mode;
+    private final PersistenceListener listener;
+    private final LatencyHistogram journalTimer;
+    private final LatencyHistogram snapshotTimer;
+    private final LongAdder savedRecords;
+    private final LongAdder failedSaves;
+    private final LongAdder listenerFailures;
+    private final BlockingQueue<PendingBatch> queue = new LinkedBlockingQueue<>();
+    private final Object queueLock = new Object(); // guards closed, stopped and adding to the queue
+    private final Thread thread;
+
+    private volatile int groupCommitMillis = DEFAULT_GROUP_COMMIT_MILLIS;
+    private volatile int groupCommitRecords = DEFAULT_GROUP_COMMIT_RECORDS;
+    private boolean closed;
+    private boolean stopped;
+    private boolean snapshotRequired;
+
+    /**
+     * Starts a writer thread for an opened journal.
+     *
+     * @param journal  the journal to write to; only the writer thread uses it from now on
+     * @param store    the store whose rows are being persisted, used for compaction
+     * @param mode     when commits are forced to disk
+     * @param listener notified when a commit fails
+     * @param metrics  receives the commit latencies and record counts
+     */
+    public PersistenceWriter(TransactionJournal journal, TransactionStore store, DurabilityMode mode,
+                             PersistenceListener listener, MetricsRegistry metrics) {
+        this.journal = journal;
+        this.store = store;
+        this.mode = mode;
+        this.listener = listener;
+        this.journalTimer = metrics.timer("save.journal");
+        this.snapshotTimer = metrics.timer("save.snapshot");
+        this.savedRecords = metrics.counter("save.records");
+        this.failedSaves = metrics.counter("save.failures");
+        this.listenerFailures = metrics.counter("save.listenerFailures");
+        this.thread = new Thread(this::run, "ledger-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Changes the group commit limits used in {@link DurabilityMode#GROUP_COMMIT} mode.
+     *
+     * @param millis  the longest time a transaction waits before its group is committed
+     * @param records the number of pending records that triggers a commit immediately
+     */
+    public void setGroupCommitLimits(int millis, int records) {
+        this.groupCommitMillis = Math.max(0, millis);
+        this.groupCommitRecords = Math.max(1, records);
+    }
+
+    /**
+     * Queues transactions that have just been added to the store. Batches must be submitted in
+     * row order.
+     *
+     * @param batch    the transactions
+     * @param firstRow the row id of the first transaction
+     * @return a future completing when the batch has been committed according to the mode, or
+     *         failing if the writer is closed
+     */
+    public CompletableFuture<Void> submit(List<Transaction> batch, int firstRow) {
+        PendingBatch pending = new PendingBatch(batch, firstRow);
+        // Checked and queued together, so no batch can be queued behind the shutdown marker
+        synchronized (queueLock) {
+            if (!closed && !stopped) {
+                queue.add(pending);
+                return pending.future;
+            }
+        }
+        pending.future.completeExceptionally(new IOException("Persistence writer is closed"));
+        return pending.future;
+    }
+
+    /**
+     * Commits everything still pending, stops the writer thread and closes the journal.
+     *
+     * @throws IOException if the journal cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (queueLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.add(SHUTDOWN);
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        journal.close();
+    }
+
+    /**
+     * Writer loop: waits for work, gathers a group according to the mode and commits it.
+     */
+    private void run() {
+        List<PendingBatch> group = new ArrayList<>();
+        int groupRecords = 0;
+        boolean shutdown = false;
+        while (!shutdown) {
+            try {
+                PendingBatch first = queue.take();
+                if (first == SHUTDOWN) {
+                    shutdown = true;
+                } else {
+                    group.add(first);
+                    groupRecords += first.batch.size();
+                }
+
+                if (!shutdown && mode == DurabilityMode.GROUP_COMMIT) {
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(groupCommitMillis);
+                    while (groupRecords < groupCommitRecords) {
+                        long remaining = deadline - System.nanoTime();
+                        PendingBatch next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                        if (next == null) {
+                            break;
+                        }
+                        if (next == SHUTDOWN) {
+                            shutdown = true;
+                            break;
+                        }
+                        group.add(next);
+                        groupRecords += next.batch.size();
+                    }
+                }
+
+                // Whatever else is already waiting joins this commit
+                List<PendingBatch> waiting = new ArrayList<>();
+                queue.drainTo(waiting);
+                for (PendingBatch next : waiting) {
+                    if (next == SHUTDOWN) {
+                        shutdown = true;
+                    } else {
+                        group.add(next);
+                        groupRecords += next.batch.size();
+                    }
+                }
+            } catch (InterruptedException e) {
+                shutdown = true;
+            }
+
+            boolean deferred = mode == DurabilityMode.ON_EXIT && !shutdown && groupRecords < MAX_DEFERRED_RECORDS;
+            if (!group.isEmpty() && !deferred) {
+                commit(group, groupRecords);
+                group.clear();
+                groupRecords = 0;
+            }
+        }
+
+        // Only an interrupt stops the loop before the shutdown marker; refuse further batches
+        // and fail what it left behind
+        synchronized (queueLock) {
+            stopped = true;
+        }
+        List<PendingBatch> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        IOException error = new IOException("Persistence writer stopped before the transactions were saved");
+        for (PendingBatch pending : abandoned) {
+            pending.future.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * Writes a group of consecutive batches with one journal write and one force, or rewrites the
+     * snapshot if the journal is due for compaction or a previous write failed part way.
+     */
+    private void commit(List<PendingBatch> group, int records) {
+        PendingBatch last = group.get(group.size() - 1);
+        int endRow = last.firstRow + last.batch.size();
+        LedgerEvents.SaveEvent event = new LedgerEvents.SaveEvent();
+        event.begin();
+        long start = System.nanoTime();
+        boolean compaction = snapshotRequired || journal.needsCompaction(records);
+        try {
+            if (compaction) {
+                journal.compact(store, endRow);
+                snapshotRequired = false;
+            } else {
+                List<Transaction> transactions = new ArrayList<>(records);
+                for (PendingBatch pending : group) {
+                    transactions.addAll(pending.batch);
+                }
+                journal.appendAll(transactions, group.get(0).firstRow);
+            }
+            (compaction ? snapshotTimer : journalTimer).record(System.nanoTime() - start);
+            savedRecords.add(records);
+            commitEvent(event, records, compaction, false);
+            for (PendingBatch pending : group) {
+                pending.future.complete(null);
+            }
+        } catch (IOException | RuntimeException e) {
+            failedSaves.increment();
+            commitEvent(event, records, compaction, true);
+            // The journal may end in a partial record now; the next commit rewrites the snapshot
+            snapshotRequired = true;
+            IOException error = e instanceof IOException ? (IOException) e : new IOException(e);
+            for (PendingBatch pending : group) {
+                pending.future.completeExceptionally(error);
+            }
+            try {
+                listener.persistenceFailed("Error saving transactions", error);
+            } catch (RuntimeException listenerError) {
+                // A failing listener must not stop the writer thread; count it and hand it to
+                // the thread's handler, as if it had been thrown
+                listenerFailures.increment();
+                Thread current = Thread.currentThread();
+                current.getUncaughtExceptionHandler().uncaughtException(current, listenerError);
+            }
+        }
+    }
+
+    private void commitEvent(LedgerEvents.SaveEvent event, int records, boolean compaction, boolean failed) {
+        if (event.shouldCommit()) {
+            event.records = records;
+            event.compaction = compaction;
+            event.mode = mode.name();
+            event.failed = failed;
+            event.commit();
+        }
+    }
+
+    /**
+     * Transactions handed over by one call to {@link #submit(List, int)}.
+     */
+    private static class PendingBatch {
+        final List<Transaction> batch;
+        final int firstRow;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        PendingBatch(List<Transaction> batch, int firstRow) {
+            this.batch = batch;
+            this.firstRow = firstRow;
+        }
+    }
+}
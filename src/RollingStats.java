@@ -0,0 +1,133 @@
+import java.time.LocalDate;
+
+/**
+ * Spending velocity as of a day, from {@link RollingWindows}: income and expense totals and daily
+ * averages over the last 7, 30 and 90 days, the daily burn rate, the month so far and a
+ * projection of the balance at the end of the month. Windows end on and include the as-of day.
+ * Amounts are kept in cents and returned in currency units. Statistics are immutable.
+ */
+public class RollingStats {
+    /** Window whose averages give the burn rate and the projection. */
+    public static final int BURN_RATE_DAYS = 30;
+
+    private final LocalDate asOf;
+    private final int[] windowDays;
+    private final long[] income;
+    private final long[] expenses;
+    private final long monthIncome;
+    private final long monthExpenses;
+    private final long balance;
+
+    RollingStats(LocalDate asOf, int[] windowDays, long[] income, long[] expenses,
+                 long monthIncome, long monthExpenses, long balance) {
+        this.asOf = asOf;
+        this.windowDays = windowDays.clone();
+        this.income = income.clone();
+        this.expenses = expenses.clone();
+        this.monthIncome = monthIncome;
+        this.monthExpenses = monthExpenses;
+        this.balance = balance;
+    }
+
+    public LocalDate getAsOf() { return asOf; }
+
+    /**
+     * Returns the window lengths.
+     *
+     * @return the lengths in days, shortest first
+     */
+    public int[] getWindowDays() {
+        return windowDays.clone();
+    }
+
+    /**
+     * Returns the expenses of a window.
+     *
+     * @param days a length from {@link #getWindowDays()}
+     * @return the total expenses of the last {@code days} days
+     */
+    public double getExpenses(int days) {
+        return expenses[window(days)] / 100.0;
+    }
+
+    /**
+     * Returns the income of a window.
+     *
+     * @param days a length from {@link #getWindowDays()}
+     * @return the total income of the last {@code days} days
+     */
+    public double getIncome(int days) {
+        return income[window(days)] / 100.0;
+    }
+
+    /**
+     * Returns the average expenses per day of a window.
+     *
+     * @param days a length from {@link #getWindowDays()}
+     * @return the expenses of the window divided by its length
+     */
+    public double getAverageDailyExpenses(int days) {
+        return getExpenses(days) / days;
+    }
+
+    /**
+     * Returns the average income per day of a window.
+     *
+     * @param days a length from {@link #getWindowDays()}
+     * @return the income of the window divided by its length
+     */
+    public double getAverageDailyIncome(int days) {
+        return getIncome(days) / days;
+    }
+
+    /**
+     * Returns how much is spent per day, averaged over the last {@value #BURN_RATE_DAYS} days.
+     *
+     * @return the daily burn rate
+     */
+    public double getDailyBurnRate() {
+        return getAverageDailyExpenses(BURN_RATE_DAYS);
+    }
+
+    public double getMonthIncome() { return monthIncome / 100.0; }
+    public double getMonthExpenses() { return monthExpenses / 100.0; }
+
+    /**
+     * Returns the balance of all transactions dated up to the as-of day.
+     *
+     * @return total income minus total expenses
+     */
+    public double getBalance() {
+        return balance / 100.0;
+    }
+
+    /**
+     * Returns the number of days after the as-of day until the end of its month.
+     *
+     * @return 0 on the last day of a month
+     */
+    public int getDaysLeftInMonth() {
+        return asOf.lengthOfMonth() - asOf.getDayOfMonth();
+    }
+
+    /**
+     * Projects the balance at the end of the month by continuing the average daily income and
+     * spending of the last {@value #BURN_RATE_DAYS} days over the days left. Transactions already
+     * entered for later dates are not counted, since the averages stand in for them.
+     *
+     * @return the projected balance on the last day of the month
+     */
+    public double getProjectedMonthEndBalance() {
+        double dailyNet = getAverageDailyIncome(BURN_RATE_DAYS) - getDailyBurnRate();
+        return getBalance() + dailyNet * getDaysLeftInMonth();
+    }
+
+    private int window(int days) {
+        for (int i = 0; i < windowDays.length; i++) {
+            if (windowDays[i] == days) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("No " + days + "-day window");
+    }
+}
@@ -0,0 +1,167 @@
+import java.time.LocalDate;
+
+/**
+ * Sliding-window spending statistics anchored at a day, normally today: income and expenses of
+ * the last 7, 30 and 90 days, of the month so far and the balance of everything dated up to the
+ * anchor.
+ *
+ * <p>Each window keeps a running sum for the anchor day, so adding a transaction updates the
+ * windows covering it in O(1) and reading them for the anchor is O(1). Per-day totals are not
+ * kept here: moving the anchor, statistics for another day and rolling series for charts are
+ * answered from the range sums of the ledger's {@link DateIndex}, in O(log d) per window for d
+ * distinct days, so memory stays constant however long the history.</p>
+ *
+ * <p>Like the other aggregates it is not thread-safe on its own; {@link TransactionManager}
+ * guards it. Only {@link #add}, {@link #addRows} and {@link #advanceTo(int)} change it; the other
+ * methods only read.</p>
+ */
+public class RollingWindows {
+    /** Window lengths in days, shortest first. */
+    public static final int[] WINDOW_DAYS = {7, 30, 90};
+
+    private static final int NOT_ANCHORED = Integer.MIN_VALUE;
+
+    private final DateIndex dateIndex;
+    private int anchorDay = NOT_ANCHORED;
+    private final long[] windowIncome = new long[WINDOW_DAYS.length];
+    private final long[] windowExpenses = new long[WINDOW_DAYS.length];
+    private long monthIncome;
+    private long monthExpenses;
+    private long balanceCents;
+
+    /**
+     * Creates windows that read per-day totals from the given index. Rows must be added to the
+     * index before they are added to the windows.
+     *
+     * @param dateIndex the date index of the same ledger
+     */
+    public RollingWindows(DateIndex dateIndex) {
+        this.dateIndex = dateIndex;
+    }
+
+    /**
+     * Adds newly appended store rows.
+     *
+     * @param store   the store holding the rows
+     * @param fromRow the first new row
+     * @param toRow   the row after the last new row
+     */
+    public void addRows(TransactionStore store, int fromRow, int toRow) {
+        for (int row = fromRow; row < toRow; row++) {
+            add(store.getEpochDay(row), store.getAmountCents(row), store.isIncome(row));
+        }
+    }
+
+    /**
+     * Adds a transaction to the windows ending at the anchor that cover it. Transactions dated
+     * after the anchor enter the windows when the anchor reaches them.
+     *
+     * @param epochDay    the transaction date as days since 1970-01-01
+     * @param amountCents the amount in cents
+     * @param isIncome    true for income, false for expenses
+     */
+    public void add(int epochDay, long amountCents, boolean isIncome) {
+        if (anchorDay == NOT_ANCHORED || epochDay > anchorDay) {
+            return;
+        }
+        balanceCents += isIncome ? amountCents : -amountCents;
+        for (int w = 0; w < WINDOW_DAYS.length; w++) {
+            if (epochDay > anchorDay - WINDOW_DAYS[w]) {
+                if (isIncome) {
+                    windowIncome[w] += amountCents;
+                } else {
+                    windowExpenses[w] += amountCents;
+                }
+            }
+        }
+        if (epochDay >= monthStart(anchorDay)) {
+            if (isIncome) {
+                monthIncome += amountCents;
+            } else {
+                monthExpenses += amountCents;
+            }
+        }
+    }
+
+    /**
+     * Returns the day the running sums end at.
+     *
+     * @return the anchor as an epoch day, or {@code Integer.MIN_VALUE} before the first
+     *         {@link #advanceTo(int)}
+     */
+    public int getAnchorDay() {
+        return anchorDay;
+    }
+
+    /**
+     * Moves the end of the running sums to another day, recomputing them from the date index.
+     *
+     * @param epochDay the new anchor, normally today
+     */
+    public void advanceTo(int epochDay) {
+        anchorDay = epochDay;
+        long[] balance = dateIndex.getTotalCents(Integer.MIN_VALUE, epochDay);
+        balanceCents = balance[0] - balance[1];
+        for (int w = 0; w < WINDOW_DAYS.length; w++) {
+            long[] window = dateIndex.getTotalCents(epochDay - WINDOW_DAYS[w] + 1, epochDay);
+            windowIncome[w] = window[0];
+            windowExpenses[w] = window[1];
+        }
+        long[] month = dateIndex.getTotalCents(monthStart(epochDay), epochDay);
+        monthIncome = month[0];
+        monthExpenses = month[1];
+    }
+
+    /**
+     * Returns the statistics of the windows ending on a day: from the running sums if it is the
+     * anchor, and from the date index otherwise, without moving the anchor.
+     *
+     * @param epochDay the last day of the windows
+     * @return the statistics
+     */
+    public RollingStats getStats(int epochDay) {
+        if (epochDay == anchorDay) {
+            return new RollingStats(LocalDate.ofEpochDay(anchorDay), WINDOW_DAYS, windowIncome, windowExpenses,
+                    monthIncome, monthExpenses, balanceCents);
+        }
+        long[] income = new long[WINDOW_DAYS.length];
+        long[] expenses = new long[WINDOW_DAYS.length];
+        for (int w = 0; w < WINDOW_DAYS.length; w++) {
+            long[] window = dateIndex.getTotalCents(epochDay - WINDOW_DAYS[w] + 1, epochDay);
+            income[w] = window[0];
+            expenses[w] = window[1];
+        }
+        long[] month = dateIndex.getTotalCents(monthStart(epochDay), epochDay);
+        long[] balance = dateIndex.getTotalCents(Integer.MIN_VALUE, epochDay);
+        return new RollingStats(LocalDate.ofEpochDay(epochDay), WINDOW_DAYS, income, expenses,
+                month[0], month[1], balance[0] - balance[1]);
+    }
+
+    /**
+     * Returns the average daily expenses over a sliding window for every day of a range, e.g. to
+     * chart how fast money is being spent. Each value covers the window ending on its day and
+     * takes one range sum of the date index.
+     *
+     * @param windowDays the window length in days
+     * @param fromDay    the first epoch day of the series
+     * @param toDay      the last epoch day of the series
+     * @return one average per day in currency units; empty if the range is reversed
+     * @throws IllegalArgumentException if the window length is not positive
+     */
+    public double[] getAverageDailyExpenses(int windowDays, int fromDay, int toDay) {
+        if (windowDays <= 0) {
+            throw new IllegalArgumentException("Window must be at least one day: " + windowDays);
+        }
+        double[] averages = new double[Math.max(0, toDay - fromDay + 1)];
+        for (int i = 0; i < averages.length; i++) {
+            int day = fromDay + i;
+            averages[i] = dateIndex.getTotalCents(day - windowDays + 1, day)[1] / 100.0 / windowDays;
+        }
+        return averages;
+    }
+
+    private static int monthStart(int epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        return epochDay - date.getDayOfMonth() + 1;
+    }
+}
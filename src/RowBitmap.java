@@ -0,0 +1,158 @@
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed set of row ids, filled in ascending order.
+ * Row ids are split into chunks of 65536; a chunk holding few rows stores their low 16 bits in a
+ * sorted {@code char[]} (2 bytes per row), and one holding more than 4096 rows switches to a
+ * plain 8 KB bitmap, so memory stays proportional to the rows in the set however they are
+ * spread. Sets are combined by OR-ing them into an uncompressed word array with
+ * {@link #orInto(long[])}.
+ *
+ * <p>Not thread-safe; {@link BitmapIndex} is guarded by {@link TransactionManager}.</p>
+ */
+public class RowBitmap {
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int BITMAP_WORDS = (1 << CHUNK_BITS) / Long.SIZE;
+
+    private int[] keys = new int[4];
+    // Each chunk is either a char[] of sorted low bits or a long[] bitmap
+    private Object[] chunks = new Object[4];
+    private int[] chunkSizes = new int[4];
+    private int chunkCount;
+    private int cardinality;
+    private int last = -1;
+
+    /**
+     * Adds a row id larger than every id added so far.
+     *
+     * @param row the row id
+     * @throws IllegalArgumentException if the row is not larger than the last one added
+     */
+    public void add(int row) {
+        if (row <= last) {
+            throw new IllegalArgumentException("Rows must be added in ascending order: " + row + " after " + last);
+        }
+        last = row;
+        int key = row >>> CHUNK_BITS;
+        if (chunkCount == 0 || keys[chunkCount - 1] != key) {
+            if (chunkCount == keys.length) {
+                keys = Arrays.copyOf(keys, chunkCount * 2);
+                chunks = Arrays.copyOf(chunks, chunkCount * 2);
+                chunkSizes = Arrays.copyOf(chunkSizes, chunkCount * 2);
+            }
+            keys[chunkCount] = key;
+            chunks[chunkCount] = new char[8];
+            chunkSizes[chunkCount] = 0;
+            chunkCount++;
+        }
+        int c = chunkCount - 1;
+        char low = (char) (row & CHUNK_MASK);
+        Object chunk = chunks[c];
+        if (chunk instanceof long[]) {
+            ((long[]) chunk)[low >>> 6] |= 1L << low;
+        } else {
+            char[] values = (char[]) chunk;
+            int size = chunkSizes[c];
+            if (size == ARRAY_LIMIT) {
+                long[] bits = new long[BITMAP_WORDS];
+                for (int i = 0; i < size; i++) {
+                    bits[values[i] >>> 6] |= 1L << values[i];
+                }
+                bits[low >>> 6] |= 1L << low;
+                chunks[c] = bits;
+            } else {
+                if (size == values.length) {
+                    values = Arrays.copyOf(values, size * 2);
+                    chunks[c] = values;
+                }
+                values[size] = low;
+            }
+        }
+        chunkSizes[c]++;
+        cardinality++;
+    }
+
+    /**
+     * Returns the number of rows in the set.
+     *
+     * @return the cardinality
+     */
+    public int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * Sets the bit of every row in the set in an uncompressed word array, where row {@code r} is
+     * bit {@code r % 64} of word {@code r / 64}. Rows beyond the array are ignored.
+     *
+     * @param words the words to OR into
+     */
+    public void orInto(long[] words) {
+        for (int c = 0; c < chunkCount; c++) {
+            int base = keys[c] << CHUNK_BITS;
+            int firstWord = base >>> 6;
+            if (firstWord >= words.length) {
+                return;
+            }
+            Object chunk = chunks[c];
+            if (chunk instanceof long[]) {
+                long[] bits = (long[]) chunk;
+                int count = Math.min(BITMAP_WORDS, words.length - firstWord);
+                for (int w = 0; w < count; w++) {
+                    words[firstWord + w] |= bits[w];
+                }
+            } else {
+                char[] values = (char[]) chunk;
+                for (int i = 0, size = chunkSizes[c]; i < size; i++) {
+                    int row = base | values[i];
+                    int word = row >>> 6;
+                    if (word < words.length) {
+                        words[word] |= 1L << row;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Calls an action for every row in the set, in ascending order.
+     *
+     * @param action receives the row ids
+     */
+    public void forEach(IntConsumer action) {
+        for (int c = 0; c < chunkCount; c++) {
+            int base = keys[c] << CHUNK_BITS;
+            Object chunk = chunks[c];
+            if (chunk instanceof long[]) {
+                long[] bits = (long[]) chunk;
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    for (long word = bits[w]; word != 0; word &= word - 1) {
+                        action.accept(base | (w << 6) | Long.numberOfTrailingZeros(word));
+                    }
+                }
+            } else {
+                char[] values = (char[]) chunk;
+                for (int i = 0, size = chunkSizes[c]; i < size; i++) {
+                    action.accept(base | values[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Estimates the heap used by the set.
+     *
+     * @return an approximate size in bytes
+     */
+    public long estimateMemoryBytes() {
+        long bytes = 64L + 16L * keys.length;
+        for (int c = 0; c < chunkCount; c++) {
+            Object chunk = chunks[c];
+            bytes += 16 + (chunk instanceof long[] ? 8L * ((long[]) chunk).length : 2L * ((char[]) chunk).length);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,86 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns dense integer ids to distinct strings so columns can store ids instead of references.
+ * Every distinct value is kept once; looking up an id returns the shared instance.
+ *
+ * <p>Like {@link TransactionStore}, the dictionary has a single writer at a time and lock-free
+ * readers: a value is stored before its id is handed out, and grown arrays are published
+ * through a volatile field.</p>
+ */
+public class StringDictionary {
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] values = new String[16];
+    private volatile int size;
+
+    /**
+     * Returns the id of a value, adding it to the dictionary on first use.
+     * A null value is stored as the empty string.
+     *
+     * @param value the value to look up
+     * @return the id of the value
+     */
+    public int idOf(String value) {
+        String key = value == null ? "" : value;
+        Integer id = ids.get(key);
+        if (id == null) {
+            id = size;
+            String[] current = values;
+            if (id == current.length) {
+                current = Arrays.copyOf(current, id * 2);
+            }
+            current[id] = key;
+            values = current;
+            size = id + 1;
+            ids.put(key, id);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id of a value without adding it.
+     *
+     * @param value the value to look up
+     * @return the id of the value, or -1 if it is not in the dictionary
+     */
+    public int find(String value) {
+        Integer id = ids.get(value == null ? "" : value);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the value for an id.
+     *
+     * @param id an id previously returned by {@link #idOf(String)}
+     * @return the shared value instance
+     */
+    public String valueOf(int id) {
+        return values[id];
+    }
+
+    /**
+     * Returns the number of distinct values.
+     *
+     * @return the dictionary size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Estimates the heap used by the dictionary, including the strings it holds.
+     *
+     * @return an approximate size in bytes
+     */
+    public long estimateMemoryBytes() {
+        String[] current = values;
+        int count = size;
+        long bytes = 16L + 4L * current.length;
+        for (int i = 0; i < count; i++) {
+            // String header and byte array plus the hash map entry and boxed id
+            bytes += 24 + 16 + current[i].length() + 32 + 16;
+        }
+        return bytes;
+    }
+}
@@ -1,9 +1,15 @@
-import java.io.Serializable;
+import java.io.*;
+import java.time.LocalDate;
 import java.util.Date;
 
 /**
  * Represents a financial transaction with date, description, amount, category, and type.
  * This class implements Serializable to allow for object serialization.
+ *
+ * <p>Transactions are immutable and compact: the date is kept as an epoch day and the amount in
+ * cents. Instances handed out by {@link TransactionStore} are lightweight views whose category
+ * and description strings are shared with the store's dictionaries. The serialized form is
+ * unchanged from earlier versions so legacy data files can still be read.</p>
  */
 public class Transaction implements Serializable {
     /**
@@ -12,9 +18,27 @@ public class Transaction implements Serializable {
      */
     private static final long serialVersionUID = 1L;
 
-    private Date date;
+    /**
+     * The fields written by earlier versions, kept as the serialized form of this class.
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("date", Date.class),
+            new ObjectStreamField("description", String.class),
+            new ObjectStreamField("amount", double.class),
+            new ObjectStreamField("category", String.class),
+            new ObjectStreamField("isIncome", boolean.class)
+    };
+
+    /**
+     * The longest description or category accepted for new transactions, in characters. The
+     * journal stores each string with a 16-bit byte length and a character takes at most three
+     * bytes there, so every accepted string can be written.
+     */
+    public static final int MAX_TEXT_LENGTH = 10_000;
+
+    private int epochDay;
     private String description;
-    private double amount;
+    private long amountCents;
     private String category;
     private boolean isIncome;
 
@@ -31,21 +55,123 @@ public class Transaction implements Serializable {
      * @throws IllegalArgumentException if description is null or empty
      */
     public Transaction(String dateStr, String description, double amount, String category, boolean isIncome) {
+        LocalDate date;
         try {
-            this.date = java.sql.Date.valueOf(dateStr);
+            date = java.sql.Date.valueOf(dateStr).toLocalDate();
         } catch (IllegalArgumentException e) {
-            this.date = new Date(); // Use current date if invalid format
+            date = LocalDate.now(); // Use current date if invalid format
         }
+        this.epochDay = (int) date.toEpochDay();
         this.description = description;
-        this.amount = amount;
+        this.amountCents = toCents(amount);
         this.category = category;
         this.isIncome = isIncome;
     }
 
+    /**
+     * Constructs a new Transaction from an already parsed date.
+     *
+     * @param date        the transaction date
+     * @param description a description of the transaction
+     * @param amount      the monetary amount of the transaction (must be positive)
+     * @param category    the category of the transaction (e.g., "Food", "Rent")
+     * @param isIncome    true if this is an income transaction, false if it's an expense
+     */
+    public Transaction(LocalDate date, String description, double amount, String category, boolean isIncome) {
+        this((int) date.toEpochDay(), description, toCents(amount), category, isIncome);
+    }
+
+    /**
+     * Constructs a new Transaction from its compact representation.
+     *
+     * @param epochDay    the transaction date as days since 1970-01-01
+     * @param description a description of the transaction
+     * @param amountCents the monetary amount in cents
+     * @param category    the category of the transaction
+     * @param isIncome    true if this is an income transaction, false if it's an expense
+     */
+    public Transaction(int epochDay, String description, long amountCents, String category, boolean isIncome) {
+        this.epochDay = epochDay;
+        this.description = description;
+        this.amountCents = amountCents;
+        this.category = category;
+        this.isIncome = isIncome;
+    }
+
+    /**
+     * Returns the transaction date as a local calendar date.
+     *
+     * @return the calendar date of the transaction
+     */
+    public LocalDate getLocalDate() {
+        return LocalDate.ofEpochDay(epochDay);
+    }
+
+    /**
+     * Returns the transaction date as a new {@code java.sql.Date}; callers may modify it freely.
+     *
+     * @return the date of the transaction
+     */
+    public Date getDate() {
+        return java.sql.Date.valueOf(getLocalDate());
+    }
+
     // Getters
-    public Date getDate() { return date; }
+    public int getEpochDay() { return epochDay; }
     public String getDescription() { return description; }
-    public double getAmount() { return amount; }
+    public double getAmount() { return amountCents / 100.0; }
+    public long getAmountCents() { return amountCents; }
     public String getCategory() { return category; }
     public boolean isIncome() { return isIncome; }
-}
\ No newline at end of file
+
+    /**
+     * Checks that the description and category are short enough to be persisted.
+     *
+     * @throws IllegalArgumentException if either is longer than {@link #MAX_TEXT_LENGTH} characters
+     */
+    public void checkTextLengths() {
+        if (description != null && description.length() > MAX_TEXT_LENGTH) {
+            throw new IllegalArgumentException("Description cannot be longer than " + MAX_TEXT_LENGTH + " characters");
+        }
+        if (category != null && category.length() > MAX_TEXT_LENGTH) {
+            throw new IllegalArgumentException("Category cannot be longer than " + MAX_TEXT_LENGTH + " characters");
+        }
+    }
+
+    /**
+     * Converts a monetary amount to whole cents, rounding to the nearest cent.
+     *
+     * @param amount the amount in currency units
+     * @return the amount in cents
+     */
+    public static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    /**
+     * Writes the transaction in the legacy serialized form.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("date", getDate());
+        fields.put("description", description);
+        fields.put("amount", getAmount());
+        fields.put("category", category);
+        fields.put("isIncome", isIncome);
+        out.writeFields();
+    }
+
+    /**
+     * Reads a transaction from the legacy serialized form.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        Date date = (Date) fields.get("date", null);
+        LocalDate localDate = date == null ? LocalDate.now() : new java.sql.Date(date.getTime()).toLocalDate();
+        epochDay = (int) localDate.toEpochDay();
+        description = (String) fields.get("description", null);
+        amountCents = toCents(fields.get("amount", 0.0));
+        category = (String) fields.get("category", null);
+        isIncome = fields.get("isIncome", false);
+    }
+}
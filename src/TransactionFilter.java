@@ -0,0 +1,149 @@
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Criteria for the rows shown in the transaction table: type, a set of categories, an inclusive
+ * date range and description search words, all of which must match. Unset criteria match
+ * everything. Filters are immutable; {@link TransactionManager#findRows(TransactionFilter, int)}
+ * resolves them through its indexes, and {@link #matcher(TransactionStore)} checks single rows.
+ */
+public final class TransactionFilter {
+    /** A filter matching every transaction. */
+    public static final TransactionFilter ALL = new TransactionFilter("All", null, null, null, "");
+
+    private final String type;
+    private final Set<String> categories;
+    private final LocalDate from;
+    private final LocalDate to;
+    private final String search;
+    private final List<String> searchWords;
+
+    /**
+     * Creates a filter.
+     *
+     * @param type       "All", "Income" or "Expense"
+     * @param categories the categories to show, or null or empty for all categories
+     * @param from       the first date to show, or null for no lower bound
+     * @param to         the last date to show, or null for no upper bound
+     * @param search     words the description must contain as word prefixes, or an empty string
+     * @throws IllegalArgumentException if the type is not one of the three values
+     */
+    public TransactionFilter(String type, Collection<String> categories, LocalDate from, LocalDate to, String search) {
+        if (!type.equals("All") && !type.equals("Income") && !type.equals("Expense")) {
+            throw new IllegalArgumentException("Unknown transaction type: " + type);
+        }
+        this.type = type;
+        this.categories = categories == null ? Collections.emptySet()
+                : Collections.unmodifiableSet(new LinkedHashSet<>(categories));
+        this.from = from;
+        this.to = to;
+        this.search = search == null ? "" : search;
+        this.searchWords = Collections.unmodifiableList(DescriptionIndex.tokenize(this.search));
+    }
+
+    public String getType() { return type; }
+    public LocalDate getFrom() { return from; }
+    public LocalDate getTo() { return to; }
+    public String getSearch() { return search; }
+
+    /**
+     * Returns the categories to show.
+     *
+     * @return the category names; empty if every category is shown
+     */
+    public Set<String> getCategories() {
+        return categories;
+    }
+
+    /**
+     * Returns the search split into words, as matched against descriptions.
+     *
+     * @return the lower-case search words; empty if there is no search
+     */
+    public List<String> getSearchWords() {
+        return searchWords;
+    }
+
+    /**
+     * Tells whether the filter restricts anything.
+     *
+     * @return false if every transaction matches
+     */
+    public boolean isRestrictive() {
+        return !type.equals("All") || !categories.isEmpty() || from != null || to != null || !searchWords.isEmpty();
+    }
+
+    /**
+     * Returns a copy with another type.
+     *
+     * @param type "All", "Income" or "Expense"
+     * @return the new filter
+     */
+    public TransactionFilter withType(String type) {
+        return new TransactionFilter(type, categories, from, to, search);
+    }
+
+    /**
+     * Creates a matcher checking rows of a store one at a time, for rows not covered by an index.
+     *
+     * @param store the store holding the rows
+     * @return a matcher; not thread-safe
+     */
+    public Matcher matcher(TransactionStore store) {
+        return new Matcher(store);
+    }
+
+    /**
+     * Checks single rows against the filter. Category and description tests are evaluated once
+     * per dictionary id and remembered, so the per-row cost is a few column reads.
+     */
+    public final class Matcher {
+        private final TransactionStore store;
+        private final long fromDay = from == null ? Long.MIN_VALUE : from.toEpochDay();
+        private final long toDay = to == null ? Long.MAX_VALUE : to.toEpochDay();
+        private final BitSet checkedCategories = new BitSet();
+        private final BitSet matchingCategories = new BitSet();
+        private final BitSet checkedDescriptions = new BitSet();
+        private final BitSet matchingDescriptions = new BitSet();
+
+        private Matcher(TransactionStore store) {
+            this.store = store;
+        }
+
+        /**
+         * Tells whether a row passes the filter.
+         *
+         * @param row the row id
+         * @return true if every criterion matches
+         */
+        public boolean matches(int row) {
+            if (!type.equals("All") && store.isIncome(row) != type.equals("Income")) {
+                return false;
+            }
+            int day = store.getEpochDay(row);
+            if (day < fromDay || day > toDay) {
+                return false;
+            }
+            if (!categories.isEmpty()) {
+                int category = store.getCategoryId(row);
+                if (!checkedCategories.get(category)) {
+                    checkedCategories.set(category);
+                    matchingCategories.set(category, categories.contains(store.getCategories().valueOf(category)));
+                }
+                if (!matchingCategories.get(category)) {
+                    return false;
+                }
+            }
+            if (!searchWords.isEmpty()) {
+                int description = store.getDescriptionId(row);
+                if (!checkedDescriptions.get(description)) {
+                    checkedDescriptions.set(description);
+                    matchingDescriptions.set(description,
+                            DescriptionIndex.matches(store.getDescriptions().valueOf(description), searchWords));
+                }
+                return matchingDescriptions.get(description);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,758 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only persistence for the transaction ledger.
+ * New transactions are appended as small checksummed records to a journal file, so adding a
+ * transaction costs the same regardless of how much history has been recorded. The journal is
+ * periodically folded into a snapshot file (compaction), and a torn record left at the end of the
+ * journal by a crash is detected and truncated away on startup.
+ *
+ * <p>Snapshots are written as a {@link ColumnarLedgerFile}; snapshots in the older record-based
+ * layout are still read and are replaced by the columnar format at the next compaction.</p>
+ *
+ * <p>On first start the legacy serialized {@code transactions.dat} file is migrated into a snapshot
+ * and renamed so it is not imported twice.</p>
+ *
+ * <p>Transactions dated in years before the current one are moved out of the snapshot into one
+ * immutable {@link LedgerPartition} file per year, listed with their totals in a
+ * {@link PartitionManifest}. The snapshot then only holds the open years, so compaction rewrites
+ * the current period rather than the whole history, and closed years are memory-mapped read-only
+ * on startup. A transaction added later for a closed year makes the next compaction rewrite that
+ * year's partition. Years are closed at compaction, and on startup once a new year has begun.</p>
+ */
+public class TransactionJournal implements Closeable {
+    private static final int JOURNAL_MAGIC = 0x53424a4c; // "SBJL"
+    private static final int LEGACY_SNAPSHOT_MAGIC = 0x5342534e; // "SBSN"
+    private static final short FORMAT_VERSION = 1;
+    private static final int JOURNAL_HEADER_SIZE = 6;
+    private static final int MAX_RECORD_SIZE = 1 << 20;
+
+    /** Minimum number of journal records before a compaction is considered. */
+    private static final int MIN_COMPACTION_RECORDS = 1024;
+
+    private final Path legacyFile;
+    private final Path snapshotFile;
+    private final Path journalFile;
+    private final Path manifestFile;
+    private final Path budgetFile;
+    private final Path directory;
+    private final String baseName;
+    private final Pattern partitionFiles;
+    private final Clock clock;
+
+    private FileChannel journalChannel;
+    // Set once open() has recovered the whole ledger; nothing is written to the files before
+    private boolean opened;
+    private PartitionManifest manifest;
+    // Store rows held by closed partitions; every other row belongs to the active snapshot
+    private final BitSet archivedRows = new BitSet();
+    private int activeCount;
+    private int journalRecords;
+    private volatile List<Path> dataFiles;
+
+    /**
+     * Creates a journal whose files are derived from the given legacy data file name.
+     * For {@code transactions.dat} the snapshot is {@code transactions.snapshot} and the
+     * journal is {@code transactions.journal}.
+     *
+     * @param legacyFileName the name of the legacy serialized data file
+     */
+    public TransactionJournal(String legacyFileName) {
+        this(legacyFileName, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Creates a journal like {@link #TransactionJournal(String)} that decides which years are
+     * closed with the given clock, e.g. for tools and benchmarks.
+     *
+     * @param legacyFileName the name of the legacy serialized data file
+     * @param clock          the clock whose current year is the first open year
+     */
+    public TransactionJournal(String legacyFileName, Clock clock) {
+        legacyFile = Paths.get(legacyFileName);
+        String base = legacyFileName.endsWith(".dat")
+                ? legacyFileName.substring(0, legacyFileName.length() - 4) : legacyFileName;
+        snapshotFile = Paths.get(base + ".snapshot");
+        journalFile = Paths.get(base + ".journal");
+        manifestFile = Paths.get(base + ".manifest");
+        budgetFile = Paths.get(base + ".budgets");
+        directory = snapshotFile.toAbsolutePath().getParent();
+        String snapshotName = snapshotFile.getFileName().toString();
+        baseName = snapshotName.substring(0, snapshotName.length() - ".snapshot".length());
+        // Snapshots and partitions written by compactions: base.snapshot, base.7.snapshot, base.2023.7.part
+        partitionFiles = Pattern.compile(Pattern.quote(baseName) + "\\.((\\d+\\.)?snapshot|\\d+\\.\\d+\\.part)");
+        this.clock = clock;
+        dataFiles = Arrays.asList(snapshotFile, journalFile);
+    }
+
+    /**
+     * Follows the recovery done by {@link #open(TransactionStore, RecoveryObserver)}.
+     * Methods are called on the thread that opens the journal.
+     */
+    public interface RecoveryObserver {
+        /**
+         * Called before any rows are added if the ledger is partitioned, so the totals of the
+         * closed years can be used at once.
+         *
+         * @param partitions the closed partitions; their rows will become the first rows of the
+         *                   store, in this order
+         */
+        void partitionsOpened(List<LedgerPartition> partitions);
+
+        /**
+         * Called when a columnar snapshot has been mapped, before any of its rows are added to
+         * the store, so its columns can be scanned directly.
+         *
+         * @param snapshot the mapped snapshot; its rows will follow the rows of the closed partitions
+         */
+        void snapshotOpened(ColumnarLedgerFile snapshot);
+
+        /**
+         * Called after rows have been added to the store.
+         *
+         * @param fromRow the first added row
+         * @param toRow   the row after the last added row
+         */
+        void rowsRecovered(int fromRow, int toRow);
+    }
+
+    /**
+     * Receives journal records read by {@link #readJournal(int, RecordHandler)}.
+     */
+    @FunctionalInterface
+    public interface RecordHandler {
+        /**
+         * Called for every record in ledger order.
+         *
+         * @param transaction the decoded transaction
+         * @throws IOException if the handler fails; reading stops and the exception is rethrown
+         */
+        void accept(Transaction transaction) throws IOException;
+    }
+
+    /**
+     * Opens the journal and recovers the ledger: migrates the legacy file if needed, reads the
+     * closed partitions and the snapshot, replays the journal and truncates any incomplete record
+     * at its end. Rows of years that have been closed since the last compaction are then moved
+     * into partitions.
+     *
+     * <p>If opening fails, the journal refuses all later writes so the files that could not be
+     * read are never replaced by a partial ledger.</p>
+     *
+     * @param store the empty store to recover the transactions into, in insertion order
+     * @throws IOException if the files cannot be read or the snapshot is corrupt
+     */
+    public void open(TransactionStore store) throws IOException {
+        open(store, new RecoveryObserver() {
+            @Override
+            public void partitionsOpened(List<LedgerPartition> partitions) {
+            }
+
+            @Override
+            public void snapshotOpened(ColumnarLedgerFile snapshot) {
+            }
+
+            @Override
+            public void rowsRecovered(int fromRow, int toRow) {
+            }
+        });
+    }
+
+    /**
+     * Opens the journal like {@link #open(TransactionStore)}, reporting recovered rows as they
+     * are added so callers can build derived data or show progress during a long load.
+     *
+     * @param store    the empty store to recover the transactions into, in insertion order
+     * @param observer notified of the snapshot and of every chunk of recovered rows
+     * @throws IOException if the files cannot be read or the snapshot is corrupt
+     */
+    public void open(TransactionStore store, RecoveryObserver observer) throws IOException {
+        if (!Files.exists(snapshotFile) && !Files.exists(journalFile) && !Files.exists(manifestFile)
+                && Files.exists(legacyFile)) {
+            migrateLegacyFile();
+        }
+
+        if (Files.exists(manifestFile)) {
+            manifest = PartitionManifest.read(manifestFile);
+            observer.partitionsOpened(manifest.getPartitions());
+            for (LedgerPartition partition : manifest.getPartitions()) {
+                ColumnarLedgerFile file = ColumnarLedgerFile.open(directory.resolve(partition.getFileName()));
+                if (file.getRowCount() != partition.getRowCount()) {
+                    throw new IOException("Partition " + partition.getFileName() + " has " + file.getRowCount()
+                            + " rows, the manifest lists " + partition.getRowCount());
+                }
+                appendColumnar(store, file, observer);
+            }
+            archivedRows.set(0, store.size());
+            if (manifest.getActiveFile() != null) {
+                readSnapshot(store, directory.resolve(manifest.getActiveFile()), observer);
+            }
+            deleteUnreferencedFiles();
+        } else if (Files.exists(snapshotFile)) {
+            readSnapshot(store, snapshotFile, observer);
+        }
+        int recovered = store.size();
+        activeCount = recovered - archivedRows.cardinality();
+        updateDataFiles();
+
+        journalChannel = FileChannel.open(journalFile,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            replayJournal(store);
+        } catch (IOException e) {
+            journalChannel.close();
+            journalChannel = null;
+            throw e;
+        }
+        opened = true;
+        if (store.size() > recovered) {
+            observer.rowsRecovered(recovered, store.size());
+        }
+
+        // A new year has begun, or transactions were added for a closed one
+        int openDay = firstOpenDay();
+        for (int row = archivedRows.nextClearBit(0); row < store.size(); row = archivedRows.nextClearBit(row + 1)) {
+            if (store.getEpochDay(row) < openDay) {
+                compact(store, store.size());
+                break;
+            }
+        }
+    }
+
+    /**
+     * Maps the closed partitions and the current snapshot read-only without opening the journal
+     * or changing any file, so the ledger can be read while an application has it open. Together
+     * with {@link #readJournal(int, RecordHandler)} this reads the ledger without copying it into
+     * the heap. A compaction finishing in between may make journal records invisible or delete a
+     * listed file before it is mapped; files already mapped stay readable after being replaced.
+     *
+     * @return the mapped files in ledger order; empty if nothing has been saved yet
+     * @throws IOException if a file is missing or corrupt, or the ledger is still in a legacy
+     *                     format that needs to be converted by opening it once with
+     *                     {@link #open(TransactionStore)}
+     */
+    public List<ColumnarLedgerFile> openSnapshots() throws IOException {
+        List<ColumnarLedgerFile> files = new ArrayList<>();
+        if (Files.exists(manifestFile)) {
+            PartitionManifest current = PartitionManifest.read(manifestFile);
+            List<Path> paths = new ArrayList<>();
+            for (LedgerPartition partition : current.getPartitions()) {
+                paths.add(directory.resolve(partition.getFileName()));
+            }
+            if (current.getActiveFile() != null) {
+                paths.add(directory.resolve(current.getActiveFile()));
+            }
+            for (Path path : paths) {
+                files.add(ColumnarLedgerFile.open(path));
+            }
+            paths.add(manifestFile);
+            paths.add(journalFile);
+            dataFiles = paths;
+            return files;
+        }
+        if (Files.exists(snapshotFile)) {
+            if (!ColumnarLedgerFile.isColumnarFile(snapshotFile)) {
+                throw new IOException("Snapshot in the old record format, open the ledger once to convert it: "
+                        + snapshotFile);
+            }
+            files.add(ColumnarLedgerFile.open(snapshotFile));
+        } else if (!Files.exists(journalFile) && Files.exists(legacyFile)) {
+            throw new IOException("Legacy data file, open the ledger once to convert it: " + legacyFile);
+        }
+        return files;
+    }
+
+    /**
+     * Streams the journal records following a snapshot, one at a time and without changing the
+     * journal file. Reading stops quietly at a torn or corrupt tail, like recovery does.
+     *
+     * @param fromSequence the ledger position of the first record wanted, normally the total row
+     *                     count of the files returned by {@link #openSnapshots()}
+     * @param handler      receives the records in ledger order
+     * @return the number of records passed to the handler
+     * @throws IOException if the journal cannot be read or has an unknown format, or the handler fails
+     */
+    public int readJournal(int fromSequence, RecordHandler handler) throws IOException {
+        if (!Files.exists(journalFile)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < JOURNAL_HEADER_SIZE) {
+                return 0;
+            }
+            checkHeader(channel);
+            int[] records = new int[1];
+            readRecords(channel, size, fromSequence, transaction -> {
+                handler.accept(transaction);
+                records[0]++;
+            });
+            return records[0];
+        }
+    }
+
+    /**
+     * Appends a batch of consecutive transactions with a single write and a single force.
+     *
+     * @param transactions  the transactions to append
+     * @param firstSequence the position of the first transaction in the ledger
+     * @throws IOException if the records cannot be written, or the journal has not been opened
+     *                     successfully
+     */
+    public void appendAll(List<Transaction> transactions, int firstSequence) throws IOException {
+        checkOpened();
+        ByteArrayOutputStream batch = new ByteArrayOutputStream(transactions.size() * 48);
+        for (int i = 0; i < transactions.size(); i++) {
+            ByteBuffer record = encodeRecord(transactions.get(i), firstSequence + i);
+            batch.write(record.array(), 0, record.limit());
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+        while (buffer.hasRemaining()) {
+            journalChannel.write(buffer);
+        }
+        journalChannel.force(false);
+        journalRecords += transactions.size();
+    }
+
+    /**
+     * Tells whether appending the given number of records would grow the journal enough to be
+     * worth folding into the snapshot instead. The threshold grows with the snapshot of the open
+     * years so the amortized cost per append stays constant.
+     *
+     * @param pendingRecords the number of records about to be appended
+     * @return true if {@link #compact(TransactionStore, int)} should be called instead of appending
+     */
+    public boolean needsCompaction(int pendingRecords) {
+        return journalRecords + pendingRecords >= Math.max(MIN_COMPACTION_RECORDS, activeCount);
+    }
+
+    /**
+     * Persists the first {@code rows} transactions outside the journal and empties the journal.
+     * Rows dated before the current year are added to the partitions of their years, and the
+     * others are written to a new snapshot. New files are written under new names and the
+     * manifest naming them is replaced atomically, so a crash at any point leaves either the old
+     * files plus journal or the new files on disk; an unpartitioned snapshot is written to a
+     * temporary file and atomically moved into place.
+     *
+     * @param store the ledger
+     * @param rows  the number of rows to include; rows added after them are not yet persisted
+     * @throws IOException if a file cannot be written, or the journal has not been opened
+     *                     successfully
+     */
+    public void compact(TransactionStore store, int rows) throws IOException {
+        checkOpened();
+        // Rows not yet in a partition, split into closed years and the open period
+        int openDay = firstOpenDay();
+        SortedMap<Integer, BitSet> closing = new TreeMap<>();
+        BitSet open = new BitSet(rows);
+        for (int row = archivedRows.nextClearBit(0); row < rows; row = archivedRows.nextClearBit(row + 1)) {
+            int day = store.getEpochDay(row);
+            if (day < openDay) {
+                closing.computeIfAbsent(LocalDate.ofEpochDay(day).getYear(), year -> new BitSet()).set(row);
+            } else {
+                open.set(row);
+            }
+        }
+
+        if (manifest == null && closing.isEmpty()) {
+            // Not partitioned: the store's dictionaries are written as they are
+            writeSnapshot(store, rows);
+            activeCount = rows;
+        } else {
+            writePartitions(store, closing, open);
+            for (BitSet yearRows : closing.values()) {
+                archivedRows.or(yearRows);
+            }
+            activeCount = open.cardinality();
+        }
+        updateDataFiles();
+
+        // Records already covered by the snapshot are skipped on replay, so truncating last is safe
+        journalChannel.truncate(JOURNAL_HEADER_SIZE);
+        journalChannel.position(JOURNAL_HEADER_SIZE);
+        journalChannel.force(true);
+        journalRecords = 0;
+    }
+
+    /**
+     * Writes the partitions of the closing years, merged with their existing partitions, and the
+     * active snapshot under the next generation, then commits them with a new manifest.
+     */
+    private void writePartitions(TransactionStore store, SortedMap<Integer, BitSet> closing, BitSet open)
+            throws IOException {
+        int generation = manifest == null ? 1 : manifest.getGeneration() + 1;
+        Map<Integer, LedgerPartition> partitions = new TreeMap<>();
+        if (manifest != null) {
+            for (LedgerPartition partition : manifest.getPartitions()) {
+                partitions.put(partition.getYear(), partition);
+            }
+        }
+
+        for (Map.Entry<Integer, BitSet> year : closing.entrySet()) {
+            TransactionStore yearRows = new TransactionStore();
+            LedgerPartition existing = partitions.get(year.getKey());
+            if (existing != null) {
+                ColumnarLedgerFile.open(directory.resolve(existing.getFileName())).appendTo(yearRows);
+            }
+            copyRows(store, year.getValue(), yearRows);
+            String name = baseName + "." + year.getKey() + "." + generation + ".part";
+            ColumnarLedgerFile.write(directory.resolve(name), yearRows, yearRows.size());
+            partitions.put(year.getKey(), LedgerPartition.summarize(name, year.getKey(), yearRows));
+        }
+
+        String activeName = null;
+        TransactionStore active = new TransactionStore();
+        copyRows(store, open, active);
+        if (active.size() > 0) {
+            activeName = baseName + "." + generation + ".snapshot";
+            ColumnarLedgerFile.write(directory.resolve(activeName), active, active.size());
+        }
+        PartitionManifest next = new PartitionManifest(generation, activeName, new ArrayList<>(partitions.values()));
+        next.write(manifestFile);
+        manifest = next;
+        deleteUnreferencedFiles();
+    }
+
+    /**
+     * Appends rows of one store to another, re-encoding their strings in the target's
+     * dictionaries so a partition only holds the strings it uses.
+     */
+    private static void copyRows(TransactionStore from, BitSet rows, TransactionStore to) {
+        to.ensureCapacity(to.size() + rows.cardinality());
+        for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+            to.add(from.getEpochDay(row), from.getAmountCents(row),
+                    to.getCategories().idOf(from.getCategory(row)),
+                    to.getDescriptions().idOf(from.getDescription(row)), from.isIncome(row));
+        }
+    }
+
+    /**
+     * Returns the first day of the current year; rows dated before it belong to closed years.
+     */
+    private int firstOpenDay() {
+        return (int) LocalDate.now(clock).withDayOfYear(1).toEpochDay();
+    }
+
+    /**
+     * Deletes snapshots and partitions of earlier generations that the manifest no longer names.
+     */
+    private void deleteUnreferencedFiles() throws IOException {
+        Set<String> referenced = new HashSet<>();
+        for (LedgerPartition partition : manifest.getPartitions()) {
+            referenced.add(partition.getFileName());
+        }
+        referenced.add(manifest.getActiveFile());
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, baseName + ".*")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (partitionFiles.matcher(name).matches() && !referenced.contains(name)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Records the files currently making up the ledger, for {@link #getDiskBytes()}.
+     */
+    private void updateDataFiles() {
+        if (manifest == null) {
+            dataFiles = Arrays.asList(snapshotFile, journalFile);
+            return;
+        }
+        List<Path> files = new ArrayList<>();
+        for (LedgerPartition partition : manifest.getPartitions()) {
+            files.add(directory.resolve(partition.getFileName()));
+        }
+        if (manifest.getActiveFile() != null) {
+            files.add(directory.resolve(manifest.getActiveFile()));
+        }
+        files.add(manifestFile);
+        files.add(journalFile);
+        dataFiles = files;
+    }
+
+    /**
+     * Returns the file the category budgets are kept in beside the ledger, e.g.
+     * {@code transactions.budgets}. The journal does not read or write it itself.
+     *
+     * @return the path of the budgets file
+     */
+    public Path getBudgetFile() {
+        return budgetFile;
+    }
+
+    /**
+     * Returns the space the ledger takes on disk. Safe to call from any thread; the value may
+     * be slightly out of date while a commit is in progress.
+     *
+     * @return the combined size of the partition, snapshot, manifest and journal files in bytes
+     */
+    public long getDiskBytes() {
+        long bytes = 0;
+        for (Path file : dataFiles) {
+            try {
+                bytes += Files.size(file);
+            } catch (IOException e) {
+                // Not written yet, or replaced by a compaction right now
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Closes the journal file.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (journalChannel != null) {
+            journalChannel.close();
+        }
+    }
+
+    /**
+     * Refuses to write unless {@link #open(TransactionStore, RecoveryObserver)} recovered the
+     * ledger: after a failed load the store holds only part of it, and compacting it would
+     * replace the unreadable files.
+     */
+    private void checkOpened() throws IOException {
+        if (!opened) {
+            throw new IOException("The ledger was not loaded, so its files are left untouched: " + directory);
+        }
+    }
+
+    /**
+     * Converts the legacy serialized ledger into a snapshot and renames the legacy file.
+     *
+     * @SuppressWarnings("unchecked") Suppresses warnings about unchecked cast
+     * from Object to List<Transaction> during deserialization
+     */
+    @SuppressWarnings("unchecked")
+    private void migrateLegacyFile() throws IOException {
+        List<Transaction> legacy;
+        try (ObjectInputStream ois = new ObjectInputStream(
+                new BufferedInputStream(Files.newInputStream(legacyFile)))) {
+            legacy = (List<Transaction>) ois.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unreadable legacy data file: " + e.getMessage(), e);
+        }
+
+        TransactionStore store = new TransactionStore();
+        for (Transaction t : legacy) {
+            store.add(t);
+        }
+        writeSnapshot(store, store.size());
+        Files.move(legacyFile, legacyFile.resolveSibling(legacyFile.getFileName() + ".migrated"),
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Reads a snapshot file into the given store, accepting both the columnar format and the
+     * older record-based snapshot layout.
+     */
+    private void readSnapshot(TransactionStore store, Path file, RecoveryObserver observer) throws IOException {
+        if (ColumnarLedgerFile.isColumnarFile(file)) {
+            ColumnarLedgerFile snapshot = ColumnarLedgerFile.open(file);
+            observer.snapshotOpened(snapshot);
+            appendColumnar(store, snapshot, observer);
+            return;
+        }
+
+        int first = store.size();
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != LEGACY_SNAPSHOT_MAGIC || in.readShort() != FORMAT_VERSION) {
+                throw new IOException("Unrecognized snapshot format: " + file);
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                int length = in.readInt();
+                if (length <= 0 || length > MAX_RECORD_SIZE) {
+                    throw new IOException("Corrupt snapshot record " + i);
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                if (in.readInt() != checksum(payload, length)) {
+                    throw new IOException("Checksum mismatch in snapshot record " + i);
+                }
+                store.add(decodePayload(ByteBuffer.wrap(payload)));
+            }
+        }
+        observer.rowsRecovered(first, store.size());
+    }
+
+    /**
+     * Appends the rows of a mapped columnar file to the store, reporting them chunk by chunk.
+     */
+    private static void appendColumnar(TransactionStore store, ColumnarLedgerFile file, RecoveryObserver observer) {
+        int first = store.size();
+        int[] reported = new int[1];
+        file.appendTo(store, rows -> {
+            if (rows > reported[0]) {
+                observer.rowsRecovered(first + reported[0], first + rows);
+                reported[0] = rows;
+            }
+        });
+    }
+
+    /**
+     * Writes a columnar snapshot of the first {@code rows} rows through a temporary file and an
+     * atomic rename.
+     */
+    private void writeSnapshot(TransactionStore store, int rows) throws IOException {
+        Path tmp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        ColumnarLedgerFile.write(tmp, store, rows);
+        Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Replays journal records after the snapshot and truncates the journal at the first
+     * incomplete or corrupt record.
+     */
+    private void replayJournal(TransactionStore store) throws IOException {
+        long size = journalChannel.size();
+        if (size < JOURNAL_HEADER_SIZE) {
+            // New or torn header: start an empty journal
+            ByteBuffer header = ByteBuffer.allocate(JOURNAL_HEADER_SIZE);
+            header.putInt(JOURNAL_MAGIC).putShort(FORMAT_VERSION).flip();
+            journalChannel.truncate(0);
+            journalChannel.write(header, 0);
+            journalChannel.force(true);
+            journalChannel.position(JOURNAL_HEADER_SIZE);
+            return;
+        }
+
+        checkHeader(journalChannel);
+        long position = readRecords(journalChannel, size, store.size(), transaction -> {
+            store.add(transaction);
+            journalRecords++;
+        });
+
+        if (position < size) {
+            journalChannel.truncate(position);
+            journalChannel.force(true);
+        }
+        journalChannel.position(position);
+    }
+
+    /**
+     * Verifies the magic number and version at the start of a journal file.
+     */
+    private void checkHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(JOURNAL_HEADER_SIZE);
+        readFully(channel, header, 0);
+        header.flip();
+        if (header.getInt() != JOURNAL_MAGIC || header.getShort() != FORMAT_VERSION) {
+            throw new IOException("Unrecognized journal format: " + journalFile);
+        }
+    }
+
+    /**
+     * Reads the records after the journal header up to the first incomplete or corrupt record,
+     * passing those from sequence number {@code nextSequence} on to the handler.
+     *
+     * @return the position after the last valid record
+     */
+    private static long readRecords(FileChannel channel, long size, int nextSequence, RecordHandler handler)
+            throws IOException {
+        long position = JOURNAL_HEADER_SIZE;
+        ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+        while (position + 4 <= size) {
+            lengthBuffer.clear();
+            readFully(channel, lengthBuffer, position);
+            int length = lengthBuffer.getInt(0);
+            if (length <= 0 || length > MAX_RECORD_SIZE || position + 8 + length > size) {
+                break; // Torn tail
+            }
+
+            ByteBuffer record = ByteBuffer.allocate(length + 4);
+            readFully(channel, record, position + 4);
+            byte[] payload = record.array();
+            if (record.getInt(length) != checksum(payload, length)) {
+                break; // Partially written record
+            }
+
+            ByteBuffer body = ByteBuffer.wrap(payload, 0, length);
+            long sequence = body.getLong();
+            if (sequence > nextSequence) {
+                break; // Gap after the snapshot: nothing past here can be trusted
+            }
+            if (sequence == nextSequence) {
+                handler.accept(decodePayload(body));
+                nextSequence++;
+            }
+            position += 8 + length;
+        }
+        return position;
+    }
+
+    /**
+     * Reads from a journal channel at the given position until the buffer is full.
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of journal");
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Encodes a transaction as a length-prefixed, checksummed journal record.
+     */
+    private static ByteBuffer encodeRecord(Transaction t, long sequence) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(sequence);
+            out.writeInt(t.getEpochDay());
+            out.writeDouble(t.getAmount());
+            out.writeBoolean(t.isIncome());
+            out.writeUTF(t.getCategory() == null ? "" : t.getCategory());
+            out.writeUTF(t.getDescription() == null ? "" : t.getDescription());
+        } catch (IOException e) {
+            // The manager limits texts to Transaction.MAX_TEXT_LENGTH, which writeUTF always accepts
+            throw new UncheckedIOException(e);
+        }
+
+        byte[] payload = bytes.toByteArray();
+        ByteBuffer record = ByteBuffer.allocate(payload.length + 8);
+        record.putInt(payload.length).put(payload).putInt(checksum(payload, payload.length));
+        record.flip();
+        return record;
+    }
+
+    /**
+     * Decodes a record payload positioned after the sequence number, if any.
+     */
+    private static Transaction decodePayload(ByteBuffer body) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+                body.array(), body.arrayOffset() + body.position(), body.remaining()));
+        int epochDay = in.readInt();
+        long amountCents = Transaction.toCents(in.readDouble());
+        boolean isIncome = in.readBoolean();
+        String category = in.readUTF();
+        String description = in.readUTF();
+        return new Transaction(epochDay, description, amountCents, category, isIncome);
+    }
+
+    /**
+     * Computes the CRC32 checksum of the first {@code length} bytes.
+     */
+    private static int checksum(byte[] data, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, length);
+        return (int) crc.getValue();
+    }
+}
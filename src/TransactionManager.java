@@ -1,47 +1,600 @@
 import java.util.*;
 import java.io.*;
-import javax.swing.JOptionPane;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
 
 /**
  * Manages a collection of financial transactions with persistence capabilities.
  * Provides methods for adding transactions, retrieving transaction data,
  * generating summaries, and automatically saving/loading data to/from disk.
+ * Transactions are held in a columnar {@link TransactionStore}.
+ *
+ * <p>The manager is safe for concurrent use. Writers are serialized by a short append lock;
+ * readers of transactions never lock, because store rows are published only once complete.
+ * The monthly index and category rollup are updated together with the store under the write
+ * mode of a {@link StampedLock}, and queries read them optimistically, retrying under the read
+ * lock only if a write overlapped, so every query sees the aggregates of a complete prefix of
+ * the ledger and readers do not hold up writers.</p>
+ *
+ * <p>Persistence is asynchronous: added transactions are handed to a {@link PersistenceWriter}
+ * that commits them to the journal on a background thread according to a
+ * {@link DurabilityMode}, and the add methods return a future that completes once the
+ * transactions are durable. Errors are reported to a {@link PersistenceListener} rather than
+ * shown to the user directly. {@link #close()} must be called before exiting so transactions
+ * still pending are written.</p>
+ *
+ * <p>Categories may have monthly {@link CategoryBudgets budgets}. Each added expense is checked
+ * against the running total of its category and month in the rollup, and the thresholds it
+ * crosses are reported to {@link BudgetListener}s; the limits are saved beside the ledger.</p>
  */
-public class TransactionManager {
-    private List<Transaction> transactions = new ArrayList<>();
+public class TransactionManager implements Closeable {
+    /**
+     * Upper bound on the heap retained per transaction by a loaded manager, excluding distinct
+     * strings: the {@link TransactionStore} columns ({@value TransactionStore#TARGET_BYTES_PER_ROW}
+     * bytes at most) plus the rows and days sorted by the {@link DateIndex} (8), the
+     * {@link DescriptionIndex} postings (4) and the {@link BitmapIndex} bitmaps, with room for
+     * the spare capacity of growing arrays. Ten million rows measure about 37 bytes each.
+     */
+    public static final int TARGET_BYTES_PER_ROW = 48;
+
+    private final TransactionStore store = new TransactionStore();
     private static final String DATA_FILE = "transactions.dat";
+    private final TransactionJournal journal;
+    private final MonthlyAggregateIndex monthlyIndex = new MonthlyAggregateIndex();
+    private final CategoryRollup categoryRollup = new CategoryRollup(store.getCategories());
+    private final DateIndex dateIndex = new DateIndex();
+    private final DescriptionIndex descriptionIndex = new DescriptionIndex();
+    private final BitmapIndex bitmapIndex = new BitmapIndex();
+    private final RollingWindows rollingWindows = new RollingWindows(dateIndex);
+    private final AnalyticsEngine analytics = new AnalyticsEngine(store);
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final StampedLock aggregateLock = new StampedLock();
+    private final PersistenceListener listener;
+    private final PersistenceWriter writer;
+    private final CompletableFuture<Void> loaded = new CompletableFuture<>();
+    // Set if the saved ledger could not be read; the manager then stays read-only
+    private volatile IOException loadFailure;
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final LatencyHistogram monthlySummaryTimer = metrics.timer("query.monthlySummary");
+    private final LatencyHistogram categoryBreakdownTimer = metrics.timer("query.categoryBreakdown");
+    private final LatencyHistogram searchTimer = metrics.timer("query.search");
+    private final LatencyHistogram filterTimer = metrics.timer("query.filter");
+    private volatile long dataVersion;
+    private volatile LedgerSnapshot latestSnapshot;
+    private final List<LedgerChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    private final List<BudgetListener> budgetListeners = new CopyOnWriteArrayList<>();
+    private final ReentrantLock budgetLock = new ReentrantLock();
+    private volatile CategoryBudgets budgets = CategoryBudgets.NONE;
+    private volatile IOException budgetsFailure;
 
     /**
      * Constructs a new TransactionManager and immediately attempts
      * to load any previously saved transactions from disk.
+     * Every add is forced to disk before its future completes ({@link DurabilityMode#SYNC}) and
+     * persistence errors are printed to standard error.
      */
     public TransactionManager() {
-        loadData();
+        this(DurabilityMode.SYNC, (message, error) -> System.err.println(message + ": " + error.getMessage()));
+    }
+
+    /**
+     * Constructs a new TransactionManager with the given durability and immediately attempts
+     * to load any previously saved transactions from disk.
+     *
+     * @param mode     when added transactions are forced to disk
+     * @param listener notified when loading or saving fails; called from a background thread for saves
+     */
+    public TransactionManager(DurabilityMode mode, PersistenceListener listener) {
+        this(DATA_FILE, mode, listener);
+    }
+
+    /**
+     * Constructs a TransactionManager that keeps its data next to the given data file instead of
+     * {@code transactions.dat} in the working directory, e.g. for tools and benchmarks.
+     *
+     * @param dataFile the legacy data file name; the snapshot and journal are stored beside it
+     * @param mode     when added transactions are forced to disk
+     * @param listener notified when loading or saving fails; called from a background thread for saves
+     */
+    public TransactionManager(String dataFile, DurabilityMode mode, PersistenceListener listener) {
+        this(dataFile, mode, listener, null);
+    }
+
+    /**
+     * Constructs a TransactionManager that loads the saved transactions on a background thread
+     * and returns at once; see {@link #TransactionManager(String, DurabilityMode, PersistenceListener, LoadListener)}.
+     *
+     * @param mode         when added transactions are forced to disk
+     * @param listener     notified when loading or saving fails
+     * @param loadListener notified on the loading thread as transactions become available
+     */
+    public TransactionManager(DurabilityMode mode, PersistenceListener listener, LoadListener loadListener) {
+        this(DATA_FILE, mode, listener, loadListener);
     }
 
     /**
-     * Adds a new transaction to the manager and persists the changes to disk.
+     * Constructs a TransactionManager, loading the saved transactions on a background thread
+     * if a load listener is given and before returning otherwise.
+     *
+     * <p>While loading in the background, queries return partial results: the summaries are
+     * built first, scanning the snapshot from its newest rows backwards so recent months are
+     * complete early, and rows then appear in the store chunk by chunk. Adding transactions
+     * and {@link #close()} wait until loading has finished.</p>
+     *
+     * @param dataFile     the legacy data file name; the snapshot and journal are stored beside it
+     * @param mode         when added transactions are forced to disk
+     * @param listener     notified when loading or saving fails
+     * @param loadListener notified on the loading thread as transactions become available,
+     *                     or null to load synchronously
+     */
+    public TransactionManager(String dataFile, DurabilityMode mode, PersistenceListener listener,
+                              LoadListener loadListener) {
+        this.journal = new TransactionJournal(dataFile);
+        this.listener = listener;
+        this.writer = new PersistenceWriter(journal, store, mode, listener, metrics);
+        if (loadListener == null) {
+            loadData((summaryRows, tableRows, totalRows) -> { });
+        } else {
+            Thread loader = new Thread(() -> loadData(loadListener), "ledger-loader");
+            loader.setDaemon(true);
+            loader.start();
+        }
+    }
+
+    /**
+     * Tells whether loading the saved transactions has finished, successfully or not.
+     *
+     * @return true once all saved transactions are available
+     */
+    public boolean isLoaded() {
+        return loaded.isDone();
+    }
+
+    /**
+     * Tells whether the saved ledger failed to load. The manager then holds only the
+     * transactions read before the failure and rejects new ones, so the files on disk are never
+     * replaced by a partial ledger.
+     *
+     * @return true if loading has finished and failed
+     */
+    public boolean isReadOnly() {
+        return loadFailure != null;
+    }
+
+    /**
+     * Returns a future that completes when loading has finished, successfully or not; load
+     * errors are reported to the persistence listener.
+     *
+     * @return a future completing on the loading thread
+     */
+    public CompletableFuture<Void> whenLoaded() {
+        return loaded.copy();
+    }
+
+    /**
+     * Changes how long transactions may wait to be committed together in
+     * {@link DurabilityMode#GROUP_COMMIT} mode.
+     *
+     * @param millis  the longest time a transaction waits before its group is committed
+     * @param records the number of pending records that triggers a commit immediately
+     */
+    public void configureGroupCommit(int millis, int records) {
+        writer.setGroupCommitLimits(millis, records);
+    }
+
+    /**
+     * Registers a listener for transactions added from now on. Transactions recovered while
+     * loading are reported through the {@link LoadListener} instead.
+     *
+     * @param listener the listener, called on the adding thread
+     */
+    public void addChangeListener(LedgerChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Removes a listener registered with {@link #addChangeListener(LedgerChangeListener)}.
+     *
+     * @param listener the listener
+     */
+    public void removeChangeListener(LedgerChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * Registers a listener for budget thresholds crossed by transactions added from now on.
+     *
+     * @param listener the listener, called on the adding thread
+     */
+    public void addBudgetListener(BudgetListener listener) {
+        budgetListeners.add(listener);
+    }
+
+    /**
+     * Removes a listener registered with {@link #addBudgetListener(BudgetListener)}.
+     *
+     * @param listener the listener
+     */
+    public void removeBudgetListener(BudgetListener listener) {
+        budgetListeners.remove(listener);
+    }
+
+    /**
+     * Adds a new transaction to the manager and queues it for the on-disk journal.
+     * The transaction is visible to queries as soon as this method returns.
      *
      * @param transaction the transaction to add (cannot be null)
-     * @throws IllegalArgumentException if transaction is null
+     * @return a future that completes when the transaction has been persisted, or completes
+     *         exceptionally with an {@link IOException} if it could not be
+     * @throws IllegalArgumentException if transaction is null or its description or category is
+     *                                  longer than {@link Transaction#MAX_TEXT_LENGTH}
+     * @throws IllegalStateException    if the ledger failed to load, see {@link #isReadOnly()}
      */
-    public void addTransaction(Transaction transaction) {
-        transactions.add(transaction);
-        saveData();
+    public CompletableFuture<Void> addTransaction(Transaction transaction) {
+        if (transaction == null) {
+            throw new IllegalArgumentException("Transaction cannot be null");
+        }
+        transaction.checkTextLengths();
+        loaded.join();
+        checkWritable();
+        CompletableFuture<Void> persisted;
+        int row;
+        List<BudgetAlert> alerts;
+        appendLock.lock();
+        try {
+            long stamp = aggregateLock.writeLock();
+            try {
+                row = store.add(transaction);
+                updateIndexes(row);
+                alerts = checkBudget(row, null);
+                advanceRollingWindows();
+                dateIndex.add(row, store.getEpochDay(row), store.getAmountCents(row), store.isIncome(row));
+                rollingWindows.add(store.getEpochDay(row), store.getAmountCents(row), store.isIncome(row));
+                descriptionIndex.add(store, row);
+                bitmapIndex.addRows(store, row, row + 1);
+            } finally {
+                unlockAggregates(stamp);
+            }
+            // Submitted under the append lock so batches reach the writer in row order
+            persisted = writer.submit(Collections.singletonList(transaction), row);
+        } finally {
+            appendLock.unlock();
+        }
+        publishChange(row, row + 1);
+        publishAlerts(alerts);
+        return persisted;
     }
 
+    /**
+     * Adds a batch of transactions and queues them to be persisted with a single write.
+     *
+     * @param batch the transactions to add, in order (none may be null)
+     * @return a future that completes when the whole batch has been persisted, or completes
+     *         exceptionally with an {@link IOException} if it could not be
+     * @throws IllegalArgumentException if the batch contains a null transaction or one whose
+     *                                  description or category is longer than
+     *                                  {@link Transaction#MAX_TEXT_LENGTH}
+     * @throws IllegalStateException    if the ledger failed to load, see {@link #isReadOnly()}
+     */
+    public CompletableFuture<Void> addAll(List<Transaction> batch) {
+        // Checked one by one: contains(null) throws for immutable lists
+        for (Transaction t : batch) {
+            if (t == null) {
+                throw new IllegalArgumentException("Transaction cannot be null");
+            }
+            t.checkTextLengths();
+        }
+        if (batch.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        loaded.join();
+        checkWritable();
+        CompletableFuture<Void> persisted;
+        int firstRow;
+        int endRow;
+        List<BudgetAlert> alerts = null;
+        appendLock.lock();
+        try {
+            long stamp = aggregateLock.writeLock();
+            firstRow = store.size();
+            try {
+                store.ensureCapacity(firstRow + batch.size());
+                for (Transaction t : batch) {
+                    int row = store.add(t);
+                    updateIndexes(row);
+                    alerts = checkBudget(row, alerts);
+                }
+                endRow = store.size();
+                advanceRollingWindows();
+                dateIndex.addRows(store, firstRow, endRow);
+                rollingWindows.addRows(store, firstRow, endRow);
+                descriptionIndex.addRows(store, firstRow, endRow);
+                bitmapIndex.addRows(store, firstRow, endRow);
+            } finally {
+                unlockAggregates(stamp);
+            }
+            persisted = writer.submit(new ArrayList<>(batch), firstRow);
+        } finally {
+            appendLock.unlock();
+        }
+        publishChange(firstRow, endRow);
+        publishAlerts(alerts);
+        return persisted;
+    }
+
+    /**
+     * Writes all transactions still pending and closes the data files. Transactions added
+     * afterwards are kept in memory only and their futures fail.
+     *
+     * @throws IOException if the data files cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        loaded.join();
+        writer.close();
+    }
 
     /**
-     * Returns an unmodifiable view of all transactions.
+     * Returns an unmodifiable view of the transactions present when this method is called;
+     * transactions added later are not part of it, so it can be iterated while others are added.
+     * Elements are lightweight views created from the store when accessed. Use
+     * {@link #snapshot()} to read the transactions together with matching totals.
      *
      * @return an unmodifiable list containing all transactions
      */
     public List<Transaction> getTransactions() {
-        return Collections.unmodifiableList(transactions);
+        return store.asList();
+    }
+
+    /**
+     * Returns the transactions dated within an inclusive range, ordered by date and, for equal
+     * dates, by the order they were added. The window is found by binary search over a
+     * date-sorted index; elements are views created from the store when accessed.
+     * While the ledger is loading in the background, the result is empty.
+     *
+     * @param from the first date to include
+     * @param to   the last date to include
+     * @return an unmodifiable list of the matching transactions; empty if {@code from} is after {@code to}
+     */
+    public List<Transaction> getTransactions(LocalDate from, LocalDate to) {
+        int fromDay = toEpochDay(from);
+        int toDay = toEpochDay(to);
+        return store.asList(readAggregates(() -> dateIndex.rowsBetween(fromDay, toDay)));
+    }
+
+    /**
+     * Returns total income and expenses for an inclusive date range in O(log days), from
+     * per-day prefix sums. While the ledger is loading in the background, the totals are zero.
+     *
+     * @param from the first date to include
+     * @param to   the last date to include
+     * @return an array where:
+     *         - index 0 contains total income
+     *         - index 1 contains total expenses
+     */
+    public double[] getRangeSummary(LocalDate from, LocalDate to) {
+        int fromDay = toEpochDay(from);
+        int toDay = toEpochDay(to);
+        return readAggregates(() -> dateIndex.getSummary(fromDay, toDay));
+    }
+
+    /**
+     * Returns the number of income and expense transactions in an inclusive date range.
+     *
+     * @param from the first date to include
+     * @param to   the last date to include
+     * @return an array where:
+     *         - index 0 contains the number of income transactions
+     *         - index 1 contains the number of expense transactions
+     */
+    public int[] getRangeCounts(LocalDate from, LocalDate to) {
+        int fromDay = toEpochDay(from);
+        int toDay = toEpochDay(to);
+        return readAggregates(() -> dateIndex.getCounts(fromDay, toDay));
+    }
+
+    /**
+     * Returns the spending velocity as of a day: totals and daily averages over the last 7, 30
+     * and 90 days, the burn rate and the projected balance at the end of the month. The windows
+     * for today are kept up to date as transactions are added and read in O(1); other days are
+     * summed from the date index in O(log n). Readers never block each other or wait for the
+     * write lock. While the ledger is loading in the background, the statistics are zero.
+     *
+     * @param today the last day of the windows, normally {@code LocalDate.now()}
+     * @return the statistics
+     */
+    public RollingStats getRollingStats(LocalDate today) {
+        int day = toEpochDay(today);
+        return readAggregates(() -> rollingWindows.getStats(day));
+    }
+
+    /**
+     * Returns the average daily expenses over a sliding window for every day of a range,
+     * computed from the per-day totals of the date index rather than by reading transactions,
+     * in O(log n) per day. While the ledger is
+     * loading in the background, the averages are zero.
+     *
+     * @param windowDays the window length in days, e.g. 7 or 30
+     * @param from       the first day of the series
+     * @param to         the last day of the series
+     * @return one average per day, each over the window ending on that day; empty if
+     *         {@code from} is after {@code to}
+     * @throws IllegalArgumentException if the window length is not positive
+     */
+    public double[] getRollingAverages(int windowDays, LocalDate from, LocalDate to) {
+        int fromDay = toEpochDay(from);
+        int toDay = toEpochDay(to);
+        return readAggregates(() -> rollingWindows.getAverageDailyExpenses(windowDays, fromDay, toDay));
+    }
+
+    /**
+     * Returns a number that changes whenever transactions are added or recovered, so views can
+     * keep query results for as long as it stays the same. It is read before querying: a result
+     * obtained after reading a version reflects at least the changes counted by it.
+     *
+     * @return the current data version
+     */
+    public long getDataVersion() {
+        return dataVersion;
+    }
+
+    /**
+     * Returns an immutable view of the ledger as it is now: its transactions, monthly totals and
+     * category rollup, all covering the same transactions, and the data version they reflect.
+     * Readers that run several queries should pin one snapshot so the results agree.
+     *
+     * <p>Taking a snapshot is O(1): the row count is recorded and the aggregates are shared until
+     * the next add copies the few cells it changes. If nothing was added since the last snapshot,
+     * that snapshot is returned without locking.</p>
+     *
+     * @return the snapshot
+     */
+    public LedgerSnapshot snapshot() {
+        LedgerSnapshot latest = latestSnapshot;
+        if (latest != null && latest.getVersion() == dataVersion) {
+            return latest;
+        }
+        // Exclusive only for the moment it takes to mark the aggregates shared
+        long stamp = aggregateLock.writeLock();
+        try {
+            latest = new LedgerSnapshot(this, store, dataVersion, store.size(),
+                    monthlyIndex.snapshot(), categoryRollup.snapshot());
+        } finally {
+            aggregateLock.unlockWrite(stamp);
+        }
+        latestSnapshot = latest;
+        return latest;
+    }
+
+    /**
+     * Computes per-category monthly trends, year-over-year changes and savings rates for a range
+     * of years in one parallel pass over the ledger. Unlike the summary queries this scans every
+     * row, so callers on the event dispatch thread should run it in the background.
+     *
+     * @param fromYear the first year
+     * @param toYear   the last year
+     * @return the trend report
+     * @throws IllegalArgumentException if {@code fromYear} is after {@code toYear}
+     */
+    public TrendReport getTrendReport(int fromYear, int toYear) {
+        return analytics.computeTrends(fromYear, toYear);
+    }
+
+    /**
+     * Finds the rows matching a filter among the first {@code rows} rows of the store. The type,
+     * category and date criteria are resolved with bitmap operations and the search words with
+     * the description index; rows recovered but not yet indexed while loading are checked one
+     * by one.
+     *
+     * @param filter the filter
+     * @param rows   the number of leading rows to consider, at most the store size
+     * @return the matching row ids, ascending
+     */
+    public int[] findRows(TransactionFilter filter, int rows) {
+        long start = System.nanoTime();
+        int[] result;
+        int size = 0;
+        int indexed;
+        long stamp = aggregateLock.readLock();
+        try {
+            indexed = Math.min(rows, Math.min(bitmapIndex.size(), descriptionIndex.size()));
+            long[] words = bitmapIndex.select(filter, store, indexed);
+            if (!filter.getSearchWords().isEmpty()) {
+                int[] hits = descriptionIndex.search(filter.getSearch());
+                result = new int[hits.length + (rows - indexed)];
+                for (int row : hits) {
+                    if (row < indexed && (words == null || (words[row >>> 6] & (1L << row)) != 0)) {
+                        result[size++] = row;
+                    }
+                }
+            } else if (words != null) {
+                int count = 0;
+                for (long word : words) {
+                    count += Long.bitCount(word);
+                }
+                result = new int[count + (rows - indexed)];
+                for (int w = 0; w < words.length; w++) {
+                    for (long word = words[w]; word != 0; word &= word - 1) {
+                        result[size++] = (w << 6) | Long.numberOfTrailingZeros(word);
+                    }
+                }
+            } else {
+                result = new int[rows];
+                for (int row = 0; row < indexed; row++) {
+                    result[size++] = row;
+                }
+            }
+        } finally {
+            aggregateLock.unlockRead(stamp);
+        }
+        TransactionFilter.Matcher matcher = filter.matcher(store);
+        for (int row = indexed; row < rows; row++) {
+            if (matcher.matches(row)) {
+                result[size++] = row;
+            }
+        }
+        filterTimer.record(System.nanoTime() - start);
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Returns the registry holding the latencies of saves, loads and summary queries. Views may
+     * add their own metrics to it.
+     *
+     * @return the metrics registry
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the space the ledger takes on disk.
+     *
+     * @return the combined size of the snapshot and journal files in bytes
+     */
+    public long getDiskBytes() {
+        return journal.getDiskBytes();
     }
 
     /**
-     * Calculates monthly summary statistics for the specified month and year.
+     * Finds the transactions whose description contains words starting with every word of a
+     * query, case-insensitively, so {@code "burger ki"} finds "Burger King". Answered from an
+     * inverted index; the description index is built once loading has finished, so earlier
+     * searches only see transactions added since.
+     *
+     * @param query the words to look for
+     * @return the matching row ids in the store, ascending; every row if the query has no words
+     */
+    public int[] searchDescriptions(String query) {
+        long start = System.nanoTime();
+        // Not an optimistic read: the word map must not be walked while it is restructured
+        long stamp = aggregateLock.readLock();
+        try {
+            return descriptionIndex.search(query);
+        } finally {
+            aggregateLock.unlockRead(stamp);
+            searchTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Returns the columnar store holding the transactions, for callers that read columns
+     * directly instead of materializing {@link Transaction} objects.
+     *
+     * @return the transaction store; callers must not add rows to it
+     */
+    public TransactionStore getStore() {
+        return store;
+    }
+
+    /**
+     * Returns monthly summary statistics for the specified month and year.
+     * The totals are read from an index maintained as transactions are added.
      *
      * @param month the month to summarize (1-12)
      * @param year the year to summarize
@@ -50,55 +603,441 @@ public class TransactionManager {
      *         - index 1 contains total expenses
      */
     public double[] getMonthlySummary(int month, int year) {
-        double totalIncome = 0;
-        double totalExpenses = 0;
-
-        Calendar cal = Calendar.getInstance();
-        for (Transaction t : transactions) {
-            cal.setTime(t.getDate());
-
-            if (cal.get(Calendar.MONTH) + 1 == month && cal.get(Calendar.YEAR) == year) {
-                if (t.isIncome()) {
-                    totalIncome += t.getAmount();
-                } else {
-                    totalExpenses += t.getAmount();
+        return timedQuery("monthlySummary", monthlySummaryTimer, month, year,
+                () -> readAggregates(() -> monthlyIndex.getSummary(month, year)));
+    }
+
+    /**
+     * Returns the number of income and expense transactions in the specified month.
+     *
+     * @param month the month (1-12)
+     * @param year the year
+     * @return an array where:
+     *         - index 0 contains the number of income transactions
+     *         - index 1 contains the number of expense transactions
+     */
+    public int[] getMonthlyTransactionCounts(int month, int year) {
+        return readAggregates(() -> monthlyIndex.getCounts(month, year));
+    }
+
+    /**
+     * Returns monthly summaries for an inclusive range of months in one call.
+     *
+     * @param fromMonth the first month (1-12)
+     * @param fromYear the year of the first month
+     * @param toMonth the last month (1-12)
+     * @param toYear the year of the last month
+     * @return one {income, expenses} pair per month in chronological order
+     */
+    public double[][] getMonthlySummaries(int fromMonth, int fromYear, int toMonth, int toYear) {
+        return readAggregates(() -> monthlyIndex.getSummaries(fromMonth, fromYear, toMonth, toYear));
+    }
+
+    /**
+     * Returns the monthly summaries of a whole year.
+     *
+     * @param year the year to summarize
+     * @return twelve {income, expenses} pairs, January first
+     */
+    public double[][] getYearlySummary(int year) {
+        return readAggregates(() -> monthlyIndex.getSummaries(1, year, 12, year));
+    }
+
+    /**
+     * Returns total expenses per category for the specified period, read from a
+     * pre-aggregated rollup rather than by scanning transactions.
+     *
+     * @param month the month (1-12), or {@link CategoryRollup#ALL} for all months
+     * @param year the year, or {@link CategoryRollup#ALL} for all years
+     * @return a Map of category names to total expenses, in order of first appearance
+     */
+    public Map<String, Double> getCategoryBreakdown(int month, int year) {
+        return timedQuery("categoryBreakdown", categoryBreakdownTimer, month, year,
+                () -> readAggregates(() -> categoryRollup.getBreakdown(month, year)));
+    }
+
+    /**
+     * Returns the number of expenses per category for the specified period.
+     *
+     * @param month the month (1-12), or {@link CategoryRollup#ALL} for all months
+     * @param year the year, or {@link CategoryRollup#ALL} for all years
+     * @return a Map of category names to expense counts, in order of first appearance
+     */
+    public Map<String, Integer> getCategoryCounts(int month, int year) {
+        return readAggregates(() -> categoryRollup.getCounts(month, year));
+    }
+
+    /**
+     * Returns the category budgets.
+     *
+     * @return the current limits and alert thresholds
+     */
+    public CategoryBudgets getBudgets() {
+        return budgets;
+    }
+
+    /**
+     * Tells whether the budgets cannot be changed because the ledger or the saved budgets failed
+     * to load. Saving would then replace limits that were never read, so
+     * {@link #setBudgetLimit(String, double)} refuses to.
+     *
+     * @return true if loading has finished and failed for the ledger or the budgets
+     */
+    public boolean areBudgetsReadOnly() {
+        return loadFailure != null || budgetsFailure != null;
+    }
+
+    /**
+     * Sets the monthly budget of a category and saves the budgets beside the ledger. Only
+     * expenses added afterwards raise alerts, even if the month is already over the new limit.
+     * Waits until loading has finished.
+     *
+     * @param category the category name (cannot be null)
+     * @param amount   the monthly limit, or 0 to remove the category's budget
+     * @throws IOException if the budgets cannot be saved; the previous budgets are kept
+     * @throws IllegalArgumentException if category is null or amount is negative or not finite
+     * @throws IllegalStateException    if the budgets cannot be changed, see {@link #areBudgetsReadOnly()}
+     */
+    public void setBudgetLimit(String category, double amount) throws IOException {
+        if (!Double.isFinite(amount)) {
+            throw new IllegalArgumentException("Budget limit must be a finite amount: " + amount);
+        }
+        if (amount < 0) {
+            throw new IllegalArgumentException("Budget limit cannot be negative");
+        }
+        loaded.join();
+        IOException failure = loadFailure != null ? loadFailure : budgetsFailure;
+        if (failure != null) {
+            throw new IllegalStateException("The saved ledger could not be loaded, so the budgets cannot be changed: "
+                    + failure.getMessage(), failure);
+        }
+        budgetLock.lock();
+        try {
+            CategoryBudgets changed = budgets.withLimit(category, Transaction.toCents(amount));
+            changed.write(journal.getBudgetFile());
+            budgets = changed;
+        } finally {
+            budgetLock.unlock();
+        }
+    }
+
+    /**
+     * Runs an aggregate query without blocking writers: the query first runs under an optimistic
+     * stamp and is repeated under the read lock only if a write overlapped it (in which case the
+     * optimistic attempt may also have failed on a half-updated structure).
+     *
+     * @param query the query to run against the aggregate structures
+     * @return the result of a query that did not overlap any write
+     */
+    private <T> T readAggregates(Supplier<T> query) {
+        long stamp = aggregateLock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                T result = query.get();
+                if (aggregateLock.validate(stamp)) {
+                    return result;
                 }
+            } catch (RuntimeException e) {
+                // Torn read during a concurrent update; retried below under the read lock
             }
         }
+        stamp = aggregateLock.readLock();
+        try {
+            return query.get();
+        } finally {
+            aggregateLock.unlockRead(stamp);
+        }
+    }
 
-        return new double[]{totalIncome, totalExpenses};
+    /**
+     * Tells the change listeners about newly added rows. Called after the locks are released, so
+     * listeners may query the manager; concurrent adders may publish out of row order.
+     *
+     * @param fromRow the first added row
+     * @param toRow   the row after the last added row
+     */
+    private void publishChange(int fromRow, int toRow) {
+        if (changeListeners.isEmpty()) {
+            return;
+        }
+        LedgerChange change = LedgerChange.of(store, fromRow, toRow);
+        for (LedgerChangeListener changeListener : changeListeners) {
+            changeListener.ledgerChanged(change);
+        }
+    }
+
+    /**
+     * Tells the budget listeners about thresholds crossed by an add. Called after the locks are
+     * released, like {@link #publishChange(int, int)}.
+     *
+     * @param alerts the alerts, or null if there are none
+     */
+    private void publishAlerts(List<BudgetAlert> alerts) {
+        if (alerts == null) {
+            return;
+        }
+        for (BudgetListener budgetListener : budgetListeners) {
+            budgetListener.budgetThresholdsCrossed(Collections.unmodifiableList(alerts));
+        }
+    }
+
+    /**
+     * Runs a summary query, recording its latency and a flight recorder event.
+     *
+     * @param name  the query name for the event
+     * @param timer the histogram of the query
+     * @param month the queried month, for the event
+     * @param year  the queried year, for the event
+     * @param query the query
+     * @return the query result
+     */
+    private <T> T timedQuery(String name, LatencyHistogram timer, int month, int year, Supplier<T> query) {
+        LedgerEvents.QueryEvent event = new LedgerEvents.QueryEvent();
+        event.begin();
+        long start = System.nanoTime();
+        T result = query.get();
+        timer.record(System.nanoTime() - start);
+        if (event.shouldCommit()) {
+            event.query = name;
+            event.month = month;
+            event.year = year;
+            event.commit();
+        }
+        return result;
+    }
+
+    /**
+     * Releases the aggregate write lock, counting the update in the data version.
+     *
+     * @param stamp the write stamp
+     */
+    private void unlockAggregates(long stamp) {
+        dataVersion++;
+        aggregateLock.unlockWrite(stamp);
+    }
+
+    /**
+     * Converts a date to an epoch day, saturating at the int range.
+     *
+     * @param date the date (cannot be null)
+     * @return the epoch day
+     * @throws IllegalArgumentException if date is null
+     */
+    private static int toEpochDay(LocalDate date) {
+        if (date == null) {
+            throw new IllegalArgumentException("Date cannot be null");
+        }
+        long day = date.toEpochDay();
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, day));
+    }
+
+    /**
+     * Adds a newly stored row to the monthly index and the category rollup.
+     *
+     * @param row the row id in the store
+     */
+    private void updateIndexes(int row) {
+        monthlyIndex.add(store.getEpochDay(row), store.getAmountCents(row), store.isIncome(row));
+        categoryRollup.add(store.getEpochDay(row), store.getAmountCents(row), store.getCategoryId(row), store.isIncome(row));
+    }
+
+    /**
+     * Moves the rolling windows to today, so a new day is taken up by the first add after
+     * midnight. Called before new rows reach the date index, which the windows are recomputed
+     * from. The caller holds the aggregate write lock.
+     */
+    private void advanceRollingWindows() {
+        int today = toEpochDay(LocalDate.now());
+        if (rollingWindows.getAnchorDay() != today) {
+            rollingWindows.advanceTo(today);
+        }
+    }
+
+    /**
+     * Rejects adds after a failed load, whose transactions could not be saved without replacing
+     * the unreadable files.
+     */
+    private void checkWritable() {
+        IOException failure = loadFailure;
+        if (failure != null) {
+            throw new IllegalStateException("The saved transactions could not be loaded, so no new ones can be added: "
+                    + failure.getMessage(), failure);
+        }
+    }
+
+    /**
+     * Checks a newly added row against the budget of its category. The row is already in the
+     * category rollup, so its month's running total before the row is that total minus the
+     * row's amount. The caller holds the aggregate write lock.
+     *
+     * @param row    the row id in the store
+     * @param alerts the alerts raised so far by the add, or null
+     * @return the alerts including any raised by the row, or null if there are none
+     */
+    private List<BudgetAlert> checkBudget(int row, List<BudgetAlert> alerts) {
+        CategoryBudgets current = budgets;
+        if (current.isEmpty() || budgetListeners.isEmpty() || store.isIncome(row)) {
+            return alerts;
+        }
+        String category = store.getCategory(row);
+        long limit = current.getLimitCents(category);
+        if (limit == 0) {
+            return alerts;
+        }
+        LocalDate date = LocalDate.ofEpochDay(store.getEpochDay(row));
+        long spent = categoryRollup.getSum(date.getMonthValue(), date.getYear(), store.getCategoryId(row));
+        int threshold = current.crossedThreshold(limit, spent - store.getAmountCents(row), spent);
+        if (threshold == 0) {
+            return alerts;
+        }
+        if (alerts == null) {
+            alerts = new ArrayList<>();
+        }
+        alerts.add(new BudgetAlert(category, YearMonth.from(date), threshold, spent, limit));
+        return alerts;
     }
 
     /**
-     * Saves all transactions to disk in serialized form.
-     * Displays an error message dialog if the operation fails.
+     * Recovers transactions from the partitions, snapshot and journal on disk, migrating the
+     * legacy serialized data file on first start. Closed partitions contribute their stored
+     * totals, so their years are summarized before any row is read. A columnar snapshot is
+     * aggregated straight from its mapped columns, newest rows first, before its rows are copied
+     * into the store; rows from other sources are aggregated as they are recovered. The category
+     * budgets are read first. Reports failures to the persistence listener.
+     *
+     * @param progress notified after every chunk of aggregated or recovered rows
      */
-    private void saveData() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(DATA_FILE))) {
-            oos.writeObject(transactions);
+    private void loadData(LoadListener progress) {
+        LedgerEvents.LoadEvent event = new LedgerEvents.LoadEvent();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            budgets = CategoryBudgets.read(journal.getBudgetFile());
         } catch (IOException e) {
-            JOptionPane.showMessageDialog(null, "Error saving transactions: " + e.getMessage(),
-                    "Error", JOptionPane.ERROR_MESSAGE);
+            budgetsFailure = e;
+            listener.persistenceFailed("Error loading budgets", e);
+        }
+        try {
+            journal.open(store, new TransactionJournal.RecoveryObserver() {
+                private int aggregatedRows;
+                private int totalRows;
+
+                @Override
+                public void partitionsOpened(List<LedgerPartition> partitions) {
+                    long stamp = aggregateLock.writeLock();
+                    try {
+                        for (LedgerPartition partition : partitions) {
+                            addPartitionTotals(partition);
+                            aggregatedRows += partition.getRowCount();
+                        }
+                    } finally {
+                        unlockAggregates(stamp);
+                    }
+                    totalRows = aggregatedRows;
+                    progress.loadProgress(aggregatedRows, 0, totalRows);
+                }
+
+                @Override
+                public void snapshotOpened(ColumnarLedgerFile snapshot) {
+                    // The snapshot follows the partitions, whose rows are already aggregated
+                    totalRows = aggregatedRows + snapshot.getRowCount();
+                    aggregateNewestFirst(snapshot, aggregatedRows, totalRows, progress);
+                    aggregatedRows = totalRows;
+                }
+
+                @Override
+                public void rowsRecovered(int fromRow, int toRow) {
+                    long stamp = aggregateLock.writeLock();
+                    try {
+                        for (int row = Math.max(fromRow, aggregatedRows); row < toRow; row++) {
+                            updateIndexes(row);
+                        }
+                        // Row indexes follow the rows, so filters and searches work while loading
+                        descriptionIndex.addRows(store, descriptionIndex.size(), toRow);
+                        bitmapIndex.addRows(store, bitmapIndex.size(), toRow);
+                    } finally {
+                        unlockAggregates(stamp);
+                    }
+                    aggregatedRows = Math.max(aggregatedRows, toRow);
+                    totalRows = Math.max(totalRows, toRow);
+                    progress.loadProgress(aggregatedRows, toRow, totalRows);
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            IOException error = e instanceof IOException ? (IOException) e : new IOException(e);
+            loadFailure = error;
+            listener.persistenceFailed("Error loading transactions", error);
+        } finally {
+            // Sorting by date in one linear pass beats inserting rows that arrive newest first
+            long stamp = aggregateLock.writeLock();
+            try {
+                dateIndex.rebuild(store, store.size());
+                rollingWindows.advanceTo(toEpochDay(LocalDate.now()));
+            } finally {
+                unlockAggregates(stamp);
+            }
+            metrics.timer("load").record(System.nanoTime() - start);
+            event.rows = store.size();
+            event.commit();
+            loaded.complete(null);
         }
     }
 
     /**
-     * Loads transactions from disk if the data file exists.
-     * Displays an error message dialog if the operation fails.
+     * Adds the rows of a mapped snapshot to the monthly index and category rollup, walking from
+     * the end of the file backwards in chunks and publishing each chunk, so the most recently
+     * added months are summarized first. The snapshot's categories are registered in the store's
+     * dictionary in file order, which gives them the ids the rows will get when copied.
      *
-     * @SuppressWarnings("unchecked") Suppresses warnings about unchecked cast
-     * from Object to List<Transaction> during deserialization
+     * @param firstRow  the store row the snapshot's first row will become
+     * @param totalRows the number of rows known to be loading, for progress reports
      */
-    @SuppressWarnings("unchecked")
-    private void loadData() {
-        File file = new File(DATA_FILE);
-        if (!file.exists()) return;
+    private void aggregateNewestFirst(ColumnarLedgerFile snapshot, int firstRow, int totalRows,
+                                      LoadListener progress) {
+        String[] categories = snapshot.getCategories();
+        int[] categoryMap = new int[categories.length];
+        for (int i = 0; i < categories.length; i++) {
+            categoryMap[i] = store.getCategories().idOf(categories[i]);
+        }
 
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(DATA_FILE))) {
-            transactions = (List<Transaction>) ois.readObject();
-        } catch (IOException | ClassNotFoundException e) {
-            JOptionPane.showMessageDialog(null, "Error loading transactions: " + e.getMessage(),
-                    "Error", JOptionPane.ERROR_MESSAGE);
+        int rows = snapshot.getRowCount();
+        for (int end = rows; end > 0; end -= ColumnarLedgerFile.APPEND_CHUNK_ROWS) {
+            int start = Math.max(0, end - ColumnarLedgerFile.APPEND_CHUNK_ROWS);
+            long stamp = aggregateLock.writeLock();
+            try {
+                for (int row = start; row < end; row++) {
+                    int epochDay = snapshot.getEpochDay(row);
+                    long cents = snapshot.getAmountCents(row);
+                    boolean isIncome = snapshot.isIncome(row);
+                    monthlyIndex.add(epochDay, cents, isIncome);
+                    categoryRollup.add(epochDay, cents, categoryMap[snapshot.getCategoryId(row)], isIncome);
+                }
+            } finally {
+                unlockAggregates(stamp);
+            }
+            progress.loadProgress(firstRow + rows - start, 0, totalRows);
+        }
+    }
+
+    /**
+     * Adds the stored totals of a closed partition to the monthly index and category rollup.
+     * The caller holds the aggregate write lock.
+     */
+    private void addPartitionTotals(LedgerPartition partition) {
+        String[] categories = partition.getCategories();
+        int[] categoryMap = new int[categories.length];
+        for (int i = 0; i < categories.length; i++) {
+            categoryMap[i] = store.getCategories().idOf(categories[i]);
+        }
+        int year = partition.getYear();
+        for (int month = 1; month <= 12; month++) {
+            monthlyIndex.addTotals(month, year, partition.getIncomeCents(month), partition.getIncomeCount(month),
+                    partition.getExpenseCents(month), partition.getExpenseCount(month));
+            for (int category = 0; category < categories.length; category++) {
+                categoryRollup.addTotals(month, year, categoryMap[category],
+                        partition.getCategoryExpenseCents(category, month),
+                        partition.getCategoryExpenseCount(category, month));
+            }
         }
     }
 }
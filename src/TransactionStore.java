@@ -0,0 +1,250 @@
+import java.util.*;
+
+/**
+ * Column-oriented in-memory storage for the ledger.
+ * Each field lives in its own primitive array (a structure of arrays) instead of one object per
+ * transaction: the date as an epoch day, the amount in cents, dictionary ids for category and
+ * description, and one bit per row for the income flag.
+ *
+ * <p>Memory target: {@value #TARGET_BYTES_PER_ROW} bytes per row or less once capacity is trimmed
+ * (8 amount + 4 date + 4 category + 4 description + 1/8 flag), plus one copy of each distinct
+ * category and description string. A {@code List<Transaction>} of {@code java.sql.Date}-backed
+ * objects needed well over 100 bytes per row.</p>
+ *
+ * <p>Rows are only ever appended, so a row id stays valid for the lifetime of the store.</p>
+ *
+ * <p>Threading: a single writer at a time may append (callers serialize writers, see
+ * {@link TransactionManager}); any number of threads may read concurrently without locking.
+ * A row is fully written before the volatile {@code size} is advanced, and grown columns are
+ * published as a new immutable {@code Columns} holder, so a reader that reads {@link #size()}
+ * first always sees complete rows below it.</p>
+ */
+public class TransactionStore {
+    /**
+     * Upper bound on the columnar bytes per row, excluding distinct strings. The indexes of a
+     * {@link TransactionManager} come on top, see {@link TransactionManager#TARGET_BYTES_PER_ROW}.
+     */
+    public static final int TARGET_BYTES_PER_ROW = 24;
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final StringDictionary categories = new StringDictionary();
+    private final StringDictionary descriptions = new StringDictionary();
+
+    private volatile int size;
+    private volatile Columns columns = new Columns(INITIAL_CAPACITY, null, 0);
+
+    /**
+     * Appends a transaction.
+     *
+     * @param transaction the transaction to store
+     * @return the row id assigned to the transaction
+     */
+    public int add(Transaction transaction) {
+        return add(transaction.getEpochDay(), transaction.getAmountCents(),
+                categories.idOf(transaction.getCategory()),
+                descriptions.idOf(transaction.getDescription()),
+                transaction.isIncome());
+    }
+
+    /**
+     * Appends a row from already encoded values.
+     *
+     * @param epochDay      the date as days since 1970-01-01
+     * @param cents         the amount in cents
+     * @param categoryId    an id from {@link #getCategories()}
+     * @param descriptionId an id from {@link #getDescriptions()}
+     * @param isIncome      true for income, false for expenses
+     * @return the row id assigned to the row
+     */
+    public int add(int epochDay, long cents, int categoryId, int descriptionId, boolean isIncome) {
+        int row = size;
+        Columns c = columns;
+        if (row == c.epochDays.length) {
+            ensureCapacity(row + (row >> 1) + 1);
+            c = columns;
+        }
+        c.epochDays[row] = epochDay;
+        c.amountCents[row] = cents;
+        c.categoryIds[row] = categoryId;
+        c.descriptionIds[row] = descriptionId;
+        if (isIncome) {
+            // Readers may read this word concurrently; 64-bit JVMs never tear long writes
+            c.incomeBits[row >>> 6] |= 1L << (row & 63);
+        }
+        size = row + 1; // Publishes the row
+        return row;
+    }
+
+    /**
+     * Grows the columns so at least {@code capacity} rows fit without reallocation.
+     *
+     * @param capacity the required number of rows
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > columns.epochDays.length) {
+            columns = new Columns(capacity, columns, size);
+        }
+    }
+
+    /**
+     * Releases unused capacity, e.g. after a bulk load.
+     */
+    public void trimToSize() {
+        if (size < columns.epochDays.length) {
+            columns = new Columns(size, columns, size);
+        }
+    }
+
+    /**
+     * Returns the number of rows.
+     *
+     * @return the number of stored transactions
+     */
+    public int size() {
+        return size;
+    }
+
+    public int getEpochDay(int row) { return columns.epochDays[row]; }
+    public long getAmountCents(int row) { return columns.amountCents[row]; }
+    public int getCategoryId(int row) { return columns.categoryIds[row]; }
+    public int getDescriptionId(int row) { return columns.descriptionIds[row]; }
+    public String getCategory(int row) { return categories.valueOf(getCategoryId(row)); }
+    public String getDescription(int row) { return descriptions.valueOf(getDescriptionId(row)); }
+    public boolean isIncome(int row) { return (columns.incomeBits[row >>> 6] & (1L << (row & 63))) != 0; }
+
+    /**
+     * Returns the category dictionary shared by all rows.
+     *
+     * @return the category dictionary
+     */
+    public StringDictionary getCategories() {
+        return categories;
+    }
+
+    /**
+     * Returns the description dictionary shared by all rows.
+     *
+     * @return the description dictionary
+     */
+    public StringDictionary getDescriptions() {
+        return descriptions;
+    }
+
+    /**
+     * Returns a lightweight {@link Transaction} view of a row.
+     *
+     * @param row the row id
+     * @return a transaction holding the row's values and the shared dictionary strings
+     */
+    public Transaction get(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+        return new Transaction(getEpochDay(row), getDescription(row), getAmountCents(row), getCategory(row), isIncome(row));
+    }
+
+    /**
+     * Returns an unmodifiable list view of the rows present when this method is called;
+     * elements are created on access. Rows appended later are not part of the view, so the
+     * view can be iterated safely while other threads add transactions.
+     *
+     * @return a random-access list over the current rows
+     */
+    public List<Transaction> asList() {
+        return new RowList(null, size);
+    }
+
+    /**
+     * Returns an unmodifiable list view of the first rows; elements are created on access.
+     *
+     * @param rows the number of leading rows to include, at most {@link #size()}
+     * @return a random-access list over rows 0 to {@code rows - 1}
+     */
+    public List<Transaction> asList(int rows) {
+        if (rows < 0 || rows > size) {
+            throw new IndexOutOfBoundsException("Rows " + rows + " of " + size);
+        }
+        return new RowList(null, rows);
+    }
+
+    /**
+     * Returns an unmodifiable list view of selected rows, in the given order; elements are
+     * created on access.
+     *
+     * @param rows the row ids to include, each less than {@link #size()}; the array is not copied
+     * @return a random-access list over the selected rows
+     */
+    public List<Transaction> asList(int[] rows) {
+        return new RowList(rows, rows.length);
+    }
+
+    /**
+     * Estimates the heap used by the columns and dictionaries.
+     *
+     * @return an approximate size in bytes
+     */
+    public long estimateMemoryBytes() {
+        Columns c = columns;
+        long bytes = 8L * c.amountCents.length + 4L * (c.epochDays.length + c.categoryIds.length + c.descriptionIds.length)
+                + 8L * c.incomeBits.length;
+        return bytes + categories.estimateMemoryBytes() + descriptions.estimateMemoryBytes();
+    }
+
+    /**
+     * List view materializing {@link Transaction} objects on demand.
+     */
+    private class RowList extends AbstractList<Transaction> implements RandomAccess {
+        private final int[] rowIds;
+        private final int rows;
+
+        /**
+         * @param rowIds the row id of each element, or null for rows 0 to {@code rows - 1}
+         * @param rows   the number of elements
+         */
+        RowList(int[] rowIds, int rows) {
+            this.rowIds = rowIds;
+            this.rows = rows;
+        }
+
+        @Override
+        public Transaction get(int index) {
+            if (index < 0 || index >= rows) {
+                throw new IndexOutOfBoundsException("Row " + index + " of " + rows);
+            }
+            return TransactionStore.this.get(rowIds == null ? index : rowIds[index]);
+        }
+
+        @Override
+        public int size() {
+            return rows;
+        }
+    }
+
+    /**
+     * One generation of column arrays. Replaced as a whole when the store grows; the final
+     * fields make the copied rows visible to any thread that sees the new holder.
+     */
+    private static final class Columns {
+        final int[] epochDays;
+        final long[] amountCents;
+        final int[] categoryIds;
+        final int[] descriptionIds;
+        final long[] incomeBits;
+
+        Columns(int capacity, Columns from, int rows) {
+            epochDays = new int[capacity];
+            amountCents = new long[capacity];
+            categoryIds = new int[capacity];
+            descriptionIds = new int[capacity];
+            incomeBits = new long[(capacity + 63) >>> 6];
+            if (from != null) {
+                System.arraycopy(from.epochDays, 0, epochDays, 0, rows);
+                System.arraycopy(from.amountCents, 0, amountCents, 0, rows);
+                System.arraycopy(from.categoryIds, 0, categoryIds, 0, rows);
+                System.arraycopy(from.descriptionIds, 0, descriptionIds, 0, rows);
+                System.arraycopy(from.incomeBits, 0, incomeBits, 0, (rows + 63) >>> 6);
+            }
+        }
+    }
+}
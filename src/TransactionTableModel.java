@@ -0,0 +1,180 @@
+import javax.swing.table.AbstractTableModel;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Table model for the View Transactions tab that reads cells directly from the
+ * {@link TransactionStore} instead of copying every transaction into the table.
+ * Cells are produced only for the rows Swing actually paints or sorts, dates and amounts are
+ * returned as {@link LocalDate} and {@link Double} so the row sorter compares real values, and
+ * newly added transactions are announced with a row-insertion event rather than a full reload.
+ * Filters are resolved by the manager's bitmap and description indexes into the matching row
+ * ids; only rows added afterwards are checked one by one.
+ */
+public class TransactionTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+
+    private static final String[] COLUMN_NAMES = {"Date", "Description", "Amount", "Category", "Type"};
+    private static final Class<?>[] COLUMN_CLASSES = {LocalDate.class, String.class, Double.class, String.class, String.class};
+
+    private final TransactionManager transactionManager;
+    private final TransactionStore store;
+    private TransactionFilter filter = TransactionFilter.ALL;
+    private TransactionFilter.Matcher matcher;
+    private int knownRows;
+
+    /**
+     * Row ids of the visible rows when a filter is active, or null when every row is shown.
+     */
+    private int[] visibleRows;
+    private int visibleCount;
+
+    /**
+     * Creates a model showing all transactions of the given manager.
+     *
+     * @param transactionManager the manager whose store backs the table
+     */
+    public TransactionTableModel(TransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+        this.store = transactionManager.getStore();
+        this.knownRows = store.size();
+        this.visibleCount = knownRows;
+    }
+
+    /**
+     * Changes the type filter and reloads the table.
+     *
+     * @param filterType the type of transactions to display ("All", "Income", or "Expense")
+     */
+    public void setTypeFilter(String filterType) {
+        setFilter(filter.withType(filterType));
+    }
+
+    /**
+     * Changes all filter criteria and reloads the table.
+     *
+     * @param filter the rows to display
+     */
+    public void setFilter(TransactionFilter filter) {
+        this.filter = filter;
+        reload();
+    }
+
+    /**
+     * Re-reads the row count from the store and notifies listeners that all data changed.
+     */
+    public void reload() {
+        knownRows = store.size();
+        matcher = filter.matcher(store);
+        if (!filter.isRestrictive()) {
+            visibleRows = null;
+            visibleCount = knownRows;
+        } else {
+            // Later rows arrive through transactionsAdded()
+            visibleRows = transactionManager.findRows(filter, knownRows);
+            visibleCount = visibleRows.length;
+            if (visibleRows.length == 0) {
+                visibleRows = new int[16];
+            }
+        }
+        fireTableDataChanged();
+    }
+
+    /**
+     * Returns the active type filter.
+     *
+     * @return "All", "Income" or "Expense"
+     */
+    public String getTypeFilter() {
+        return filter.getType();
+    }
+
+    /**
+     * Returns the active filter.
+     *
+     * @return the filter criteria
+     */
+    public TransactionFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Picks up rows appended to the store since the last call and fires a single
+     * row-insertion event for those that pass the current filter.
+     */
+    public void transactionsAdded() {
+        int first = visibleCount;
+        int end = store.size();
+        if (visibleRows == null) {
+            visibleCount = end;
+        } else {
+            appendMatchingRows(knownRows, end);
+        }
+        knownRows = end;
+        if (visibleCount > first) {
+            fireTableRowsInserted(first, visibleCount - 1);
+        }
+    }
+
+    /**
+     * Returns the store row id displayed at a model row.
+     *
+     * @param modelRow the model row index
+     * @return the row id in the transaction store
+     */
+    public int getStoreRow(int modelRow) {
+        return visibleRows == null ? modelRow : visibleRows[modelRow];
+    }
+
+    @Override
+    public int getRowCount() {
+        return visibleCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return COLUMN_CLASSES[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false; // Make table non-editable
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        int row = getStoreRow(rowIndex);
+        switch (columnIndex) {
+            case 0: return LocalDate.ofEpochDay(store.getEpochDay(row));
+            case 1: return store.getDescription(row);
+            case 2: return store.getAmountCents(row) / 100.0;
+            case 3: return store.getCategory(row);
+            case 4: return store.isIncome(row) ? "Income" : "Expense";
+            default: throw new IndexOutOfBoundsException("Column " + columnIndex);
+        }
+    }
+
+    /**
+     * Adds the ids of rows in {@code [from, to)} that pass the filter to the visible rows.
+     */
+    private void appendMatchingRows(int from, int to) {
+        for (int row = from; row < to; row++) {
+            if (matcher.matches(row)) {
+                if (visibleCount == visibleRows.length) {
+                    visibleRows = Arrays.copyOf(visibleRows, visibleCount * 2);
+                }
+                visibleRows[visibleCount++] = row;
+            }
+        }
+    }
+}
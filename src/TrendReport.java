@@ -0,0 +1,181 @@
+import java.util.*;
+
+/**
+ * The result of {@link AnalyticsEngine#computeTrends(int, int)}: monthly income and expense
+ * series, one monthly expense series per category, and the yearly totals, year-over-year changes
+ * and savings rates derived from them. Months are indexed from 0 for January of the first year.
+ * Amounts are kept in cents and returned in currency units. Reports are immutable.
+ */
+public class TrendReport {
+    private final int fromYear;
+    private final int toYear;
+    private final List<String> categories;
+    private final long[][] categoryExpenses;
+    private final long[] income;
+    private final long[] expenses;
+
+    TrendReport(int fromYear, int toYear, List<String> categories, long[][] categoryExpenses,
+                long[] income, long[] expenses) {
+        this.fromYear = fromYear;
+        this.toYear = toYear;
+        this.categories = Collections.unmodifiableList(new ArrayList<>(categories));
+        this.categoryExpenses = categoryExpenses;
+        this.income = income;
+        this.expenses = expenses;
+    }
+
+    public int getFromYear() { return fromYear; }
+    public int getToYear() { return toYear; }
+
+    /**
+     * Returns the number of months covered.
+     *
+     * @return twelve times the number of years
+     */
+    public int getMonthCount() {
+        return income.length;
+    }
+
+    /**
+     * Returns the categories with at least one expense in the period.
+     *
+     * @return the category names, in order of first appearance in the ledger
+     */
+    public List<String> getCategories() {
+        return categories;
+    }
+
+    /**
+     * Returns the monthly expenses of a category.
+     *
+     * @param category the category name
+     * @return one total per month; all zero if the category has no expenses in the period
+     */
+    public double[] getCategoryTrend(String category) {
+        int index = categories.indexOf(category);
+        return index < 0 ? new double[getMonthCount()] : toUnits(categoryExpenses[index]);
+    }
+
+    /** @return total income per month */
+    public double[] getMonthlyIncome() { return toUnits(income); }
+
+    /** @return total expenses per month */
+    public double[] getMonthlyExpenses() { return toUnits(expenses); }
+
+    /**
+     * Returns the savings rate of every month, {@code (income - expenses) / income} in percent.
+     *
+     * @return one rate per month; {@code NaN} for months without income
+     */
+    public double[] getSavingsRateHistory() {
+        double[] rates = new double[getMonthCount()];
+        for (int month = 0; month < rates.length; month++) {
+            rates[month] = savingsRate(income[month], expenses[month]);
+        }
+        return rates;
+    }
+
+    /**
+     * Returns the total income of a year in the period.
+     *
+     * @param year the year
+     * @return the income of that year
+     */
+    public double getYearlyIncome(int year) {
+        return yearTotal(income, year) / 100.0;
+    }
+
+    /**
+     * Returns the total expenses of a year in the period.
+     *
+     * @param year the year
+     * @return the expenses of that year
+     */
+    public double getYearlyExpenses(int year) {
+        return yearTotal(expenses, year) / 100.0;
+    }
+
+    /**
+     * Returns the expenses of one category in a year of the period.
+     *
+     * @param category the category name
+     * @param year     the year
+     * @return the category's expenses in that year
+     */
+    public double getYearlyCategoryExpenses(String category, int year) {
+        int index = categories.indexOf(category);
+        return index < 0 ? 0 : yearTotal(categoryExpenses[index], year) / 100.0;
+    }
+
+    /**
+     * Returns the savings rate of a whole year.
+     *
+     * @param year the year
+     * @return the rate in percent, or {@code NaN} if the year has no income
+     */
+    public double getYearlySavingsRate(int year) {
+        return savingsRate(yearTotal(income, year), yearTotal(expenses, year));
+    }
+
+    /**
+     * Returns the change in income from the previous year.
+     *
+     * @param year a year after the first year of the period
+     * @return the change in percent, or {@code NaN} for the first year or if the previous year had no income
+     */
+    public double getIncomeChange(int year) {
+        return year <= fromYear ? Double.NaN : change(yearTotal(income, year - 1), yearTotal(income, year));
+    }
+
+    /**
+     * Returns the change in expenses from the previous year.
+     *
+     * @param year a year after the first year of the period
+     * @return the change in percent, or {@code NaN} for the first year or if the previous year had no expenses
+     */
+    public double getExpenseChange(int year) {
+        return year <= fromYear ? Double.NaN : change(yearTotal(expenses, year - 1), yearTotal(expenses, year));
+    }
+
+    /**
+     * Returns the change in a category's expenses from the previous year.
+     *
+     * @param category the category name
+     * @param year     a year after the first year of the period
+     * @return the change in percent, or {@code NaN} for the first year or if the previous year had none
+     */
+    public double getCategoryChange(String category, int year) {
+        int index = categories.indexOf(category);
+        if (index < 0 || year <= fromYear) {
+            return Double.NaN;
+        }
+        return change(yearTotal(categoryExpenses[index], year - 1), yearTotal(categoryExpenses[index], year));
+    }
+
+    private long yearTotal(long[] series, int year) {
+        if (year < fromYear || year > toYear) {
+            throw new IllegalArgumentException("Year " + year + " is outside " + fromYear + "-" + toYear);
+        }
+        long total = 0;
+        for (int month = (year - fromYear) * 12, end = month + 12; month < end; month++) {
+            total += series[month];
+        }
+        return total;
+    }
+
+    private static double savingsRate(long incomeCents, long expenseCents) {
+        return incomeCents == 0 ? Double.NaN : 100.0 * (incomeCents - expenseCents) / incomeCents;
+    }
+
+    private static double change(long previous, long current) {
+        return previous == 0 ? Double.NaN : 100.0 * (current - previous) / previous;
+    }
+
+    private static double[] toUnits(long[] cents) {
+        double[] units = new double[cents.length];
+        for (int i = 0; i < cents.length; i++) {
+            units[i] = cents[i] / 100.0;
+        }
+        return units;
+    }
+}